@@ -0,0 +1,86 @@
+package undercover.maven;
+
+import java.util.Arrays;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import undercover.instrument.OfflineInstrument;
+import undercover.instrument.ProbeMode;
+import undercover.instrument.filter.Exclusion;
+import undercover.instrument.filter.GlobFilter;
+
+/**
+ * Writes class coverage metadata and prepares the Java agent which instruments classes when they are loaded.
+ * The agent arguments are appended to the <code>argLine</code> property used by Surefire.
+ *
+ * @goal prepare-agent
+ * @phase process-classes
+ * @requiresDependencyResolution test
+ */
+public class AgentMojo extends InstrumentMojo {
+    protected void doExecute() throws MojoExecutionException {
+    	getLog().info("Analyzing...");
+    	try {
+	    	OfflineInstrument instrument = new OfflineInstrument();
+	    	instrument.setLogger(new MavenLogger(getLog()));
+	    	instrument.setInstrumentPaths(Arrays.asList(instrumentationPaths));
+	    	instrument.setMetaDataFile(metaDataFile);
+    		instrument.setFilter(new GlobFilter(includes, excludes));
+    		for (Exclusion each : getExclusions()) {
+    			instrument.addExclusion(each);
+    		}
+    		instrument.setThreads(getThreads());
+    		instrument.setIncremental(incremental);
+    		instrument.setProbeMode(ProbeMode.parse(probeMode));
+    		instrument.setFlatCounters(flatCounters);
+    		instrument.setCacheCounters(cacheCounters);
+    		instrument.setSkipTrivialMethods(skipTrivialMethods);
+	    	instrument.analyze();
+	    	deleteAppendedCoverageData();
+    	} catch (Exception e) {
+    		throw new MojoExecutionException("Failed to analyze", e);
+    	}
+
+    	addPluginDependenciesToTestClasspath("undercover:undercover");
+
+    	String argLine = project.getProperties().getProperty("argLine");
+    	project.getProperties().setProperty("argLine", (argLine == null ? "" : argLine + " ") + agentArgLine());
+	}
+
+    String agentArgLine() throws MojoExecutionException {
+    	StringBuilder options = new StringBuilder();
+    	for (String each : includes) {
+    		options.append(options.length() == 0 ? "" : ",").append("include=").append(each);
+    	}
+    	for (String each : excludes) {
+    		options.append(options.length() == 0 ? "" : ",").append("exclude=").append(each);
+    	}
+    	options.append(options.length() == 0 ? "" : ",").append("probe=").append(ProbeMode.parse(probeMode));
+    	options.append(",flat=").append(flatCounters);
+    	options.append(",cache=").append(cacheCounters);
+    	options.append(",skipTrivial=").append(skipTrivialMethods);
+    	appendOptions(options, "excludeAnnotation", excludeAnnotations);
+    	appendOptions(options, "excludeAccess", excludeAccess);
+    	appendOptions(options, "excludeMethod", excludeMethods);
+    	String agentPath = getPluginArtifact("undercover:undercover").getFile().getAbsolutePath();
+    	return quote("-javaagent:" + agentPath + "=" + options)
+    		+ " " + quote("-Dundercover.coveragedata.saveOnExit=true")
+    		+ " " + quote("-Dundercover.coveragedata.file=" + coverageDataFile.getAbsolutePath())
+    		+ (appendCoverageData ? " " + quote("-Dundercover.coveragedata.append=true") : "");
+    }
+
+    /**
+     * Appends an option for each value, so that the agent excludes the same methods as the meta data.
+     */
+    static void appendOptions(StringBuilder options, String key, String[] values) {
+    	if (values != null) {
+    		for (String each : values) {
+    			options.append(',').append(key).append('=').append(each.trim());
+    		}
+    	}
+    }
+
+    static String quote(String argument) {
+    	return argument.indexOf(' ') == -1 ? argument : "\"" + argument + "\"";
+    }
+}
@@ -0,0 +1,76 @@
+package undercover.maven;
+
+import java.io.File;
+import java.util.SortedSet;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import undercover.data.ChangeSet;
+import undercover.data.MetaData;
+import undercover.data.TestImpactIndex;
+import undercover.runtime.TestCoverageReader;
+
+/**
+ * Prints tests which executed changed lines, from coverage of each test recorded by
+ * the <code>undercover.junit.CoverageListener</code> Surefire listener.
+ * All recorded tests are selected if any changed file, such as a test or a resource, is not a source of an executed class.
+ * The tests are also set to the <code>undercover.impactedTests</code> property, separated by commas.
+ *
+ * @goal impact
+ */
+public class ImpactMojo extends UndercoverMojo {
+    /**
+     * Location of class coverage metadata.
+     *
+     * @parameter expression="${undercover.metaDataFile}"
+     */
+    protected File metaDataFile;
+
+    /**
+     * Directory of test coverage files.
+     *
+     * @parameter expression="${undercover.testCoverageDirectory}"
+     */
+    protected File testCoverageDirectory;
+
+    /**
+     * Unified diff, or list of changed files and lines such as <code>src/main/java/p/C.java:3,10-12</code>.
+     *
+     * @parameter expression="${undercover.changesFile}"
+     * @required
+     */
+    protected File changesFile;
+
+    protected void checkParameters() throws MojoExecutionException, MojoFailureException {
+		super.checkParameters();
+
+		if (metaDataFile == null) {
+			metaDataFile = new File(outputDirectory, "undercover.md");
+		}
+
+		if (testCoverageDirectory == null) {
+			testCoverageDirectory = new File(outputDirectory, "undercover-tests");
+		}
+	}
+
+    protected void doExecute() throws MojoExecutionException {
+    	try {
+    		TestImpactIndex index = TestImpactIndex.build(MetaData.load(metaDataFile), TestCoverageReader.load(testCoverageDirectory));
+    		ChangeSet changes = ChangeSet.load(changesFile);
+    		for (String each : index.getUnknownPaths(changes)) {
+    			getLog().warn("No test executed " + each + ". Selecting all tests.");
+    		}
+    		SortedSet<String> tests = index.selectTests(changes);
+    		getLog().info(tests.size() + " tests are affected");
+    		StringBuilder builder = new StringBuilder();
+    		for (String each : tests) {
+    			getLog().info(each);
+    			builder.append(builder.length() == 0 ? "" : ",").append(each);
+    		}
+    		project.getProperties().setProperty("undercover.impactedTests", builder.toString());
+    	} catch (Exception e) {
+    		throw new MojoExecutionException("Failed to select tests", e);
+    	}
+    }
+}
@@ -10,12 +10,18 @@ import java.util.Set;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.artifact.factory.ArtifactFactory;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
 import undercover.instrument.OfflineInstrument;
+import undercover.instrument.ProbeMode;
+import undercover.instrument.filter.AccessExclusion;
+import undercover.instrument.filter.AnnotationExclusion;
+import undercover.instrument.filter.Exclusion;
 import undercover.instrument.filter.GlobFilter;
+import undercover.instrument.filter.MethodExclusion;
 import undercover.runtime.UndercoverSettings;
 
 /**
@@ -27,6 +33,7 @@ import undercover.runtime.UndercoverSettings;
 public class InstrumentMojo extends UndercoverMojo {
     /**
      * Specifies the instrumentation paths to use.
+     * Jar and zip archives are instrumented into <code>lib</code> under the output directory.
      *
      * @parameter
      */
@@ -60,6 +67,78 @@ public class InstrumentMojo extends UndercoverMojo {
      */
     protected String[] excludes;
     
+    /**
+     * Annotations, e.g. <code>lombok.Generated</code> or <code>**&#47;Generated</code>, whose classes and methods are excluded.
+     * 
+     * @parameter
+     */
+    protected String[] excludeAnnotations;
+    
+    /**
+     * Groups of access flags, e.g. <code>private static synthetic</code>. Methods which have all flags of any group are excluded.
+     * 
+     * @parameter
+     */
+    protected String[] excludeAccess;
+    
+    /**
+     * Method names with optional descriptors, e.g. <code>toString</code> or <code>hashCode()I</code>, which are excluded.
+     * 
+     * @parameter
+     */
+    protected String[] excludeMethods;
+    
+    /**
+     * Instruments class files using as many threads as available processors.
+     * 
+     * @parameter expression="${undercover.parallel}" default-value="false"
+     */
+    protected boolean parallel;
+    
+    /**
+     * Instruments only changed class files since the previous run.
+     * 
+     * @parameter expression="${undercover.incremental}" default-value="false"
+     */
+    protected boolean incremental;
+    
+    /**
+     * What probes record: <code>hit</code>, <code>count</code>, <code>saturate</code> or <code>exact</code>.
+     * 
+     * @parameter expression="${undercover.probeMode}" default-value="count"
+     */
+    protected String probeMode;
+    
+    /**
+     * Keeps counters of a class in a single array, for <code>count</code> and <code>saturate</code> probe modes.
+     * 
+     * @parameter expression="${undercover.flatCounters}" default-value="false"
+     */
+    protected boolean flatCounters;
+    
+    /**
+     * Loads the counters of a method into a local variable at the method entry, instead of at every probe.
+     * 
+     * @parameter expression="${undercover.cacheCounters}" default-value="false"
+     */
+    protected boolean cacheCounters;
+    
+    /**
+     * Installs a single entry probe, which records a hit instead of a count, into trivial methods such as accessors.
+     * 
+     * @parameter expression="${undercover.skipTrivialMethods}" default-value="false"
+     */
+    protected boolean skipTrivialMethods;
+    
+    /**
+     * Merges coverage data of each test JVM into the coverage data file under a file lock,
+     * instead of overwriting it, so that forked tests can save to the same file.
+     * The coverage data file is deleted when instrumenting.
+     * 
+     * @parameter expression="${undercover.appendCoverageData}" default-value="false"
+     */
+    protected boolean appendCoverageData;
+    
     /**
      * Artifact factory.
      *
@@ -95,6 +174,21 @@ public class InstrumentMojo extends UndercoverMojo {
 		if (excludes == null) {
 			excludes = new String[0];
 		}
+		
+		try {
+			getExclusions();
+		} catch (IllegalArgumentException e) {
+			throw new MojoFailureException(e.getMessage());
+		}
+		
+		if (probeMode == null) {
+			probeMode = ProbeMode.COUNT.toString();
+		}
+		try {
+			ProbeMode.parse(probeMode);
+		} catch (IllegalArgumentException e) {
+			throw new MojoFailureException(e.getMessage());
+		}
 	}
 
     protected void doExecute() throws MojoExecutionException {
@@ -103,14 +197,26 @@ public class InstrumentMojo extends UndercoverMojo {
 	    	OfflineInstrument instrument = new OfflineInstrument();
 	    	instrument.setLogger(new MavenLogger(getLog()));
 	    	instrument.setInstrumentPaths(Arrays.asList(instrumentationPaths));
+	    	instrument.setClassPath(getClassPath());
 	    	instrument.setOutputDirectory(outputDirectory);
 	    	instrument.setMetaDataFile(metaDataFile);
     		instrument.setFilter(new GlobFilter(includes, excludes));
+    		for (Exclusion each : getExclusions()) {
+    			instrument.addExclusion(each);
+    		}
+    		instrument.setThreads(getThreads());
+    		instrument.setIncremental(incremental);
+    		instrument.setProbeMode(ProbeMode.parse(probeMode));
+    		instrument.setFlatCounters(flatCounters);
+    		instrument.setCacheCounters(cacheCounters);
+    		instrument.setSkipTrivialMethods(skipTrivialMethods);
 	    	instrument.fullcopy();
+	    	deleteAppendedCoverageData();
 
 			UndercoverSettings settings = new UndercoverSettings();
 			settings.setCoverageSaveOnExit(true);
 			settings.setCoverageFile(coverageDataFile);
+			settings.setCoverageAppend(appendCoverageData);
 			settings.save(new File(new File(outputDirectory, "classes"), "undercover.properties"));
     	} catch (Exception e) {
     		throw new MojoExecutionException("Failed to instrument", e);
@@ -119,32 +225,95 @@ public class InstrumentMojo extends UndercoverMojo {
     	addUndercoverDependenciesToTestClasspath();
 	}
 
+    /**
+     * Coverage data is merged into the existing file, which otherwise keeps coverage of previous builds.
+     */
+    protected void deleteAppendedCoverageData() {
+    	if (appendCoverageData && coverageDataFile.exists()) {
+    		getLog().info("Deleting previous coverage data " + coverageDataFile);
+    		coverageDataFile.delete();
+    	}
+    }
+
+    /**
+     * Test class path of the project, to resolve super classes when stack map frames are computed.
+     */
+    protected List<File> getClassPath() throws DependencyResolutionRequiredException {
+    	List<File> result = new ArrayList<File>();
+    	for (Object each : project.getTestClasspathElements()) {
+    		result.add(new File((String) each));
+    	}
+    	return result;
+    }
+
+    /**
+     * @throws IllegalArgumentException if an access flag is unknown.
+     */
+    protected List<Exclusion> getExclusions() {
+    	List<Exclusion> result = new ArrayList<Exclusion>();
+    	if (excludeAnnotations != null) {
+    		result.add(new AnnotationExclusion(excludeAnnotations));
+    	}
+    	if (excludeAccess != null) {
+    		for (String each : excludeAccess) {
+    			result.add(AccessExclusion.parse(each));
+    		}
+    	}
+    	if (excludeMethods != null) {
+    		result.add(new MethodExclusion(excludeMethods));
+    	}
+    	return result;
+    }
+
+    protected int getThreads() {
+    	return parallel ? Runtime.getRuntime().availableProcessors() : 1;
+    }
+
     /**
      * Add Undercover dependency to project test classpath. When tests are executed, Undercover runtime dependency is required.
      *
      * @throws MojoExecutionException if Undercover dependency could not be added
      */
     private void addUndercoverDependenciesToTestClasspath() throws MojoExecutionException {
-        // look for Undercover dependency in this plugin classpath
-		final Map<String, Artifact> pluginArtifactMap = ArtifactUtils.artifactMapByVersionlessId(pluginClasspath);
-		Artifact artifact = pluginArtifactMap.get("undercover:undercover");
-
-        if (artifact == null) {
-			throw new MojoExecutionException("Failed to find 'undercover' artifact in plugin dependencies");
-		}
+    	addPluginDependenciesToTestClasspath("undercover:undercover");
+    }
 
+    /**
+     * Add dependencies of this plugin to project test classpath.
+     *
+     * @param versionlessIds <code>groupId:artifactId</code> of the dependencies
+     * @throws MojoExecutionException if any dependency could not be added
+     */
+    protected void addPluginDependenciesToTestClasspath(String... versionlessIds) throws MojoExecutionException {
 		// set the dependency scope to test
-		artifact = artifactScopeToTest(artifact);
+		final Set<Artifact> deps = new HashSet<Artifact>();
+		for (String each : versionlessIds) {
+			deps.add(artifactScopeToTest(getPluginArtifact(each)));
+		}
 
 		// add to project dependencies
-		final Set<Artifact> deps = new HashSet<Artifact>();
 		if (project.getDependencyArtifacts() != null) {
 			deps.addAll(project.getDependencyArtifacts());
 		}
-		deps.add(artifact);
 		project.setDependencyArtifacts(deps);
     }
 
+    /**
+     * Look for a dependency in this plugin classpath.
+     *
+     * @param versionlessId <code>groupId:artifactId</code> of the dependency
+     * @throws MojoExecutionException if the dependency could not be found
+     */
+    protected Artifact getPluginArtifact(String versionlessId) throws MojoExecutionException {
+		final Map<String, Artifact> pluginArtifactMap = ArtifactUtils.artifactMapByVersionlessId(pluginClasspath);
+		Artifact artifact = pluginArtifactMap.get(versionlessId);
+
+        if (artifact == null) {
+			throw new MojoExecutionException("Failed to find '" + versionlessId + "' artifact in plugin dependencies");
+		}
+        return artifact;
+    }
+
     private Artifact artifactScopeToTest(Artifact artifact) {
         return factory.createArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), Artifact.SCOPE_TEST, artifact.getType());
     }
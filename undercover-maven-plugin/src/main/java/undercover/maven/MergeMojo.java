@@ -0,0 +1,85 @@
+package undercover.maven;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.Arrays;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import undercover.data.CoverageMerger;
+import undercover.data.MetaData;
+
+/**
+ * Merges coverage data files, e.g. written by forked test runs.
+ *
+ * @goal merge
+ */
+public class MergeMojo extends UndercoverMojo {
+    /**
+     * Location of class coverage metadata. Classes are checked against it if it exists.
+     *
+     * @parameter expression="${undercover.metaDataFile}"
+     */
+    protected File metaDataFile;
+
+    /**
+     * Location to store merged class coverage data.
+     *
+     * @parameter expression="${undercover.coverageDataFile}"
+     */
+    protected File coverageDataFile;
+
+    /**
+     * Coverage data files to merge.
+     * Defaults to <code>*.cd</code> files in the output directory, including the merged coverage data file if it exists,
+     * so that coverage saved to it, e.g. by a test run which is not forked, is kept.
+     * Since the merged file is an input as well, merging again counts the other files twice.
+     *
+     * @parameter
+     */
+    protected File[] coverageDataFiles;
+
+    protected void checkParameters() throws MojoExecutionException, MojoFailureException {
+		super.checkParameters();
+
+		if (metaDataFile == null) {
+			metaDataFile = new File(outputDirectory, "undercover.md");
+		}
+		
+		if (coverageDataFile == null) {
+			 coverageDataFile = new File(outputDirectory, "undercover.cd");
+		}
+		
+		if (coverageDataFiles == null) {
+			coverageDataFiles = outputDirectory.listFiles(new FileFilter() {
+				public boolean accept(File file) {
+					return file.isFile() && file.getName().endsWith(".cd");
+				}
+			});
+			if (coverageDataFiles == null) {
+				coverageDataFiles = new File[0];
+			}
+			Arrays.sort(coverageDataFiles);
+		}
+	}
+
+    protected void doExecute() throws MojoExecutionException {
+    	if (coverageDataFiles.length == 0) {
+    		getLog().info("No coverage data to merge");
+    		return;
+    	}
+    	getLog().info("Merging...");
+    	try {
+    		CoverageMerger merger = new CoverageMerger();
+    		merger.setLogger(new MavenLogger(getLog()));
+    		if (metaDataFile.exists()) {
+    			merger.setMetaData(MetaData.load(metaDataFile));
+    		}
+    		merger.merge(Arrays.asList(coverageDataFiles));
+    		merger.getCoverageData().save(coverageDataFile);
+    	} catch (Exception e) {
+    		throw new MojoExecutionException("Failed to merge coverage data", e);
+    	}
+    }
+}
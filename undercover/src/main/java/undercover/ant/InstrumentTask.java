@@ -9,19 +9,40 @@ import org.apache.tools.ant.types.Path;
 import org.apache.tools.ant.types.PatternSet;
 
 import undercover.instrument.OfflineInstrument;
+import undercover.instrument.ProbeMode;
+import undercover.instrument.filter.AccessExclusion;
+import undercover.instrument.filter.AnnotationExclusion;
+import undercover.instrument.filter.Exclusion;
 import undercover.instrument.filter.GlobFilter;
+import undercover.instrument.filter.MethodExclusion;
 
 public class InstrumentTask extends UndercoverTask {
 	Path instrumentPath;
+	Path classPath;
 	File destDir;
 	PatternSet filterPatternSet;
+	boolean metaDataOnly;
+	boolean parallel;
+	boolean incremental;
+	String probeMode;
+	boolean flatCounters;
+	boolean cacheCounters;
+	boolean skipTrivialMethods;
+	String excludeAnnotations;
+	String excludeAccess;
+	String excludeMethods;
+	String agentOptionsProperty;
 	
 	OfflineInstrument instrument;
 	List<File> instrumentPaths;
+	String[] includes;
+	String[] excludes;
 	GlobFilter filter;
+	List<Exclusion> exclusions;
+	ProbeMode probe;
 	
 	/**
-	 * instrumentpath element.
+	 * instrumentpath element. Jar and zip archives are instrumented into <code>lib</code> under the destination directory.
 	 */
 	public Path createInstrumentPath() {
 		if (instrumentPath == null) {
@@ -30,10 +51,98 @@ public class InstrumentTask extends UndercoverTask {
 		return instrumentPath.createPath();
 	}
 
+	/**
+	 * classpath element, of classes which instrumented classes depend on, to compute stack map frames.
+	 */
+	public Path createClasspath() {
+		if (classPath == null) {
+			classPath = new Path(getProject());
+		}
+		return classPath.createPath();
+	}
+
 	public void setDestDir(File destDir) {
 		this.destDir = destDir;
 	}
 	
+	/**
+	 * Writes meta data only, for classes instrumented by the agent when they are loaded.
+	 */
+	public void setMetaDataOnly(boolean metaDataOnly) {
+		this.metaDataOnly = metaDataOnly;
+	}
+	
+	/**
+	 * Instruments class files using as many threads as available processors.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * Instruments only changed class files since the previous run.
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+	
+	/**
+	 * One of <code>hit</code>, <code>count</code> (default), <code>saturate</code> and <code>exact</code>.
+	 */
+	public void setProbeMode(String probeMode) {
+		this.probeMode = probeMode;
+	}
+	
+	/**
+	 * Keeps counters of a class in a single array, for <code>count</code> and <code>saturate</code> probe modes.
+	 */
+	public void setFlatCounters(boolean flatCounters) {
+		this.flatCounters = flatCounters;
+	}
+	
+	/**
+	 * Loads the counters of a method into a local variable at the method entry, instead of at every probe.
+	 */
+	public void setCacheCounters(boolean cacheCounters) {
+		this.cacheCounters = cacheCounters;
+	}
+	
+	/**
+	 * Installs a single entry probe, which records a hit instead of a count, into trivial methods such as accessors.
+	 */
+	public void setSkipTrivialMethods(boolean skipTrivialMethods) {
+		this.skipTrivialMethods = skipTrivialMethods;
+	}
+	
+	/**
+	 * Comma separated annotations, e.g. <code>lombok.Generated, **&#47;Generated</code>, whose classes and methods are excluded.
+	 */
+	public void setExcludeAnnotations(String excludeAnnotations) {
+		this.excludeAnnotations = excludeAnnotations;
+	}
+	
+	/**
+	 * Comma separated groups of access flags, e.g. <code>synthetic, private static</code>. Methods which have all flags of any group are excluded.
+	 */
+	public void setExcludeAccess(String excludeAccess) {
+		this.excludeAccess = excludeAccess;
+	}
+	
+	/**
+	 * Comma separated method names with optional descriptors, e.g. <code>toString, hashCode()I</code>, which are excluded.
+	 */
+	public void setExcludeMethods(String excludeMethods) {
+		this.excludeMethods = excludeMethods;
+	}
+	
+	/**
+	 * Property to set to the options of the agent, e.g. <code>-javaagent:undercover.jar=${property}</code>,
+	 * which instruments classes with the same filter, probe and exclusions as the meta data.
+	 */
+	public void setAgentOptionsProperty(String agentOptionsProperty) {
+		this.agentOptionsProperty = agentOptionsProperty;
+	}
+	
 	public PatternSet createFilter() {
 		if (filterPatternSet == null) {
 			filterPatternSet = new PatternSet();
@@ -47,6 +156,8 @@ public class InstrumentTask extends UndercoverTask {
 		checkMetaDataFile();
 		checkCoverageDataFile();
 		checkFilter();
+		checkExclusions();
+		checkProbeMode();
 		
 		if (instrument == null) {
 			instrument = new OfflineInstrument();
@@ -64,15 +175,25 @@ public class InstrumentTask extends UndercoverTask {
 		}
 	}
 
+	List<File> getClassPath() {
+		List<File> result = new ArrayList<File>();
+		if (classPath != null) {
+			for (String each : (String[]) classPath.list()) {
+				result.add(new File(each));
+			}
+		}
+		return result;
+	}
+
 	void checkDestDir() {
-		if (destDir == null) {
+		if (destDir == null && !metaDataOnly) {
 			throw new BuildException("Destination directory is not specified.");
 		}
 	}
 	
 	void checkFilter() {
-		String[] includes = null;
-		String[] excludes = null;
+		includes = null;
+		excludes = null;
 		if (filterPatternSet != null) {
 			includes = filterPatternSet.getIncludePatterns(getProject());
 			excludes = filterPatternSet.getExcludePatterns(getProject());
@@ -86,16 +207,92 @@ public class InstrumentTask extends UndercoverTask {
 		filter = new GlobFilter(includes, excludes);
 	}
 	
+	void checkExclusions() {
+		exclusions = new ArrayList<Exclusion>();
+		if (excludeAnnotations != null) {
+			exclusions.add(new AnnotationExclusion(split(excludeAnnotations)));
+		}
+		if (excludeAccess != null) {
+			try {
+				for (String each : split(excludeAccess)) {
+					exclusions.add(AccessExclusion.parse(each));
+				}
+			} catch (IllegalArgumentException e) {
+				throw new BuildException(e.getMessage());
+			}
+		}
+		if (excludeMethods != null) {
+			exclusions.add(new MethodExclusion(split(excludeMethods)));
+		}
+	}
+	
+	String agentOptions() {
+		StringBuilder options = new StringBuilder();
+		appendOptions(options, "include", includes);
+		appendOptions(options, "exclude", excludes);
+		options.append(options.length() == 0 ? "" : ",").append("probe=").append(probe);
+		options.append(",flat=").append(flatCounters);
+		options.append(",cache=").append(cacheCounters);
+		options.append(",skipTrivial=").append(skipTrivialMethods);
+		if (excludeAnnotations != null) {
+			appendOptions(options, "excludeAnnotation", split(excludeAnnotations));
+		}
+		if (excludeAccess != null) {
+			appendOptions(options, "excludeAccess", split(excludeAccess));
+		}
+		if (excludeMethods != null) {
+			appendOptions(options, "excludeMethod", split(excludeMethods));
+		}
+		return options.toString();
+	}
+	
+	static void appendOptions(StringBuilder options, String key, String[] values) {
+		for (String each : values) {
+			options.append(options.length() == 0 ? "" : ",").append(key).append('=').append(each);
+		}
+	}
+	
+	static String[] split(String list) {
+		return list.trim().split("\\s*,\\s*");
+	}
+	
+	void checkProbeMode() {
+		try {
+			probe = probeMode == null ? ProbeMode.COUNT : ProbeMode.parse(probeMode);
+		} catch (IllegalArgumentException e) {
+			throw new BuildException(e.getMessage());
+		}
+	}
+	
 	public void execute() throws BuildException {
         log("Instrumenting...");
         checkParameters();
     	try {
     		instrument.setLogger(new AntLogger(this));
     		instrument.setInstrumentPaths(instrumentPaths);
+    		instrument.setClassPath(getClassPath());
     		instrument.setOutputDirectory(destDir);
     		instrument.setMetaDataFile(metaDataFile);
     		instrument.setFilter(filter);
-			instrument.fullcopy();
+    		for (Exclusion each : exclusions) {
+    			instrument.addExclusion(each);
+    		}
+    		instrument.setIncremental(incremental);
+    		instrument.setProbeMode(probe);
+    		instrument.setFlatCounters(flatCounters);
+    		instrument.setCacheCounters(cacheCounters);
+    		instrument.setSkipTrivialMethods(skipTrivialMethods);
+    		if (parallel) {
+    			instrument.setThreads(Runtime.getRuntime().availableProcessors());
+    		}
+    		if (metaDataOnly) {
+    			instrument.analyze();
+    			if (agentOptionsProperty != null) {
+    				getProject().setNewProperty(agentOptionsProperty, agentOptions());
+    			}
+    		} else {
+    			instrument.fullcopy();
+    		}
 		} catch (Exception e) {
 			throw new BuildException(e);
 		}
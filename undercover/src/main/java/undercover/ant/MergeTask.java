@@ -0,0 +1,64 @@
+package undercover.ant;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.types.FileSet;
+
+import undercover.data.CoverageMerger;
+import undercover.data.MetaData;
+
+/**
+ * Merges coverage data files into the coverage data file.
+ * Classes are checked against the meta data if the meta data file exists.
+ */
+public class MergeTask extends UndercoverTask {
+	List<FileSet> fileSets = new ArrayList<FileSet>();
+	
+	List<File> files;
+	
+	/**
+	 * fileset element of coverage data files to merge.
+	 */
+	public void addFileSet(FileSet fileSet) {
+		fileSets.add(fileSet);
+	}
+	
+	void checkParameters() {
+		checkMetaDataFile();
+		checkCoverageDataFile();
+		checkFiles();
+	}
+
+	void checkFiles() {
+		if (fileSets.isEmpty()) {
+			throw new BuildException("fileset is required");
+		}
+		files = new ArrayList<File>();
+		for (FileSet each : fileSets) {
+			DirectoryScanner scanner = each.getDirectoryScanner(getProject());
+			for (String path : scanner.getIncludedFiles()) {
+				files.add(new File(scanner.getBasedir(), path));
+			}
+		}
+	}
+
+	public void execute() throws BuildException {
+		log("Merging...");
+		checkParameters();
+		try {
+			CoverageMerger merger = new CoverageMerger();
+			merger.setLogger(new AntLogger(this));
+			if (metaDataFile.exists()) {
+				merger.setMetaData(MetaData.load(metaDataFile));
+			}
+			merger.merge(files);
+			merger.getCoverageData().save(coverageDataFile);
+		} catch (Exception e) {
+			throw new BuildException("Failed to merge coverage data", e);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package undercover.ant;
+
+import java.io.File;
+import java.util.SortedSet;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+import undercover.data.ChangeSet;
+import undercover.data.MetaData;
+import undercover.data.TestImpactIndex;
+import undercover.runtime.TestCoverageReader;
+
+/**
+ * Prints tests which executed changed lines, from coverage of each test recorded by {@link undercover.junit.CoverageListener}.
+ * All recorded tests are selected if any changed file, such as a test or a resource, is not a source of an executed class.
+ */
+public class TestImpactTask extends UndercoverTask {
+	File testCoverageDir;
+	File changesFile;
+	String property;
+
+	/**
+	 * Directory of test coverage files, which defaults to <code>undercover-tests</code>.
+	 */
+	public void setTestCoverageDir(File testCoverageDir) {
+		this.testCoverageDir = testCoverageDir;
+	}
+
+	/**
+	 * Unified diff, or list of changed files and lines such as <code>src/p/C.java:3,10-12</code>.
+	 */
+	public void setChangesFile(File changesFile) {
+		this.changesFile = changesFile;
+	}
+
+	/**
+	 * Property to set to the comma separated tests.
+	 */
+	public void setProperty(String property) {
+		this.property = property;
+	}
+
+	void checkParameters() {
+		checkMetaDataFile();
+		checkTestCoverageDir();
+		checkChangesFile();
+	}
+
+	void checkTestCoverageDir() {
+		if (testCoverageDir == null) {
+			testCoverageDir = new File("undercover-tests");
+		}
+	}
+
+	void checkChangesFile() {
+		if (changesFile == null) {
+			throw new BuildException("changesFile is required");
+		}
+	}
+
+	public void execute() throws BuildException {
+		checkParameters();
+		try {
+			TestImpactIndex index = TestImpactIndex.build(MetaData.load(metaDataFile), TestCoverageReader.load(testCoverageDir));
+			ChangeSet changes = ChangeSet.load(changesFile);
+			for (String each : index.getUnknownPaths(changes)) {
+				log("No test executed " + each + ". Selecting all tests.", Project.MSG_WARN);
+			}
+			SortedSet<String> tests = index.selectTests(changes);
+			log(tests.size() + " tests are affected");
+			StringBuilder builder = new StringBuilder();
+			for (String each : tests) {
+				log(each);
+				builder.append(builder.length() == 0 ? "" : ",").append(each);
+			}
+			if (property != null) {
+				getProject().setNewProperty(property, builder.toString());
+			}
+		} catch (Exception e) {
+			throw new BuildException("Failed to select tests", e);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package undercover.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import undercover.support.IOUtils;
+import undercover.support.IntSet;
+
+/**
+ * Changed lines of source files, read from a unified diff or from a list of changed files and lines.
+ * A list has a file on each line, optionally followed by lines, e.g. <code>src/p/C.java:3,10-12</code>.
+ * A file without lines is changed as a whole.
+ * <p>
+ * Lines are numbered as in the old revision, whose coverage of tests is indexed, so that lines shifted by earlier hunks still match.
+ */
+public class ChangeSet {
+	private final Map<String, IntSet> files = new LinkedHashMap<String, IntSet>();
+
+	/**
+	 * Changes the file as a whole.
+	 */
+	public void add(String path) {
+		files.put(path, null);
+	}
+
+	public void add(String path, int line) {
+		if (files.containsKey(path) && files.get(path) == null) {
+			return;
+		}
+		IntSet lines = files.get(path);
+		if (lines == null) {
+			lines = new IntSet();
+			files.put(path, lines);
+		}
+		lines.add(line);
+	}
+
+	public Set<String> getPaths() {
+		return files.keySet();
+	}
+
+	/**
+	 * @return <code>null</code> if the file is changed as a whole.
+	 */
+	public IntSet getLines(String path) {
+		return files.get(path);
+	}
+
+	public static ChangeSet load(File file) throws IOException {
+		Reader reader = null;
+		try {
+			reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+			return parse(reader);
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+
+	/**
+	 * Reads a unified diff if any line starts with <code>+++</code>, otherwise a list of changed files.
+	 */
+	public static ChangeSet parse(Reader reader) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader input = new BufferedReader(reader);
+		boolean diff = false;
+		for (String line = input.readLine(); line != null; line = input.readLine()) {
+			lines.add(line);
+			diff |= line.startsWith("+++ ");
+		}
+		ChangeSet result = new ChangeSet();
+		if (diff) {
+			result.parseDiff(lines);
+		} else {
+			result.parseList(lines);
+		}
+		return result;
+	}
+
+	/**
+	 * Removed lines are changed lines of the old file.
+	 * An added line changes the old lines around it, since it has no line in the old file.
+	 * A removed or added file is changed as a whole, by its old path if it is renamed.
+	 */
+	void parseDiff(List<String> lines) throws IOException {
+		String oldPath = null;
+		String path = null;
+		int line = 0;
+		for (String each : lines) {
+			if (each.startsWith("--- ")) {
+				oldPath = parsePath(each);
+				path = null;
+			} else if (each.startsWith("+++ ")) {
+				String newPath = parsePath(each);
+				if (oldPath == null || newPath == null) {
+					add(oldPath == null ? newPath : oldPath);
+				} else {
+					path = oldPath;
+				}
+			} else if (each.startsWith("@@ ")) {
+				line = parseHunk(each);
+			} else if (path == null || each.startsWith("\\")) {
+				continue;
+			} else if (each.startsWith("-")) {
+				add(path, line++);
+			} else if (each.startsWith("+")) {
+				if (line > 1) {
+					add(path, line - 1);
+				}
+				add(path, line);
+			} else if (each.startsWith(" ") || each.length() == 0) {
+				line++;
+			}
+		}
+	}
+
+	/**
+	 * @return <code>null</code> for <code>/dev/null</code>.
+	 */
+	static String parsePath(String line) {
+		String path = line.substring(4);
+		int tab = path.indexOf('\t');
+		if (tab != -1) {
+			path = path.substring(0, tab);
+		}
+		path = path.trim();
+		if (path.equals("/dev/null")) {
+			return null;
+		}
+		if (path.startsWith("a/") || path.startsWith("b/")) {
+			path = path.substring(2);
+		}
+		return path;
+	}
+
+	/**
+	 * @return the first line of the old file in the hunk <code>@@ -l,s +l,s @@</code>.
+	 * A hunk without old lines, e.g. <code>-5,0</code>, adds lines after <code>l</code>, so the line after it is returned.
+	 */
+	static int parseHunk(String line) throws IOException {
+		int start = line.indexOf(" -");
+		int end = start == -1 ? -1 : line.indexOf(' ', start + 2);
+		if (end == -1 || line.indexOf(" +", end) == -1) {
+			throw new IOException("Invalid hunk " + line);
+		}
+		String range = line.substring(start + 2, end);
+		int comma = range.indexOf(',');
+		try {
+			int first = Integer.parseInt(comma == -1 ? range : range.substring(0, comma));
+			int size = comma == -1 ? 1 : Integer.parseInt(range.substring(comma + 1));
+			return size == 0 ? first + 1 : first;
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid hunk " + line);
+		}
+	}
+
+	void parseList(List<String> lines) throws IOException {
+		for (String each : lines) {
+			String line = each.trim();
+			if (line.length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+			int colon = line.lastIndexOf(':');
+			if (colon == -1 || !Character.isDigit(line.charAt(line.length() - 1))) {
+				add(line);
+				continue;
+			}
+			String path = line.substring(0, colon);
+			try {
+				for (String range : line.substring(colon + 1).split(",")) {
+					int dash = range.indexOf('-');
+					int first = Integer.parseInt(range.substring(0, dash == -1 ? range.length() : dash).trim());
+					int last = dash == -1 ? first : Integer.parseInt(range.substring(dash + 1).trim());
+					for (int i = first; i <= last; i++) {
+						add(path, i);
+					}
+				}
+			} catch (NumberFormatException e) {
+				throw new IOException("Invalid lines " + line);
+			}
+		}
+	}
+}
@@ -2,7 +2,9 @@ package undercover.data;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import undercover.support.ObjectSupport;
 
@@ -13,6 +15,7 @@ public class ClassMeta extends ObjectSupport implements Serializable {
 	public final String source;
 	public final List<MethodMeta> methods;
 	public final Outer outer;
+	private transient volatile Map<String, MethodMeta> methodIndex;
 	
 	public ClassMeta(String name, String source) {
 		this(name, source, new ArrayList<MethodMeta>());
@@ -34,13 +37,23 @@ public class ClassMeta extends ObjectSupport implements Serializable {
 		return lastSeparator == -1 ? name : name.substring(0, lastSeparator);
 	}
 
+	/**
+	 * Methods are indexed by name and descriptor at the first lookup.
+	 * @return <code>null</code> if there is no such method.
+	 */
 	public MethodMeta getMethod(String name, String descriptor) {
-		for (MethodMeta each : methods) {
-			if (each.name.equals(name) && each.descriptor.equals(descriptor)) {
-				return each;
+		Map<String, MethodMeta> index = methodIndex;
+		if (index == null) {
+			index = new HashMap<String, MethodMeta>(methods.size() * 2);
+			for (MethodMeta each : methods) {
+				String key = each.name + each.descriptor;
+				if (!index.containsKey(key)) {
+					index.put(key, each);
+				}
 			}
+			methodIndex = index;
 		}
-		return null;
+		return index.get(name + descriptor);
 	}
 	
 	public void accept(MetaDataVisitor visitor) {
@@ -55,7 +68,7 @@ public class ClassMeta extends ObjectSupport implements Serializable {
 		return outer != null;
 	}
 	
-	public static class Outer implements Serializable {
+	public static class Outer extends ObjectSupport implements Serializable {
 		private static final long serialVersionUID = 1160336265135937380L;
 		
 		public final String className;
@@ -0,0 +1,87 @@
+package undercover.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import undercover.runtime.Coverage;
+import undercover.runtime.CoverageData;
+import undercover.support.JdkLogger;
+import undercover.support.Logger;
+
+/**
+ * Sums execution counts of coverage data files, e.g. written by forked test runs.
+ * Files are read one at a time, so only the merged result and a single input are held in memory.
+ * A file is rejected as a whole if any of its classes does not match the meta data,
+ * or the coverage of the same class merged from another file, which {@link CoverageData#merge(Coverage)} rejects.
+ */
+public class CoverageMerger {
+	private Logger logger = new JdkLogger();
+	private MetaData metaData;
+	private final CoverageData coverageData = new CoverageData();
+
+	public void setLogger(Logger logger) {
+		this.logger = logger;
+	}
+
+	/**
+	 * @param metaData if <code>null</code>, coverages are checked against each other only.
+	 */
+	public void setMetaData(MetaData metaData) {
+		this.metaData = metaData;
+	}
+
+	public void merge(File file) throws IOException {
+		logger.info("Merging " + file);
+		Collection<Coverage> coverages = CoverageData.load(file).getCoverages();
+		for (Coverage each : coverages) {
+			check(file, each);
+		}
+		try {
+			for (Coverage each : coverages) {
+				coverageData.merge(each);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage() + " in " + file);
+		}
+	}
+
+	public void merge(Collection<File> files) throws IOException {
+		for (File each : files) {
+			merge(each);
+		}
+	}
+
+	public CoverageData getCoverageData() {
+		return coverageData;
+	}
+
+	void check(File file, Coverage coverage) throws IOException {
+		if (metaData != null) {
+			ClassMeta classMeta = metaData.getClass(coverage.className);
+			if (classMeta == null) {
+				throw new IOException("Meta data does not have class " + coverage.className + " in " + file);
+			}
+			if (!matches(classMeta, coverage)) {
+				throw new IOException("Meta data does not match class " + coverage.className + " in " + file);
+			}
+		}
+		try {
+			coverageData.checkCompatible(coverage);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage() + " in " + file);
+		}
+	}
+
+	static boolean matches(ClassMeta classMeta, Coverage coverage) {
+		if (classMeta.methods.size() != coverage.getMethodCount()) {
+			return false;
+		}
+		for (int i = 0; i < coverage.getMethodCount(); i++) {
+			if (classMeta.methods.get(i).blocks.size() != coverage.getBlockCount(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
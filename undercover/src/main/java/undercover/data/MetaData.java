@@ -1,15 +1,18 @@
 package undercover.data;
 
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import undercover.support.IOUtils;
 import undercover.support.ObjectSupport;
@@ -17,49 +20,104 @@ import undercover.support.ObjectSupport;
 public class MetaData extends ObjectSupport implements Serializable {
 	private static final long serialVersionUID = -1378920643147735683L;
 
-	private final List<ClassMeta> classes;
+	private List<ClassMeta> classes;
+	private transient Map<String, ClassMeta> index;
 
 	public MetaData() {
-		this.classes = new ArrayList<ClassMeta>();
+		this(new ArrayList<ClassMeta>());
 	}
 	
-	public int addClass(ClassMeta classMeta) {
+	MetaData(List<ClassMeta> classes) {
+		this.classes = classes;
+	}
+	
+	/**
+	 * Meta data loaded from a file is read into memory before the first class is added.
+	 */
+	public synchronized int addClass(ClassMeta classMeta) {
+		if (classes instanceof MetaDataReader) {
+			classes = new ArrayList<ClassMeta>(classes);
+		}
 		classes.add(classMeta);
+		if (index != null && !index.containsKey(classMeta.name)) {
+			index.put(classMeta.name, classMeta);
+		}
 		return classes.size() - 1;
 	}
 
-	public ClassMeta getClass(String name) {
-		for (ClassMeta each : classes) {
-			if (each.name.equals(name)) {
-				return each;
+	/**
+	 * @return the first class of the name in {@link #getAllClasses()}, or <code>null</code> if there is no such class.
+	 */
+	public synchronized ClassMeta getClass(String name) {
+		if (classes instanceof MetaDataReader) {
+			return ((MetaDataReader) classes).getClass(name);
+		}
+		if (index == null) {
+			index = new HashMap<String, ClassMeta>(classes.size() * 2);
+			for (ClassMeta each : classes) {
+				if (!index.containsKey(each.name)) {
+					index.put(each.name, each);
+				}
 			}
 		}
-		return null;
+		return index.get(name);
 	}
 	
-	public Collection<ClassMeta> getAllClasses() {
+	public synchronized Collection<ClassMeta> getAllClasses() {
 		return classes;
 	}
 
 	public void accept(MetaDataVisitor visitor) {
 		visitor.visitEnter(this);
-		for (ClassMeta each : classes) {
+		for (ClassMeta each : getAllClasses()) {
 			each.accept(visitor);
 		}
 		visitor.visitLeave(this);
 	}
 	
+	/**
+	 * Writes to a temporary file which then replaces the file,
+	 * so that meta data already loaded from the file keeps its mapping.
+	 */
 	public void save(File file) throws IOException {
-		ObjectOutputStream output = null;
+		File temp = new File(file.getPath() + ".tmp");
+		FileOutputStream output = null;
 		try {
-			output = new ObjectOutputStream(new FileOutputStream(file));
-			output.writeObject(this);
+			output = new FileOutputStream(temp);
+			new MetaDataWriter(output.getChannel()).write(this);
 		} finally {
 			IOUtils.closeQuietly(output);
 		}
+		if (!temp.renameTo(file)) {
+			file.delete();
+			if (!temp.renameTo(file)) {
+				throw new IOException("Cannot write meta data file " + file);
+			}
+		}
 	}
 	
+	/**
+	 * Classes are read on demand from the memory mapped file.
+	 * Meta data in the Java serialization format of previous versions is read at once.
+	 */
 	public static MetaData load(File file) throws IOException {
+		if (isSerialized(file)) {
+			return loadSerialized(file);
+		}
+		return new MetaData(MetaDataReader.open(file));
+	}
+
+	static boolean isSerialized(File file) throws IOException {
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new FileInputStream(file));
+			return file.length() >= 2 && input.readShort() == ObjectStreamConstants.STREAM_MAGIC;
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+	}
+
+	static MetaData loadSerialized(File file) throws IOException {
 		ObjectInputStream output = null;
 		try {
 			output = new ObjectInputStream(new FileInputStream(file));
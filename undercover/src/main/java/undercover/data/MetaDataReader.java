@@ -0,0 +1,133 @@
+package undercover.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import undercover.support.IOUtils;
+import undercover.support.IntArrayList;
+
+/**
+ * Reads meta data written by {@link MetaDataWriter} from a memory mapped file.
+ * Only the index is read up front. A class is decoded whenever it is requested, and is not cached.
+ */
+public class MetaDataReader extends AbstractList<ClassMeta> implements RandomAccess {
+	private final ByteBuffer buffer;
+	private final int[] offsets;
+	private final Map<String, Integer> index;
+
+	public static MetaDataReader open(File file) throws IOException {
+		FileInputStream input = null;
+		try {
+			input = new FileInputStream(file);
+			FileChannel channel = input.getChannel();
+			return new MetaDataReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+	}
+
+	public MetaDataReader(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.limit() < MetaDataWriter.HEADER_SIZE || buffer.getInt(0) != MetaDataWriter.MAGIC) {
+			throw new IOException("Not a meta data file");
+		}
+		byte version = buffer.get(4);
+		if (version != MetaDataWriter.VERSION) {
+			throw new IOException("Unsupported meta data version " + version);
+		}
+		int classCount = buffer.getInt(5);
+		ByteBuffer input = buffer.duplicate();
+		input.position(toInt(buffer.getLong(9)));
+		offsets = new int[classCount];
+		index = new HashMap<String, Integer>(classCount * 2);
+		for (int i = 0; i < classCount; i++) {
+			String name = readString(input);
+			if (!index.containsKey(name)) {
+				index.put(name, i);
+			}
+			offsets[i] = toInt(input.getLong());
+		}
+	}
+
+	public ClassMeta get(int classIndex) {
+		ByteBuffer input = buffer.duplicate();
+		input.position(offsets[classIndex]);
+		return readClass(input);
+	}
+
+	public int size() {
+		return offsets.length;
+	}
+
+	/**
+	 * @return the first class of the name, or <code>null</code> if there is no such class.
+	 */
+	public ClassMeta getClass(String name) {
+		Integer classIndex = index.get(name);
+		return classIndex == null ? null : get(classIndex);
+	}
+
+	static ClassMeta readClass(ByteBuffer input) {
+		String name = readString(input);
+		String source = readString(input);
+		String outerClassName = readString(input);
+		String outerMethodName = readString(input);
+		int methodCount = input.getInt();
+		List<MethodMeta> methods = new ArrayList<MethodMeta>(methodCount);
+		int blockOffset = 0;
+		for (int i = 0; i < methodCount; i++) {
+			MethodMeta methodMeta = readMethod(input, blockOffset);
+			methods.add(methodMeta);
+			blockOffset += methodMeta.blocks.size();
+		}
+		ClassMeta.Outer outer = outerClassName == null ? null : new ClassMeta.Outer(outerClassName, outerMethodName);
+		return new ClassMeta(name, source, methods, outer);
+	}
+
+	static MethodMeta readMethod(ByteBuffer input, int blockOffset) {
+		String name = readString(input);
+		String descriptor = readString(input);
+		int complexity = input.getInt();
+		boolean trivial = input.get() != 0;
+		int blockCount = input.getInt();
+		List<BlockMeta> blocks = new ArrayList<BlockMeta>(blockCount);
+		for (int i = 0; i < blockCount; i++) {
+			int[] lines = new int[input.getInt()];
+			input.asIntBuffer().get(lines);
+			input.position(input.position() + lines.length * 4);
+			blocks.add(new BlockMeta(new IntArrayList(lines)));
+		}
+		return new MethodMeta(name, descriptor, complexity, blocks, blockOffset, trivial);
+	}
+
+	static String readString(ByteBuffer input) {
+		int length = input.getInt();
+		if (length == -1) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		input.get(bytes);
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static int toInt(long offset) throws IOException {
+		if (offset > Integer.MAX_VALUE) {
+			throw new IOException("Meta data file is too large");
+		}
+		return (int) offset;
+	}
+}
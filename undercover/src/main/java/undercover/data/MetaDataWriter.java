@@ -0,0 +1,137 @@
+package undercover.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+
+/**
+ * Writes meta data in the indexed binary format.
+ * <pre>
+ * header   int magic "UCMD", byte version, int class count, long index offset
+ * classes  a record for each class
+ * index    for each class, name and long offset of its record
+ * </pre>
+ * A class record has the name, source, outer class and methods of the class.
+ * Block offsets of methods are not stored, but computed when they are read.
+ * A method record has the name, descriptor, complexity, a byte which is 1 for a trivial method, and blocks.
+ * Lines of a block are stored as an int count followed by packed ints.
+ * Strings are an int length, or -1 for <code>null</code>, followed by UTF-8 bytes.
+ */
+public class MetaDataWriter {
+	static final int MAGIC = 0x55434d44;
+	static final byte VERSION = 2;
+	static final int HEADER_SIZE = 4 + 1 + 4 + 8;
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private long flushed;
+
+	public MetaDataWriter(FileChannel channel) {
+		this.channel = channel;
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	}
+
+	public void write(MetaData metaData) throws IOException {
+		Collection<ClassMeta> classes = metaData.getAllClasses();
+		long[] offsets = new long[classes.size()];
+		buffer.position(HEADER_SIZE);
+		int i = 0;
+		for (ClassMeta each : classes) {
+			offsets[i++] = position();
+			writeClass(each);
+		}
+		long indexOffset = position();
+		i = 0;
+		for (ClassMeta each : classes) {
+			writeString(each.name);
+			writeLong(offsets[i++]);
+		}
+		flush();
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.put(VERSION);
+		header.putInt(classes.size());
+		header.putLong(indexOffset);
+		header.flip();
+		while (header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+	}
+
+	void writeClass(ClassMeta classMeta) throws IOException {
+		writeString(classMeta.name);
+		writeString(classMeta.source);
+		writeString(classMeta.isAnonymous() ? classMeta.outer.className : null);
+		writeString(classMeta.isAnonymous() ? classMeta.outer.methodName : null);
+		writeInt(classMeta.methods.size());
+		for (MethodMeta each : classMeta.methods) {
+			writeMethod(each);
+		}
+	}
+
+	void writeMethod(MethodMeta methodMeta) throws IOException {
+		writeString(methodMeta.name);
+		writeString(methodMeta.descriptor);
+		writeInt(methodMeta.complexity);
+		writeByte(methodMeta.trivial ? 1 : 0);
+		writeInt(methodMeta.blocks.size());
+		for (BlockMeta each : methodMeta.blocks) {
+			writeInt(each.lines.size());
+			for (int line : each.lines) {
+				writeInt(line);
+			}
+		}
+	}
+
+	void writeString(String value) throws IOException {
+		if (value == null) {
+			writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes("UTF-8");
+		writeInt(bytes.length);
+		int offset = 0;
+		while (offset < bytes.length) {
+			ensure(1);
+			int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	void writeByte(int value) throws IOException {
+		ensure(1);
+		buffer.put((byte) value);
+	}
+
+	void writeInt(int value) throws IOException {
+		ensure(4);
+		buffer.putInt(value);
+	}
+
+	void writeLong(long value) throws IOException {
+		ensure(8);
+		buffer.putLong(value);
+	}
+
+	long position() {
+		return flushed + buffer.position();
+	}
+
+	void ensure(int length) throws IOException {
+		if (buffer.remaining() < length) {
+			flush();
+		}
+	}
+
+	void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			flushed += channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
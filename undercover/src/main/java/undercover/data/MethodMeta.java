@@ -12,12 +12,31 @@ public class MethodMeta extends ObjectSupport implements Serializable {
 	public final String descriptor;
 	public final int complexity;
 	public final List<BlockMeta> blocks;
+	/**
+	 * Number of blocks of the preceding methods, i.e. index of the first block in flat counters of the class.
+	 */
+	public final int blockOffset;
+	/**
+	 * <code>true</code> if the method is a straight-line method with a single entry probe, such as an accessor.
+	 * Its counter is set to 1 when the method is executed, rather than incremented, in any probe mode.
+	 */
+	public final boolean trivial;
 	
 	public MethodMeta(String name, String descriptor, int complexity, List<BlockMeta> blocks) {
+		this(name, descriptor, complexity, blocks, 0);
+	}
+	
+	public MethodMeta(String name, String descriptor, int complexity, List<BlockMeta> blocks, int blockOffset) {
+		this(name, descriptor, complexity, blocks, blockOffset, false);
+	}
+	
+	public MethodMeta(String name, String descriptor, int complexity, List<BlockMeta> blocks, int blockOffset, boolean trivial) {
 		this.name = name;
 		this.descriptor = descriptor;
 		this.complexity = complexity;
 		this.blocks = blocks;
+		this.blockOffset = blockOffset;
+		this.trivial = trivial;
 	}
 
 	public void accept(MetaDataVisitor visitor) {
@@ -0,0 +1,223 @@
+package undercover.data;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import undercover.runtime.TestCoverage;
+import undercover.support.IntSet;
+
+/**
+ * Index from lines of source files to tests which executed them, built from coverage of each test and meta data.
+ * Sources are paths relative to source directories, e.g. <code>p/C.java</code>,
+ * and match changed files whose paths end with them.
+ * <p>
+ * Blocks of a test are numbered in method order, as {@link TestCoverage} flattens them.
+ * A test which is recorded more than once, e.g. by forked runs, covers the union of its records.
+ * Lines in blocks and line ranges of methods are kept for each source, to select tests for lines which are in no block.
+ */
+public class TestImpactIndex {
+	private final List<String> testNames = new ArrayList<String>();
+	private final Map<String, Integer> testIds = new HashMap<String, Integer>();
+	private final Map<String, Map<Integer, BitSet>> sources = new HashMap<String, Map<Integer, BitSet>>();
+	private final Map<String, IntSet> blockLines = new HashMap<String, IntSet>();
+	private final Map<String, List<int[]>> methodLines = new HashMap<String, List<int[]>>();
+	private final Set<String> indexedClasses = new HashSet<String>();
+
+	public static TestImpactIndex build(MetaData metaData, Collection<TestCoverage> testCoverages) {
+		TestImpactIndex result = new TestImpactIndex();
+		for (TestCoverage each : testCoverages) {
+			result.add(metaData, each);
+		}
+		return result;
+	}
+
+	/**
+	 * Classes which are not in the meta data are ignored.
+	 */
+	public void add(MetaData metaData, TestCoverage testCoverage) {
+		int testId = getTestId(testCoverage.testName);
+		for (Map.Entry<String, BitSet> each : testCoverage.classes.entrySet()) {
+			ClassMeta classMeta = metaData.getClass(each.getKey());
+			if (classMeta == null || classMeta.source == null) {
+				continue;
+			}
+			String source = classMeta.getPackageName() + "/" + classMeta.source;
+			Map<Integer, BitSet> lines = getLines(source);
+			if (indexedClasses.add(classMeta.name)) {
+				addBlockLines(source, classMeta);
+			}
+			BitSet blocks = each.getValue();
+			int index = 0;
+			for (MethodMeta method : classMeta.methods) {
+				for (BlockMeta block : method.blocks) {
+					if (blocks.get(index++)) {
+						for (Integer line : block.lines) {
+							BitSet tests = lines.get(line);
+							if (tests == null) {
+								tests = new BitSet();
+								lines.put(line, tests);
+							}
+							tests.set(testId);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Keeps all lines in blocks of the class, and the first and last lines of each method.
+	 */
+	void addBlockLines(String source, ClassMeta classMeta) {
+		IntSet lines = blockLines.get(source);
+		List<int[]> methods = methodLines.get(source);
+		if (lines == null) {
+			lines = new IntSet();
+			blockLines.put(source, lines);
+			methods = new ArrayList<int[]>();
+			methodLines.put(source, methods);
+		}
+		for (MethodMeta method : classMeta.methods) {
+			int first = Integer.MAX_VALUE;
+			int last = Integer.MIN_VALUE;
+			for (BlockMeta block : method.blocks) {
+				for (Integer line : block.lines) {
+					lines.add(line);
+					first = Math.min(first, line);
+					last = Math.max(last, line);
+				}
+			}
+			if (first <= last) {
+				methods.add(new int[] { first, last });
+			}
+		}
+	}
+
+	int getTestId(String testName) {
+		Integer result = testIds.get(testName);
+		if (result == null) {
+			result = testNames.size();
+			testNames.add(testName);
+			testIds.put(testName, result);
+		}
+		return result;
+	}
+
+	Map<Integer, BitSet> getLines(String source) {
+		Map<Integer, BitSet> result = sources.get(source);
+		if (result == null) {
+			result = new HashMap<Integer, BitSet>();
+			sources.put(source, result);
+		}
+		return result;
+	}
+
+	public SortedSet<String> getTests(String source, int line) {
+		Map<Integer, BitSet> lines = sources.get(source);
+		return toNames(lines == null ? null : lines.get(line));
+	}
+
+	/**
+	 * A changed line which is in no block, such as a declaration or a comment, selects tests of the innermost method around it,
+	 * or of the whole file if no method is around it, because the change may affect code which is not on the line.
+	 * 
+	 * A changed file which is not a source of any executed class, such as a test, a resource or a build file,
+	 * may affect any test, so all recorded tests are selected.
+	 * 
+	 * @return tests which executed any changed line, or any line of a file changed as a whole.
+	 * @see #getUnknownPaths(ChangeSet)
+	 */
+	public SortedSet<String> selectTests(ChangeSet changes) {
+		if (!getUnknownPaths(changes).isEmpty()) {
+			return getAllTests();
+		}
+		BitSet result = new BitSet();
+		for (String path : changes.getPaths()) {
+			for (String source : findSources(path)) {
+				Map<Integer, BitSet> lines = sources.get(source);
+				if (changes.getLines(path) == null) {
+					for (BitSet each : lines.values()) {
+						result.or(each);
+					}
+				} else {
+					for (int line : changes.getLines(path).toIntArray()) {
+						if (blockLines.get(source).contains(line)) {
+							BitSet tests = lines.get(line);
+							if (tests != null) {
+								result.or(tests);
+							}
+						} else {
+							int[] method = findMethod(source, line);
+							for (Map.Entry<Integer, BitSet> each : lines.entrySet()) {
+								if (method == null || (each.getKey() >= method[0] && each.getKey() <= method[1])) {
+									result.or(each.getValue());
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return toNames(result);
+	}
+
+	/**
+	 * @return the first and last lines of the shortest method around the line, or <code>null</code> if no method is around it.
+	 */
+	int[] findMethod(String source, int line) {
+		int[] result = null;
+		for (int[] each : methodLines.get(source)) {
+			if (each[0] <= line && line <= each[1] && (result == null || each[1] - each[0] < result[1] - result[0])) {
+				result = each;
+			}
+		}
+		return result;
+	}
+
+	public SortedSet<String> getAllTests() {
+		return new TreeSet<String>(testNames);
+	}
+
+	/**
+	 * Changes of these files, such as tests, resources, build files or classes which no test executed, are not attributed to any test,
+	 * and select all tests.
+	 */
+	public SortedSet<String> getUnknownPaths(ChangeSet changes) {
+		SortedSet<String> result = new TreeSet<String>();
+		for (String each : changes.getPaths()) {
+			if (findSources(each).isEmpty()) {
+				result.add(each);
+			}
+		}
+		return result;
+	}
+
+	List<String> findSources(String path) {
+		String normalized = path.replace('\\', '/');
+		List<String> result = new ArrayList<String>();
+		for (String each : sources.keySet()) {
+			if (normalized.equals(each) || normalized.endsWith("/" + each)) {
+				result.add(each);
+			}
+		}
+		return result;
+	}
+
+	SortedSet<String> toNames(BitSet tests) {
+		SortedSet<String> result = new TreeSet<String>();
+		if (tests != null) {
+			for (int i = tests.nextSetBit(0); i >= 0; i = tests.nextSetBit(i + 1)) {
+				result.add(testNames.get(i));
+			}
+		}
+		return result;
+	}
+}
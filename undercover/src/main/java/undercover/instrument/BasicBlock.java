@@ -1,8 +1,6 @@
 package undercover.instrument;
 
-import java.util.HashSet;
-import java.util.Set;
-
+import undercover.support.IntSet;
 import undercover.support.ObjectSupport;
 
 public class BasicBlock extends ObjectSupport {
@@ -11,13 +9,13 @@ public class BasicBlock extends ObjectSupport {
 	/** Exclusive */
 	public int end;
 	public int conditionals;
-	public Set<Integer> lines;
+	public IntSet lines;
 	
 	public BasicBlock(int startOffset) {
-		this(startOffset, 0, 0, new HashSet<Integer>());
+		this(startOffset, 0, 0, new IntSet());
 	}
 	
-	public BasicBlock(int startOffset, int endOffset, int conditionals, Set<Integer> lines) {
+	public BasicBlock(int startOffset, int endOffset, int conditionals, IntSet lines) {
 		this.start = startOffset;
 		this.end = endOffset;
 		this.conditionals = conditionals;
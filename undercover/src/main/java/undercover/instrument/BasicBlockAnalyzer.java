@@ -3,14 +3,10 @@ package undercover.instrument;
 import static org.objectweb.asm.Opcodes.*;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 
-import org.objectweb.asm.Label;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.FieldInsnNode;
 import org.objectweb.asm.tree.InsnList;
@@ -18,32 +14,93 @@ import org.objectweb.asm.tree.InsnNode;
 import org.objectweb.asm.tree.IntInsnNode;
 import org.objectweb.asm.tree.JumpInsnNode;
 import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
 import org.objectweb.asm.tree.LineNumberNode;
 import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.TableSwitchInsnNode;
 import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
 
 import undercover.data.BlockMeta;
 import undercover.data.MethodMeta;
+import undercover.support.IntArrayList;
 
 public class BasicBlockAnalyzer {
 	public List<BasicBlock> blocks = new ArrayList<BasicBlock>();
 	
-	private Set<Label> targetLabels = new HashSet<Label>();
+	private final ProbeMode probeMode;
+	private final boolean flatCounters;
+	private final boolean cacheCounters;
+	private final boolean skipTrivial;
+	private int countersLocal = -1;
+	private final List<AbstractInsnNode> blockEnds = new ArrayList<AbstractInsnNode>();
 	private BasicBlock basicBlock = null;
+	private AbstractInsnNode lastInstruction = null;
 	private int lineNumber = 0;
 	
+	public BasicBlockAnalyzer() {
+		this(ProbeMode.COUNT);
+	}
+	
+	public BasicBlockAnalyzer(ProbeMode probeMode) {
+		this(probeMode, false);
+	}
+	
+	/**
+	 * @param flatCounters if <code>true</code>, probes of {@link ProbeMode#COUNT} and {@link ProbeMode#SATURATE}
+	 * index a flat array of counters of all blocks of the class.
+	 */
+	public BasicBlockAnalyzer(ProbeMode probeMode, boolean flatCounters) {
+		this(probeMode, flatCounters, false);
+	}
+	
+	/**
+	 * @param cacheCounters if <code>true</code>, the array of counters is loaded into a new local variable at the method entry,
+	 * and probes of the method increment it, instead of loading the array again.
+	 * Counters of {@link ProbeMode#EXACT} are always cached, so that a method looks up its thread's counters once per call.
+	 */
+	public BasicBlockAnalyzer(ProbeMode probeMode, boolean flatCounters, boolean cacheCounters) {
+		this(probeMode, flatCounters, cacheCounters, false);
+	}
+	
+	/**
+	 * @param skipTrivial if <code>true</code>, a trivial method has a single probe at the entry, which records a hit rather than a count.
+	 * @see #isTrivial(MethodNode)
+	 */
+	public BasicBlockAnalyzer(ProbeMode probeMode, boolean flatCounters, boolean cacheCounters, boolean skipTrivial) {
+		this.probeMode = probeMode;
+		this.flatCounters = flatCounters && (probeMode == ProbeMode.COUNT || probeMode == ProbeMode.SATURATE);
+		this.cacheCounters = cacheCounters || probeMode == ProbeMode.EXACT;
+		this.skipTrivial = skipTrivial;
+	}
+	
+	/**
+	 * Jump targets and ends of try blocks are marked by instruction index first,
+	 * so that blocks are found in a single pass over instructions.
+	 */
 	public void analyze(MethodNode methodNode) {
-		scanJumpTargets(methodNode);
-		scanBlocks(methodNode);
+		InsnList instructions = methodNode.instructions;
+		boolean[] jumpTargets = new boolean[instructions.size()];
+		int[] catchEnds = new int[instructions.size()];
+		scanTryCatchBlocks(methodNode, jumpTargets, catchEnds);
+		scanJumpTargets(methodNode, jumpTargets);
+		scanBlocks(methodNode, jumpTargets, catchEnds);
 	}
 	
-	void scanBlocks(MethodNode methodNode) {
+	/**
+	 * @param catchEnds number of try blocks with a catch clause ending at each label.
+	 */
+	void scanBlocks(MethodNode methodNode, boolean[] jumpTargets, int[] catchEnds) {
 		int offset = 0;
+		int index = 0;
 		basicBlock = new BasicBlock(offset);
-		for (Iterator<AbstractInsnNode> i = methodNode.instructions.iterator(); i.hasNext(); ) {
+		for (Iterator<AbstractInsnNode> i = methodNode.instructions.iterator(); i.hasNext(); index++) {
 			AbstractInsnNode each = i.next();
+			if (each.getOpcode() != -1) {
+				lastInstruction = each;
+			}
 			if (each.getType() == AbstractInsnNode.INSN) {
 				if (isReturn(each.getOpcode()) || each.getOpcode() == ATHROW) {
 					addBasicBlock(offset + 1);
@@ -66,14 +123,8 @@ public class BasicBlockAnalyzer {
 				basicBlock.conditionals += node.labels.size();
 				addBasicBlock(offset + 1);
 			} else if (each.getType() == AbstractInsnNode.LABEL) {
-				LabelNode node = (LabelNode) each;
-				//TODO: make it faster
-				for (TryCatchBlockNode tryCatch : (Collection<TryCatchBlockNode>) methodNode.tryCatchBlocks) {
-					if (tryCatch.type != null && node.getLabel() == tryCatch.end.getLabel()) {
-						basicBlock.conditionals++;
-					}
-				}
-				if (targetLabels.contains(node.getLabel()) && basicBlock.start < offset) {
+				basicBlock.conditionals += catchEnds[index];
+				if (jumpTargets[index] && basicBlock.start < offset) {
 					addBasicBlock(offset);
 				}
 			} else if (each.getType() == AbstractInsnNode.LINE) {
@@ -88,67 +139,131 @@ public class BasicBlockAnalyzer {
 		}	
 	}
 	
+	/**
+	 * The block ends at the last instruction scanned, which is where its probe is installed.
+	 */
 	void addBasicBlock(int nextOffset) {
 		basicBlock.end = nextOffset;
 		if (basicBlock.lines.isEmpty() && lineNumber > 0) {
 			basicBlock.lines.add(lineNumber);
 		}
 		blocks.add(basicBlock);
+		blockEnds.add(lastInstruction);
 		basicBlock = new BasicBlock(nextOffset);
 	}
 	
-	void scanJumpTargets(MethodNode methodNode) {
+	void scanTryCatchBlocks(MethodNode methodNode, boolean[] jumpTargets, int[] catchEnds) {
+		InsnList instructions = methodNode.instructions;
 		for (TryCatchBlockNode each : (Collection<TryCatchBlockNode>) methodNode.tryCatchBlocks) {
-			targetLabels.add(each.handler.getLabel());
+			jumpTargets[instructions.indexOf(each.handler)] = true;
+			if (each.type != null) {
+				catchEnds[instructions.indexOf(each.end)]++;
+			}
 		}
-		for (Iterator<AbstractInsnNode> i = methodNode.instructions.iterator(); i.hasNext(); ) {
+	}
+	
+	void scanJumpTargets(MethodNode methodNode, boolean[] jumpTargets) {
+		InsnList instructions = methodNode.instructions;
+		for (Iterator<AbstractInsnNode> i = instructions.iterator(); i.hasNext(); ) {
 			AbstractInsnNode each = i.next();
 			if (each.getType() == AbstractInsnNode.JUMP_INSN) {
 				JumpInsnNode node = (JumpInsnNode) each;
-				targetLabels.add(node.label.getLabel());
+				jumpTargets[instructions.indexOf(node.label)] = true;
 			} else if (each.getType() == AbstractInsnNode.TABLESWITCH_INSN) {
 				TableSwitchInsnNode node = (TableSwitchInsnNode) each;
-				targetLabels.add(node.dflt.getLabel());
-				for (LabelNode labelNode : (List<LabelNode>) node.labels) {
-					targetLabels.add(labelNode.getLabel());
-				}
+				markJumpTargets(instructions, node.dflt, node.labels, jumpTargets);
 			} else if (each.getType() == AbstractInsnNode.LOOKUPSWITCH_INSN) {
 				LookupSwitchInsnNode node = (LookupSwitchInsnNode) each;
-				targetLabels.add(node.dflt.getLabel());
-				for (LabelNode labelNode : (List<LabelNode>) node.labels) {
-					targetLabels.add(labelNode.getLabel());
-				}
+				markJumpTargets(instructions, node.dflt, node.labels, jumpTargets);
 			}
 		}
 	}
 	
+	void markJumpTargets(InsnList instructions, LabelNode dflt, List<LabelNode> labels, boolean[] jumpTargets) {
+		jumpTargets[instructions.indexOf(dflt)] = true;
+		for (LabelNode each : labels) {
+			jumpTargets[instructions.indexOf(each)] = true;
+		}
+	}
+	
 	public MethodMeta instrument(MethodNode methodNode, String className, int methodIndex) {
-		List<BlockMeta> blockMetas = new ArrayList<BlockMeta>();
-		Iterator<BasicBlock> cursor = blocks.iterator();
-		if (cursor.hasNext()) {		
-			BasicBlock block = cursor.next();
-			int blockIndex = 0;
-			int offset = 0;
-			for (Iterator<AbstractInsnNode> i = methodNode.instructions.iterator(); i.hasNext(); ) {
-				AbstractInsnNode each = i.next();
-				if (each.getOpcode() == -1) {
-					continue;
-				}
-				boolean atEndOfBlock = block.end - 1 == offset;
-				if (atEndOfBlock) {
-					BlockMeta blockMeta = new BlockMeta(block.lines);
-					blockMetas.add(blockMeta);
-					installProbePoint(methodNode.instructions, each, blockMeta, className, methodIndex, blockIndex);
-					if (cursor.hasNext()) {
-						block = cursor.next();
-						blockIndex++;
-					}
-				}
-				offset++;
+		return instrument(methodNode, className, methodIndex, 0);
+	}
+	
+	/**
+	 * @param blockOffset number of blocks of the preceding methods, to index flat arrays of the class.
+	 */
+	public MethodMeta instrument(MethodNode methodNode, String className, int methodIndex, int blockOffset) {
+		List<BlockMeta> blockMetas = new ArrayList<BlockMeta>(blocks.size());
+		if (skipTrivial && isTrivial(methodNode)) {
+			blockMetas.add(new BlockMeta(new IntArrayList(blocks.get(0).lines.toIntArray())));
+			installEntryProbe(methodNode, className, methodIndex, blockOffset);
+			return new MethodMeta(methodNode.name, methodNode.desc, complexity(), blockMetas, blockOffset, true);
+		}
+		if (!blocks.isEmpty()) {		
+			if (cacheCounters && blocks.size() > 1) {
+				countersLocal = methodNode.maxLocals;
+				methodNode.maxLocals++;
+			}
+			for (int i = 0; i < blocks.size(); i++) {
+				blockMetas.add(new BlockMeta(new IntArrayList(blocks.get(i).lines.toIntArray())));
+				installProbePoint(methodNode.instructions, blockEnds.get(i), className, methodIndex, blockOffset, i);
+			}
+			if (countersLocal != -1) {
+				InsnList ecode = loadCounters(className, methodIndex);
+				ecode.add(new VarInsnNode(ASTORE, countersLocal));
+				methodNode.instructions.insert(ecode);
+			}
+			methodNode.maxStack += probeMode.maxStack;
+		}
+		return new MethodMeta(methodNode.name, methodNode.desc, complexity(), blockMetas, blockOffset);
+	}
+	
+	/**
+	 * Sets the counter of the single block of a trivial method to 1 at the entry, in the same way as a {@link ProbeMode#HIT} probe,
+	 * so that the method is covered at the cost of a store instead of an increment.
+	 * For {@link ProbeMode#EXACT}, the total counters of the method are set, without looking up counters of the current thread.
+	 */
+	void installEntryProbe(MethodNode methodNode, String className, int methodIndex, int blockOffset) {
+		InsnList ecode;
+		if (probeMode == ProbeMode.EXACT) {
+			ecode = new InsnList();
+			ecode.add(new FieldInsnNode(GETSTATIC, className, Instrument.BLOCK_COVERAGE_FIELD_NAME, Instrument.BLOCK_COVERAGE_FIELD_TYPE));
+			ecode.add(new IntInsnNode(SIPUSH, methodIndex));
+			ecode.add(new InsnNode(AALOAD));
+		} else {
+			ecode = loadCounters(className, methodIndex);
+		}
+		ecode.add(pushInt(probeMode == ProbeMode.HIT || flatCounters ? blockOffset : 0));
+		ecode.add(new InsnNode(ICONST_1));
+		ecode.add(new InsnNode(probeMode == ProbeMode.HIT ? BASTORE : IASTORE));
+		methodNode.instructions.insert(ecode);
+		methodNode.maxStack += ProbeMode.HIT.maxStack;
+	}
+	
+	/**
+	 * A trivial method is a single block which only loads constants, local variables and instance fields, stores instance fields and returns,
+	 * such as accessors and constructors which only call the super constructor.
+	 * It can neither branch nor throw but a <code>NullPointerException</code>, and the JIT compiler inlines it as it is.
+	 * Static fields are excluded, since accessing them may initialize a class and throw an <code>ExceptionInInitializerError</code>.
+	 */
+	boolean isTrivial(MethodNode methodNode) {
+		if (blocks.size() != 1) {
+			return false;
+		}
+		boolean constructor = "<init>".equals(methodNode.name);
+		for (Iterator<AbstractInsnNode> i = methodNode.instructions.iterator(); i.hasNext();) {
+			AbstractInsnNode each = i.next();
+			int opcode = each.getOpcode();
+			if (opcode == -1 || (opcode >= ACONST_NULL && opcode <= ALOAD) || (opcode >= IRETURN && opcode <= RETURN) || opcode == GETFIELD || opcode == PUTFIELD) {
+				continue;
+			}
+			if (constructor && opcode == INVOKESPECIAL && "<init>".equals(((MethodInsnNode) each).name)) {
+				continue;
 			}
-			methodNode.maxStack += 4;
+			return false;
 		}
-		return new MethodMeta(methodNode.name, methodNode.desc, complexity(), blockMetas);
+		return true;
 	}
 	
 	int complexity() {
@@ -159,41 +274,74 @@ public class BasicBlockAnalyzer {
 		return result;
 	}
 
-    static void installProbePoint(InsnList instructions, AbstractInsnNode location, BlockMeta blockMeta, String className, int methodIndex, int blockIndex) {
-       	InsnList ecode = new InsnList();
-       	ecode.add(new FieldInsnNode(GETSTATIC, className, Instrument.BLOCK_COVERAGE_FIELD_NAME, Instrument.BLOCK_COVERAGE_FIELD_TYPE));
-       	ecode.add(new IntInsnNode(SIPUSH, methodIndex));
-       	ecode.add(new InsnNode(AALOAD));
-       	ecode.add(new IntInsnNode(SIPUSH, blockIndex));
+    void installProbePoint(InsnList instructions, AbstractInsnNode location, String className, int methodIndex, int blockOffset, int blockIndex) {
+       	InsnList ecode;
+       	if (countersLocal == -1) {
+       		ecode = loadCounters(className, methodIndex);
+       	} else {
+       		ecode = new InsnList();
+       		ecode.add(new VarInsnNode(ALOAD, countersLocal));
+       	}
+       	ecode.add(pushInt(probeMode == ProbeMode.HIT || flatCounters ? blockOffset + blockIndex : blockIndex));
+       	if (probeMode == ProbeMode.HIT) {
+       		ecode.add(new InsnNode(ICONST_1));
+       		ecode.add(new InsnNode(BASTORE));
+       		instructions.insertBefore(location, ecode);
+       		return;
+       	}
        	ecode.add(new InsnNode(DUP2));
        	ecode.add(new InsnNode(IALOAD));
        	ecode.add(new InsnNode(ICONST_1));
        	ecode.add(new InsnNode(IADD));
+       	if (probeMode == ProbeMode.SATURATE) {
+       		// Overflowed MIN_VALUE + (MIN_VALUE >> 31) wraps to MAX_VALUE, without branching
+       		ecode.add(new InsnNode(DUP));
+       		ecode.add(new IntInsnNode(BIPUSH, 31));
+       		ecode.add(new InsnNode(ISHR));
+       		ecode.add(new InsnNode(IADD));
+       	}
        	ecode.add(new InsnNode(IASTORE));
     	instructions.insertBefore(location, ecode);
     }
 
+    /**
+     * Pushes the array which is indexed by blocks of the method.
+     * Hits and flat counters are the arrays of the class, otherwise the array of the method is loaded.
+     */
+    InsnList loadCounters(String className, int methodIndex) {
+       	InsnList ecode = new InsnList();
+       	if (probeMode == ProbeMode.HIT) {
+       		ecode.add(new FieldInsnNode(GETSTATIC, className, Instrument.BLOCK_HITS_FIELD_NAME, Instrument.BLOCK_HITS_FIELD_TYPE));
+       	} else if (flatCounters) {
+       		ecode.add(new FieldInsnNode(GETSTATIC, className, Instrument.BLOCK_COUNTERS_FIELD_NAME, Instrument.BLOCK_COUNTERS_FIELD_TYPE));
+       	} else {
+       		if (probeMode == ProbeMode.EXACT) {
+       			ecode.add(new FieldInsnNode(GETSTATIC, className, Instrument.THREAD_COUNTERS_FIELD_NAME, Instrument.THREAD_COUNTERS_FIELD_TYPE));
+       			ecode.add(new MethodInsnNode(INVOKEVIRTUAL, "undercover/runtime/ThreadCounters", "get", "()[[I", false));
+       		} else {
+       			ecode.add(new FieldInsnNode(GETSTATIC, className, Instrument.BLOCK_COVERAGE_FIELD_NAME, Instrument.BLOCK_COVERAGE_FIELD_TYPE));
+       		}
+       		ecode.add(new IntInsnNode(SIPUSH, methodIndex));
+       		ecode.add(new InsnNode(AALOAD));
+       	}
+       	return ecode;
+    }
+
+    static AbstractInsnNode pushInt(int value) {
+    	return value <= Short.MAX_VALUE ? new IntInsnNode(SIPUSH, value) : new LdcInsnNode(value);
+    }
+
+    /**
+     * IFEQ to IF_ACMPNE are consecutive opcodes.
+     */
     boolean isConditionalBranch(int opcode) {
-    	return Arrays.binarySearch(BRANCH_OPCODES, opcode) > -1;
+    	return (opcode >= IFEQ && opcode <= IF_ACMPNE) || opcode == IFNULL || opcode == IFNONNULL;
     }
     
+    /**
+     * IRETURN to RETURN are consecutive opcodes.
+     */
     boolean isReturn(int opcode) {
-    	return Arrays.binarySearch(returnOpcodes, opcode) > -1;
+    	return opcode >= IRETURN && opcode <= RETURN;
     }
-    
-	private static final int[] BRANCH_OPCODES = new int[] {
-		IFEQ, IFNE, IFLT, IFGE, IFGT, IFLE,
-		IF_ICMPEQ, IF_ICMPNE, IF_ICMPLT, IF_ICMPGE, IF_ICMPGT, IF_ICMPLE,
-		IF_ACMPEQ, IF_ACMPNE,
-		IFNULL, IFNONNULL,
-	};
-	
-	private static final int[] returnOpcodes = new int[] {
-		IRETURN, LRETURN, FRETURN, DRETURN, ARETURN, RETURN
-	};
-	
-	static {
-		Arrays.sort(BRANCH_OPCODES);
-		Arrays.sort(returnOpcodes);
-	}
 }
@@ -23,24 +23,50 @@ import undercover.instrument.filter.Exclusion;
 public class ClassAnalyzer {
 	private final Exclusion exclusion;
 	private final AnonymousDetector anonymousDetector;
+	private ProbeMode probeMode = ProbeMode.COUNT;
+	private boolean flatCounters;
+	private boolean cacheCounters;
+	private boolean skipTrivialMethods;
 	
 	public ClassAnalyzer(Exclusion exclusion) {
 		this.exclusion = exclusion;
 		anonymousDetector = new AnonymousDetector();
 	}
 	
+	public void setProbeMode(ProbeMode probeMode) {
+		this.probeMode = probeMode;
+	}
+	
+	public void setFlatCounters(boolean flatCounters) {
+		this.flatCounters = flatCounters;
+	}
+	
+	public void setCacheCounters(boolean cacheCounters) {
+		this.cacheCounters = cacheCounters;
+	}
+	
+	public void setSkipTrivialMethods(boolean skipTrivialMethods) {
+		this.skipTrivialMethods = skipTrivialMethods;
+	}
+	
+	boolean isFlatCounters() {
+		return flatCounters && (probeMode == ProbeMode.COUNT || probeMode == ProbeMode.SATURATE);
+	}
+	
 	public ClassMeta instrument(ClassNode classNode) {
 		ClassMeta.Outer outer = anonymousDetector.inspect(classNode);
 		
 		List<MethodMeta> methodMetas = new ArrayList<MethodMeta>();
+		int blockOffset = 0;
 		for (MethodNode each : (List<MethodNode>) classNode.methods) {
 			if (exclusion.exclude(classNode, each)) {
 				continue;
 			}
-			BasicBlockAnalyzer analyzer = new BasicBlockAnalyzer();
+			BasicBlockAnalyzer analyzer = new BasicBlockAnalyzer(probeMode, flatCounters, cacheCounters, skipTrivialMethods);
 			analyzer.analyze(each);
-			MethodMeta methodMeta = analyzer.instrument(each, classNode.name, methodMetas.size());
+			MethodMeta methodMeta = analyzer.instrument(each, classNode.name, methodMetas.size(), blockOffset);
 			methodMetas.add(methodMeta);
+			blockOffset += methodMeta.blocks.size();
 		}
 		
 		ClassMeta classMeta = new ClassMeta(classNode.name, classNode.sourceFile, methodMetas, outer);
@@ -53,10 +79,102 @@ public class ClassAnalyzer {
 	
 	void addCoverageField(ClassNode classNode) {
 		//Should be "public static final" for interfaces
+		if (probeMode == ProbeMode.HIT) {
+			classNode.fields.add(new FieldNode(ACC_SYNTHETIC | ACC_PUBLIC | ACC_FINAL | ACC_STATIC, Instrument.BLOCK_HITS_FIELD_NAME, Instrument.BLOCK_HITS_FIELD_TYPE, null, null));
+			return;
+		}
+		if (isFlatCounters()) {
+			classNode.fields.add(new FieldNode(ACC_SYNTHETIC | ACC_PUBLIC | ACC_FINAL | ACC_STATIC, Instrument.BLOCK_COUNTERS_FIELD_NAME, Instrument.BLOCK_COUNTERS_FIELD_TYPE, null, null));
+			return;
+		}
 		classNode.fields.add(new FieldNode(ACC_SYNTHETIC | ACC_PUBLIC | ACC_FINAL | ACC_STATIC, Instrument.BLOCK_COVERAGE_FIELD_NAME, Instrument.BLOCK_COVERAGE_FIELD_TYPE, null, null));
+		if (probeMode == ProbeMode.EXACT) {
+			classNode.fields.add(new FieldNode(ACC_SYNTHETIC | ACC_PUBLIC | ACC_FINAL | ACC_STATIC, Instrument.THREAD_COUNTERS_FIELD_NAME, Instrument.THREAD_COUNTERS_FIELD_TYPE, null, null));
+		}
 	}
 
 	void addCoverageFieldInitializer(ClassNode classNode, List<MethodMeta> methodMetas) {
+		InsnList code;
+		if (probeMode == ProbeMode.HIT) {
+			code = hitsFieldInitializer(classNode, methodMetas);
+		} else if (isFlatCounters()) {
+			code = countersFieldInitializer(classNode, methodMetas);
+		} else {
+			code = coverageFieldInitializer(classNode, methodMetas);
+		}
+
+		MethodNode clinitMethod = findClassInitializer(classNode);
+		if (clinitMethod == null) {
+			clinitMethod = new MethodNode(ACC_SYNTHETIC | ACC_STATIC, "<clinit>", "()V", null, null);
+			classNode.methods.add(clinitMethod);
+			code.add(new InsnNode(RETURN));
+		}
+		
+		clinitMethod.instructions.insert(code);
+		clinitMethod.maxStack += probeMode == ProbeMode.HIT || isFlatCounters() ? 6 : 3;
+	}
+
+	/**
+	 * Registers a flat boolean array of all blocks with the number of blocks of each method.
+	 */
+	InsnList hitsFieldInitializer(ClassNode classNode, List<MethodMeta> methodMetas) {
+		int blockCount = 0;
+		for (MethodMeta each : methodMetas) {
+			blockCount += each.blocks.size();
+		}
+		InsnList code = new InsnList();
+		code.add(BasicBlockAnalyzer.pushInt(blockCount));
+		code.add(new IntInsnNode(NEWARRAY, T_BOOLEAN));
+		code.add(new FieldInsnNode(PUTSTATIC, classNode.name, Instrument.BLOCK_HITS_FIELD_NAME, Instrument.BLOCK_HITS_FIELD_TYPE));
+		code.add(new LdcInsnNode(classNode.name));
+		code.add(new FieldInsnNode(GETSTATIC, classNode.name, Instrument.BLOCK_HITS_FIELD_NAME, Instrument.BLOCK_HITS_FIELD_TYPE));
+		code.add(new IntInsnNode(SIPUSH, methodMetas.size()));
+		code.add(new IntInsnNode(NEWARRAY, T_INT));
+		int methodIndex = 0;
+		for (MethodMeta each : methodMetas) {
+			code.add(new InsnNode(DUP));
+			code.add(new IntInsnNode(SIPUSH, methodIndex));
+			code.add(new IntInsnNode(SIPUSH, each.blocks.size()));
+			code.add(new InsnNode(IASTORE));
+			methodIndex++;
+		}
+		code.add(new MethodInsnNode(INVOKESTATIC, "undercover/runtime/Registry", "register", "(Ljava/lang/String;[Z[I)V", false));
+		return code;
+	}
+
+	/**
+	 * Registers a flat array of counters of all blocks with the block offset of each method.
+	 */
+	InsnList countersFieldInitializer(ClassNode classNode, List<MethodMeta> methodMetas) {
+		int blockCount = 0;
+		for (MethodMeta each : methodMetas) {
+			blockCount += each.blocks.size();
+		}
+		InsnList code = new InsnList();
+		code.add(BasicBlockAnalyzer.pushInt(blockCount));
+		code.add(new IntInsnNode(NEWARRAY, T_INT));
+		code.add(new FieldInsnNode(PUTSTATIC, classNode.name, Instrument.BLOCK_COUNTERS_FIELD_NAME, Instrument.BLOCK_COUNTERS_FIELD_TYPE));
+		code.add(new LdcInsnNode(classNode.name));
+		code.add(new FieldInsnNode(GETSTATIC, classNode.name, Instrument.BLOCK_COUNTERS_FIELD_NAME, Instrument.BLOCK_COUNTERS_FIELD_TYPE));
+		code.add(new IntInsnNode(SIPUSH, methodMetas.size() + 1));
+		code.add(new IntInsnNode(NEWARRAY, T_INT));
+		int methodIndex = 0;
+		for (MethodMeta each : methodMetas) {
+			code.add(new InsnNode(DUP));
+			code.add(new IntInsnNode(SIPUSH, methodIndex));
+			code.add(BasicBlockAnalyzer.pushInt(each.blockOffset));
+			code.add(new InsnNode(IASTORE));
+			methodIndex++;
+		}
+		code.add(new InsnNode(DUP));
+		code.add(new IntInsnNode(SIPUSH, methodIndex));
+		code.add(BasicBlockAnalyzer.pushInt(blockCount));
+		code.add(new InsnNode(IASTORE));
+		code.add(new MethodInsnNode(INVOKESTATIC, "undercover/runtime/Registry", "register", "(Ljava/lang/String;[I[I)V", false));
+		return code;
+	}
+
+	InsnList coverageFieldInitializer(ClassNode classNode, List<MethodMeta> methodMetas) {
 		InsnList code = new InsnList();
 		code.add(new IntInsnNode(SIPUSH, methodMetas.size()));
 		code.add(new TypeInsnNode(ANEWARRAY, "[I"));
@@ -70,20 +188,21 @@ public class ClassAnalyzer {
 			code.add(new InsnNode(AASTORE));
 			methodIndex++;
 		}
-		code.add(new FieldInsnNode(GETSTATIC, "undercover/runtime/Probe", "INSTANCE", "Lundercover/runtime/Probe;"));
-		code.add(new LdcInsnNode(classNode.name));
-		code.add(new FieldInsnNode(GETSTATIC, classNode.name, Instrument.BLOCK_COVERAGE_FIELD_NAME, Instrument.BLOCK_COVERAGE_FIELD_TYPE));
-		code.add(new MethodInsnNode(INVOKEVIRTUAL, "undercover/runtime/Probe", "register", "(Ljava/lang/String;[[I)V"));
-
-		MethodNode clinitMethod = findClassInitializer(classNode);
-		if (clinitMethod == null) {
-			clinitMethod = new MethodNode(ACC_SYNTHETIC | ACC_STATIC, "<clinit>", "()V", null, null);
-			classNode.methods.add(clinitMethod);
-			code.add(new InsnNode(RETURN));
+		if (probeMode == ProbeMode.EXACT) {
+			code.add(new TypeInsnNode(NEW, "undercover/runtime/ThreadCounters"));
+			code.add(new InsnNode(DUP));
+			code.add(new FieldInsnNode(GETSTATIC, classNode.name, Instrument.BLOCK_COVERAGE_FIELD_NAME, Instrument.BLOCK_COVERAGE_FIELD_TYPE));
+			code.add(new MethodInsnNode(INVOKESPECIAL, "undercover/runtime/ThreadCounters", "<init>", "([[I)V", false));
+			code.add(new FieldInsnNode(PUTSTATIC, classNode.name, Instrument.THREAD_COUNTERS_FIELD_NAME, Instrument.THREAD_COUNTERS_FIELD_TYPE));
+			code.add(new LdcInsnNode(classNode.name));
+			code.add(new FieldInsnNode(GETSTATIC, classNode.name, Instrument.THREAD_COUNTERS_FIELD_NAME, Instrument.THREAD_COUNTERS_FIELD_TYPE));
+			code.add(new MethodInsnNode(INVOKESTATIC, "undercover/runtime/Registry", "register", "(Ljava/lang/String;Lundercover/runtime/ThreadCounters;)V", false));
+		} else {
+			code.add(new LdcInsnNode(classNode.name));
+			code.add(new FieldInsnNode(GETSTATIC, classNode.name, Instrument.BLOCK_COVERAGE_FIELD_NAME, Instrument.BLOCK_COVERAGE_FIELD_TYPE));
+			code.add(new MethodInsnNode(INVOKESTATIC, "undercover/runtime/Registry", "register", "(Ljava/lang/String;[[I)V", false));
 		}
-		
-		clinitMethod.instructions.insert(code);
-		clinitMethod.maxStack += 4;
+		return code;
 	}
 
 	MethodNode findClassInitializer(ClassNode classNode) {
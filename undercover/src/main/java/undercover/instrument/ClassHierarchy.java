@@ -0,0 +1,119 @@
+package undercover.instrument;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+import undercover.support.IOUtils;
+
+/**
+ * Resolves common super classes for stack map frames by reading class files, without loading classes.
+ * Class files are looked up as resources of a class loader, e.g. over the instrumented paths and the class path.
+ * A class which is not found fails with {@link TypeNotFoundException}, rather than guessing frames which may not verify.
+ * Safe to be used concurrently.
+ */
+public class ClassHierarchy {
+	static final String OBJECT = "java/lang/Object";
+
+	private final ClassLoader classLoader;
+	private final Map<String, Type> types;
+
+	static class Type {
+		final String superName;
+		final boolean isInterface;
+
+		Type(String superName, boolean isInterface) {
+			this.superName = superName;
+			this.isInterface = isInterface;
+		}
+	}
+
+	public ClassHierarchy(ClassLoader classLoader) {
+		this(classLoader, new ConcurrentHashMap<String, Type>());
+	}
+
+	/**
+	 * @param types resolved types, which may be shared by hierarchies of the same class loader.
+	 */
+	ClassHierarchy(ClassLoader classLoader, Map<String, Type> types) {
+		this.classLoader = classLoader;
+		this.types = types;
+	}
+
+	/**
+	 * @param paths class directories and archives which are searched before the parent class loader.
+	 */
+	public static ClassHierarchy of(List<File> paths, ClassLoader parent) {
+		URL[] urls = new URL[paths.size()];
+		try {
+			for (int i = 0; i < urls.length; i++) {
+				urls[i] = paths.get(i).toURI().toURL();
+			}
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException(e);
+		}
+		return new ClassHierarchy(new URLClassLoader(urls, parent));
+	}
+
+	/**
+	 * @return common super class of the two classes, or <code>java/lang/Object</code> if either is an interface.
+	 * @throws TypeNotFoundException if a class file of either class or its super classes is not found.
+	 */
+	public String getCommonSuperClass(String type1, String type2) {
+		if (type1.equals(type2)) {
+			return type1;
+		}
+		if (getType(type1).isInterface || getType(type2).isInterface) {
+			return OBJECT;
+		}
+		Set<String> superClasses = new HashSet<String>();
+		for (String each = type1; each != null; each = getType(each).superName) {
+			superClasses.add(each);
+		}
+		for (String each = type2; each != null; each = getType(each).superName) {
+			if (superClasses.contains(each)) {
+				return each;
+			}
+		}
+		return OBJECT;
+	}
+
+	Type getType(String name) {
+		Type type = types.get(name);
+		if (type == null) {
+			type = readType(name);
+			types.put(name, type);
+		}
+		return type;
+	}
+
+	Type readType(String name) {
+		if (OBJECT.equals(name)) {
+			return new Type(null, false);
+		}
+		InputStream input = null;
+		try {
+			input = classLoader == null ? ClassLoader.getSystemResourceAsStream(name + ".class") : classLoader.getResourceAsStream(name + ".class");
+			if (input == null) {
+				throw new TypeNotFoundException(name);
+			}
+			ClassReader reader = new ClassReader(input);
+			return new Type(reader.getSuperName(), (reader.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+		} catch (IOException e) {
+			throw new TypeNotFoundException(name);
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+	}
+}
@@ -5,56 +5,205 @@ import java.io.InputStream;
 
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
 
 import undercover.data.ClassMeta;
 import undercover.data.MetaData;
+import undercover.instrument.filter.Exclusion;
 import undercover.instrument.filter.ExclusionSet;
 import undercover.instrument.filter.GlobExclusion;
 import undercover.instrument.filter.GlobFilter;
+import undercover.support.IOUtils;
 
 public class Instrument {
 	static final String BLOCK_COVERAGE_FIELD_NAME = "$undercover$blockCoverage";
 	static final String BLOCK_COVERAGE_FIELD_TYPE = "[[I";
+	static final String BLOCK_COUNTERS_FIELD_NAME = "$undercover$blockCounters";
+	static final String BLOCK_COUNTERS_FIELD_TYPE = "[I";
+	static final String BLOCK_HITS_FIELD_NAME = "$undercover$blockHits";
+	static final String BLOCK_HITS_FIELD_TYPE = "[Z";
+	static final String THREAD_COUNTERS_FIELD_NAME = "$undercover$threadCounters";
+	static final String THREAD_COUNTERS_FIELD_TYPE = "Lundercover/runtime/ThreadCounters;";
 	private final ExclusionSet exclusionSet;
 	private final MetaData metaData;
 	private final ClassAnalyzer classAnalyzer;
+	private ClassHierarchy classHierarchy;
 	
 	public Instrument() {
 		exclusionSet = ExclusionSet.withDefault();
 		metaData = new MetaData();
 		classAnalyzer = new ClassAnalyzer(exclusionSet);
+		classHierarchy = new ClassHierarchy(Instrument.class.getClassLoader());
 	}
 	
 	public void addFilter(GlobFilter filter) {
 		exclusionSet.add(new GlobExclusion(filter));
 	}
 	
+	/**
+	 * Excluded methods are neither analyzed nor instrumented.
+	 */
+	public void addExclusion(Exclusion exclusion) {
+		exclusionSet.add(exclusion);
+	}
+	
+	/**
+	 * Defaults to {@link ProbeMode#COUNT}.
+	 */
+	public void setProbeMode(ProbeMode probeMode) {
+		classAnalyzer.setProbeMode(probeMode);
+	}
+	
+	/**
+	 * Counters of {@link ProbeMode#COUNT} and {@link ProbeMode#SATURATE} are kept in a flat array of all blocks of the class,
+	 * instead of an array for each method.
+	 */
+	public void setFlatCounters(boolean flatCounters) {
+		classAnalyzer.setFlatCounters(flatCounters);
+	}
+	
+	/**
+	 * Each method loads its array of counters into a local variable once, at the method entry,
+	 * instead of loading the array at every probe.
+	 */
+	public void setCacheCounters(boolean cacheCounters) {
+		classAnalyzer.setCacheCounters(cacheCounters);
+	}
+	
+	/**
+	 * Trivial methods, such as accessors, have a single probe at the entry instead of counting probes.
+	 * They are marked in meta data, and record whether they are executed, but not how many times.
+	 */
+	public void setSkipTrivialMethods(boolean skipTrivialMethods) {
+		classAnalyzer.setSkipTrivialMethods(skipTrivialMethods);
+	}
+	
+	/**
+	 * Resolves super classes when stack map frames are computed.
+	 * Defaults to class files visible to the class loader of this class.
+	 */
+	public void setClassHierarchy(ClassHierarchy classHierarchy) {
+		this.classHierarchy = classHierarchy;
+	}
+	
 	public MetaData getMetaData() {
 		return metaData;
 	}
 	
 	public byte[] instrument(byte[] bytecode) {
+		return instrument(bytecode, classHierarchy);
+	}
+	
+	/**
+	 * @return the given class file as it is if the class is excluded.
+	 * @throws TypeNotFoundException if stack map frames can not be computed.
+	 */
+	public byte[] instrument(byte[] bytecode, ClassHierarchy classHierarchy) {
 		ClassReader reader = new ClassReader(bytecode);
-		ClassWriter writer = instrument(reader);
+		if (isExcluded(reader)) {
+			return bytecode;
+		}
+		ClassWriter writer = newClassWriter(reader, classHierarchy);
+		ClassMeta classMeta = instrument(reader, writer);
+		if (classMeta == null) {
+			return bytecode;
+		}
+		addClass(classMeta);
 		return writer.toByteArray();
 	}
 	
 	public byte[] instrument(InputStream bytecode) throws IOException {
-		ClassReader reader = new ClassReader(bytecode);
-		ClassWriter writer = instrument(reader);
-		return writer.toByteArray();
+		return instrument(IOUtils.toByteArray(bytecode));
 	}
 	
+	/**
+	 * @return writer of the instrumented class, or of a copy of the class if it is excluded.
+	 */
 	public ClassWriter instrument(ClassReader classReader) {
-		ClassWriter classWriter = new ClassWriter(classReader, 0);
+		ClassWriter classWriter = newClassWriter(classReader);
+		ClassMeta classMeta = instrument(classReader, classWriter);
+		if (classMeta == null) {
+			classWriter = new ClassWriter(classReader, 0);
+			classReader.accept(classWriter, 0);
+		}
+		addClass(classMeta);
+		return classWriter;
+	}
+
+	/**
+	 * Judges by the access flags and the class name, which are read without parsing the class.
+	 * Modules are always excluded, because a module descriptor must not have fields or methods.
+	 */
+	public boolean isExcluded(ClassReader classReader) {
+		return (classReader.getAccess() & Opcodes.ACC_MODULE) != 0 || exclusionSet.exclude(classReader.getClassName());
+	}
+
+	public ClassWriter newClassWriter(ClassReader classReader) {
+		return newClassWriter(classReader, classHierarchy);
+	}
+
+	/**
+	 * Stack map frames are computed for Java 6 and later class files, otherwise only maximum stack sizes and locals.
+	 */
+	static ClassWriter newClassWriter(ClassReader classReader, final ClassHierarchy classHierarchy) {
+		return new ClassWriter(classReader, hasFrames(classReader) ? ClassWriter.COMPUTE_FRAMES : ClassWriter.COMPUTE_MAXS) {
+			protected String getCommonSuperClass(String type1, String type2) {
+				return classHierarchy.getCommonSuperClass(type1, type2);
+			}
+		};
+	}
+
+	static boolean hasFrames(ClassReader classReader) {
+		return classReader.readUnsignedShort(6) >= Opcodes.V1_6;
+	}
+
+	/**
+	 * Instruments the class without adding its meta data. Safe to be called concurrently.
+	 * 
+	 * @param classWriter should be created by {@link #newClassWriter(ClassReader)}, because stack map frames are not kept.
+	 * @return meta data of the class, or <code>null</code> if the class is excluded.
+	 * Nothing is written for an excluded class, whose class file should be kept as it is.
+	 * @throws TypeNotFoundException if stack map frames can not be computed.
+	 */
+	public ClassMeta instrument(ClassReader classReader, ClassWriter classWriter) {
+		if (isExcluded(classReader)) {
+			return null;
+		}
 		ClassNode classNode = new ClassNode();
-		classReader.accept(classNode, 0);
-		if (!exclusionSet.exclude(classNode)) {
-			ClassMeta classMeta = classAnalyzer.instrument(classNode);
+		classReader.accept(classNode, readFlags(classReader));
+		ClassMeta classMeta = analyze(classNode);
+		if (classMeta != null) {
+			classNode.accept(classWriter);
+		}
+		return classMeta;
+	}
+
+	/**
+	 * Collects meta data of the class without writing instrumented bytecode. Safe to be called concurrently.
+	 * 
+	 * @return meta data of the class, or <code>null</code> if the class is excluded.
+	 */
+	public ClassMeta analyze(ClassReader classReader) {
+		if (isExcluded(classReader)) {
+			return null;
+		}
+		ClassNode classNode = new ClassNode();
+		classReader.accept(classNode, readFlags(classReader));
+		return analyze(classNode);
+	}
+
+	int readFlags(ClassReader classReader) {
+		return hasFrames(classReader) ? ClassReader.SKIP_FRAMES : 0;
+	}
+
+	ClassMeta analyze(ClassNode classNode) {
+		return exclusionSet.exclude(classNode) ? null : classAnalyzer.instrument(classNode);
+	}
+
+	public void addClass(ClassMeta classMeta) {
+		if (classMeta != null) {
 			metaData.addClass(classMeta);
 		}
-		classNode.accept(classWriter);
-		return classWriter;
 	}
 }
@@ -1,13 +1,42 @@
 package undercover.instrument;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+import undercover.data.ClassMeta;
+import undercover.data.MetaData;
+import undercover.instrument.filter.Exclusion;
 import undercover.instrument.filter.GlobFilter;
 import undercover.support.FileUtils;
 import undercover.support.IOUtils;
@@ -15,12 +44,24 @@ import undercover.support.JdkLogger;
 import undercover.support.Logger;
 
 public class OfflineInstrument {
+	static final String OPTIONS_KEY = "undercover.options";
+	
 	private Logger logger = new JdkLogger();
 	private Instrument instrument;
 	private List<File> instrumentPaths;
+	private List<File> classPath = new ArrayList<File>();
 	private File outputDirectory;
 	private File metaDataFile;
 	private GlobFilter filter;
+	private List<Exclusion> exclusions = new ArrayList<Exclusion>();
+	private ProbeMode probeMode = ProbeMode.COUNT;
+	private boolean flatCounters;
+	private boolean cacheCounters;
+	private boolean skipTrivialMethods;
+	private int threads = 1;
+	private boolean incremental;
+	private Properties previousHashes;
+	private Map<String, ClassMeta> previousClasses;
 	
 	public void setLogger(Logger logger) {
 		this.logger = logger;
@@ -30,6 +71,14 @@ public class OfflineInstrument {
 		this.instrumentPaths = instrumentPaths;
 	}
 	
+	/**
+	 * Class directories and archives which instrumented classes depend on.
+	 * They are read, together with the instrument paths, to resolve super classes when stack map frames are computed.
+	 */
+	public void setClassPath(List<File> classPath) {
+		this.classPath = classPath;
+	}
+	
 	public void setOutputDirectory(File outputDirectory) {
 		this.outputDirectory = outputDirectory;
 	}
@@ -42,54 +91,421 @@ public class OfflineInstrument {
 		this.filter = filter;
 	}
 
+	/**
+	 * @see Instrument#addExclusion(Exclusion)
+	 */
+	public void addExclusion(Exclusion exclusion) {
+		exclusions.add(exclusion);
+	}
+
+	public void setProbeMode(ProbeMode probeMode) {
+		this.probeMode = probeMode;
+	}
+
+	/**
+	 * @see Instrument#setFlatCounters(boolean)
+	 */
+	public void setFlatCounters(boolean flatCounters) {
+		this.flatCounters = flatCounters;
+	}
+
+	/**
+	 * @see Instrument#setCacheCounters(boolean)
+	 */
+	public void setCacheCounters(boolean cacheCounters) {
+		this.cacheCounters = cacheCounters;
+	}
+
+	/**
+	 * @see Instrument#setSkipTrivialMethods(boolean)
+	 */
+	public void setSkipTrivialMethods(boolean skipTrivialMethods) {
+		this.skipTrivialMethods = skipTrivialMethods;
+	}
+
+	/**
+	 * Class files are instrumented by a pool of the given number of threads.
+	 * Meta data is kept in the order of the class files regardless of the number of threads.
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Keeps instrumented class files and their meta data from the previous run if the content of the class file is not changed.
+	 * Content hashes of class files are stored next to the meta data file. Archives are always instrumented.
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
 	public void fullcopy() throws Exception {
 		logger.info("Instrument paths: " + instrumentPaths);
 		logger.info("Output directory: " + outputDirectory);
 		
 		File classesDir = new File(outputDirectory, "classes");
-		instrument = new Instrument();
-		instrument.addFilter(filter);
-		instrumentDirs(instrumentPaths, classesDir);
+		File libDir = new File(outputDirectory, "lib");
+		instrument = newInstrument();
+		instrument.setProbeMode(probeMode);
+		instrument.setFlatCounters(flatCounters);
+		instrument.setCacheCounters(cacheCounters);
+		instrument.setClassHierarchy(newClassHierarchy());
+		loadPrevious();
+		List<ClassFileTask> tasks = new ArrayList<ClassFileTask>();
+		instrumentPaths(instrumentPaths, classesDir, libDir, tasks);
+		runTasks(tasks);
+		deleteRemoved(tasks, classesDir);
 		instrument.getMetaData().save(metaDataFile);
+		saveHashes(tasks);
 	}
 	
-	void instrumentDirs(List<File> inputDirs, File outputDir) throws IOException {
+	/**
+	 * Writes meta data only. Classes are instrumented when they are loaded by {@link OnlineInstrument}.
+	 */
+	public void analyze() throws Exception {
+		logger.info("Instrument paths: " + instrumentPaths);
+		
+		instrument = newInstrument();
+		loadPrevious();
+		List<ClassFileTask> tasks = new ArrayList<ClassFileTask>();
+		for (File each : instrumentPaths) {
+			if (isArchive(each)) {
+				instrumentArchive(each, null);
+			} else {
+				analyzeDir(each, "", tasks);
+			}
+		}
+		runTasks(tasks);
+		metaDataFile.getAbsoluteFile().getParentFile().mkdirs();
+		instrument.getMetaData().save(metaDataFile);
+		saveHashes(tasks);
+	}
+	
+	/**
+	 * Classes of the JDK are resolved by the parent of the system class loader, and others by the instrument paths and the class path only.
+	 */
+	ClassHierarchy newClassHierarchy() {
+		List<File> paths = new ArrayList<File>(instrumentPaths);
+		paths.addAll(classPath);
+		return ClassHierarchy.of(paths, ClassLoader.getSystemClassLoader().getParent());
+	}
+
+	void analyzeDir(File inputDir, String path, List<ClassFileTask> tasks) {
+		for (File each : listFiles(inputDir)) {
+			if (each.isDirectory()) {
+				analyzeDir(each, path + each.getName() + "/", tasks);
+			} else if (each.getName().endsWith(".class")) {
+				tasks.add(new ClassFileTask(path + each.getName(), each, null));
+			}
+		}
+	}
+
+	/**
+	 * Directories are instrumented into <code>outputDir</code>, archives into <code>libDir</code>.
+	 */
+	void instrumentPaths(List<File> inputPaths, File outputDir, File libDir, List<ClassFileTask> tasks) throws IOException {
 		outputDir.mkdirs();
-		for (File each : inputDirs) {
-			instrumentDir(each, outputDir);
+		for (File each : inputPaths) {
+			if (isArchive(each)) {
+				libDir.mkdirs();
+				instrumentArchive(each, new File(libDir, each.getName()));
+			} else {
+				instrumentDir(each, outputDir, "", tasks);
+			}
 		}
 	}
 	
-	void instrumentDir(File inputDir, File outputDir) throws IOException {
+	void instrumentDir(File inputDir, File outputDir, String path, List<ClassFileTask> tasks) throws IOException {
 		outputDir.mkdir();
-		for (File each : inputDir.listFiles()) {
+		for (File each : listFiles(inputDir)) {
 			String name = each.getName();
 			if (each.isDirectory()) {
-				instrumentDir(each, new File(outputDir, each.getName()));
+				instrumentDir(each, new File(outputDir, each.getName()), path + name + "/", tasks);
 			} else if (name.endsWith(".class")) {
-				instrumentFile(each, new File(outputDir, each.getName()));
+				tasks.add(new ClassFileTask(path + name, each, new File(outputDir, each.getName())));
 			} else {
 				copyFile(each, new File(outputDir, each.getName()));
 			}
 		}
 	}
 
+	static boolean isArchive(File file) {
+		String name = file.getName().toLowerCase();
+		return file.isFile() && (name.endsWith(".jar") || name.endsWith(".zip"));
+	}
+
+	/**
+	 * Streams entries of the archive one by one. Signatures are dropped because instrumented classes can not match them.
+	 * 
+	 * @param outputFile <code>null</code> if only meta data is required.
+	 */
+	void instrumentArchive(File inputFile, File outputFile) throws IOException {
+		logger.debug("Instrumenting archive " + inputFile);
+		ZipInputStream input = null;
+		ZipOutputStream output = null;
+		try {
+			input = new ZipInputStream(new BufferedInputStream(new FileInputStream(inputFile)));
+			if (outputFile != null) {
+				output = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile)));
+			}
+			for (ZipEntry each = input.getNextEntry(); each != null; each = input.getNextEntry()) {
+				String name = each.getName();
+				if (output == null) {
+					if (name.endsWith(".class")) {
+						instrument.addClass(instrument.analyze(new ClassReader(input)));
+					}
+					continue;
+				}
+				if (isSignatureFile(name)) {
+					continue;
+				}
+				ZipEntry entry = new ZipEntry(name);
+				entry.setTime(each.getTime());
+				output.putNextEntry(entry);
+				if (name.endsWith(".class")) {
+					output.write(instrumentEntry(inputFile, name, IOUtils.toByteArray(input)));
+				} else if (name.equalsIgnoreCase(JarFile.MANIFEST_NAME)) {
+					writeUnsignedManifest(input, output);
+				} else {
+					IOUtils.copy(input, output);
+				}
+				output.closeEntry();
+			}
+		} finally {
+			IOUtils.closeQuietly(output);
+			IOUtils.closeQuietly(input);
+		}
+	}
+
+	byte[] instrumentEntry(File inputFile, String name, byte[] bytecode) {
+		try {
+			return instrument.instrument(bytecode);
+		} catch (TypeNotFoundException e) {
+			logger.error("Copying " + name + " in " + inputFile + " without instrumentation: " + e.getMessage());
+			return bytecode;
+		}
+	}
+
+	static boolean isSignatureFile(String name) {
+		String upperCaseName = name.toUpperCase();
+		return upperCaseName.startsWith("META-INF/") && upperCaseName.indexOf('/', "META-INF/".length()) == -1
+			&& (upperCaseName.endsWith(".SF") || upperCaseName.endsWith(".RSA") || upperCaseName.endsWith(".DSA") || upperCaseName.endsWith(".EC") || upperCaseName.startsWith("META-INF/SIG-"));
+	}
+
+	/**
+	 * Removes digests of entries from the manifest.
+	 */
+	static void writeUnsignedManifest(InputStream input, OutputStream output) throws IOException {
+		Manifest manifest = new Manifest(input);
+		for (Iterator<Attributes> i = manifest.getEntries().values().iterator(); i.hasNext(); ) {
+			Attributes attributes = i.next();
+			for (Iterator<Object> j = attributes.keySet().iterator(); j.hasNext(); ) {
+				if (j.next().toString().endsWith("-Digest")) {
+					j.remove();
+				}
+			}
+			if (attributes.isEmpty()) {
+				i.remove();
+			}
+		}
+		manifest.write(output);
+	}
+
+	static File[] listFiles(File dir) {
+		File[] files = dir.listFiles();
+		Arrays.sort(files);
+		return files;
+	}
+
 	void copyFile(File inputFile, File outputFile) throws IOException {
+		if (incremental && outputFile.length() == inputFile.length() && outputFile.lastModified() >= inputFile.lastModified()) {
+			return;
+		}
 		logger.debug("Copying file " + inputFile);
 		FileUtils.copyFile(inputFile, outputFile);
 	}
 
-	void instrumentFile(File inputFile, File outputFile) throws IOException {
-		logger.debug("Instrumenting file " + inputFile);
+	Instrument newInstrument() {
+		Instrument result = new Instrument();
+		result.addFilter(filter);
+		for (Exclusion each : exclusions) {
+			result.addExclusion(each);
+		}
+		result.setSkipTrivialMethods(skipTrivialMethods);
+		return result;
+	}
+
+	/**
+	 * @return options which affect instrumented classes.
+	 */
+	String getOptions() {
+		return filter + ", exclusions=" + exclusions + ", probe=" + probeMode + ", flat=" + flatCounters + ", cache=" + cacheCounters + ", skipTrivial=" + skipTrivialMethods;
+	}
+
+	File getHashFile() {
+		return new File(metaDataFile.getPath() + ".hash");
+	}
+
+	void loadPrevious() throws IOException {
+		previousHashes = new Properties();
+		previousClasses = new HashMap<String, ClassMeta>();
+		File hashFile = getHashFile();
+		if (!incremental || !hashFile.exists() || !metaDataFile.exists()) {
+			return;
+		}
 		InputStream input = null;
+		try {
+			input = new FileInputStream(hashFile);
+			previousHashes.load(input);
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+		if (!getOptions().equals(previousHashes.getProperty(OPTIONS_KEY))) {
+			logger.info("Filter or probe mode is changed. Instrumenting all classes.");
+			previousHashes.clear();
+			return;
+		}
+		for (ClassMeta each : MetaData.load(metaDataFile).getAllClasses()) {
+			previousClasses.put(each.name, each);
+		}
+	}
+
+	void saveHashes(List<ClassFileTask> tasks) throws IOException {
+		if (!incremental) {
+			return;
+		}
+		Properties hashes = new Properties();
+		hashes.setProperty(OPTIONS_KEY, getOptions());
+		for (ClassFileTask each : tasks) {
+			hashes.setProperty(each.path, each.hash);
+		}
 		OutputStream output = null;
+		try {
+			output = new FileOutputStream(getHashFile());
+			hashes.store(output, "Undercover class file hashes");
+		} finally {
+			IOUtils.closeQuietly(output);
+		}
+	}
+
+	void deleteRemoved(List<ClassFileTask> tasks, File outputDir) {
+		Set<String> removed = new HashSet<String>(previousHashes.stringPropertyNames());
+		removed.remove(OPTIONS_KEY);
+		for (ClassFileTask each : tasks) {
+			removed.remove(each.path);
+		}
+		for (String each : removed) {
+			logger.debug("Deleting removed file " + each);
+			new File(outputDir, each).delete();
+		}
+	}
+
+	void runTasks(List<ClassFileTask> tasks) throws IOException {
+		if (threads <= 1) {
+			for (ClassFileTask each : tasks) {
+				instrument.addClass(each.call());
+			}
+			return;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<ClassMeta>> results = executor.invokeAll(new ArrayList<Callable<ClassMeta>>(tasks));
+			for (Future<ClassMeta> each : results) {
+				instrument.addClass(each.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while instrumenting");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Instruments or analyzes a class file without touching shared meta data.
+	 */
+	class ClassFileTask implements Callable<ClassMeta> {
+		/** Relative to the instrument path. */
+		final String path;
+		final File inputFile;
+		/** <code>null</code> if only meta data is required. */
+		final File outputFile;
+		String hash;
+		
+		ClassFileTask(String path, File inputFile, File outputFile) {
+			this.path = path;
+			this.inputFile = inputFile;
+			this.outputFile = outputFile;
+		}
+		
+		public ClassMeta call() throws IOException {
+			byte[] bytecode = readFile(inputFile);
+			if (incremental) {
+				hash = digest(bytecode);
+				if (hash.equals(previousHashes.getProperty(path)) && (outputFile == null || outputFile.exists())) {
+					logger.debug("Skipping unchanged file " + inputFile);
+					return previousClasses.get(new ClassReader(bytecode).getClassName());
+				}
+			}
+			ClassReader reader = new ClassReader(bytecode);
+			if (outputFile == null) {
+				logger.debug("Analyzing file " + inputFile);
+				return instrument.analyze(reader);
+			}
+			if (instrument.isExcluded(reader)) {
+				logger.debug("Copying excluded file " + inputFile);
+				writeFile(outputFile, bytecode);
+				return null;
+			}
+			logger.debug("Instrumenting file " + inputFile);
+			ClassWriter writer = instrument.newClassWriter(reader);
+			ClassMeta classMeta;
+			try {
+				classMeta = instrument.instrument(reader, writer);
+			} catch (TypeNotFoundException e) {
+				logger.error("Copying file " + inputFile + " without instrumentation: " + e.getMessage());
+				classMeta = null;
+			}
+			writeFile(outputFile, classMeta == null ? bytecode : writer.toByteArray());
+			return classMeta;
+		}
+	}
+
+	static byte[] readFile(File inputFile) throws IOException {
+		InputStream input = null;
 		try {
 			input = new FileInputStream(inputFile);
+			return IOUtils.toByteArray(input);
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+	}
+
+	static String digest(byte[] bytes) {
+		try {
+			StringBuilder result = new StringBuilder();
+			for (byte each : MessageDigest.getInstance("SHA-1").digest(bytes)) {
+				result.append(Character.forDigit((each >> 4) & 0xf, 16)).append(Character.forDigit(each & 0xf, 16));
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static void writeFile(File outputFile, byte[] bytes) throws IOException {
+		OutputStream output = null;
+		try {
 			output = new FileOutputStream(outputFile);
-			output.write(instrument.instrument(input));
+			output.write(bytes);
 		} finally {
 			IOUtils.closeQuietly(output);
-			IOUtils.closeQuietly(input);
 		}
 	}
 }
@@ -0,0 +1,242 @@
+package undercover.instrument;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.lang.instrument.Instrumentation;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+import undercover.data.ClassMeta;
+import undercover.instrument.filter.AccessExclusion;
+import undercover.instrument.filter.AnnotationExclusion;
+import undercover.instrument.filter.Exclusion;
+import undercover.instrument.filter.GlobFilter;
+import undercover.instrument.filter.MethodExclusion;
+import undercover.runtime.ProbeControl;
+import undercover.runtime.UndercoverSettings;
+import undercover.support.JdkLogger;
+import undercover.support.Logger;
+
+/**
+ * Java agent which instruments classes when they are loaded.
+ * <p>
+ * Options are comma separated <code>include=pattern</code> and <code>exclude=pattern</code> pairs,
+ * <code>probe=mode</code> for a {@link ProbeMode}, <code>flat=true</code> for {@link Instrument#setFlatCounters(boolean)},
+ * <code>cache=true</code> for {@link Instrument#setCacheCounters(boolean)},
+ * and <code>skipTrivial=true</code> for {@link Instrument#setSkipTrivialMethods(boolean)}.
+ * Methods are excluded by any number of <code>excludeAnnotation=pattern</code> for an {@link AnnotationExclusion},
+ * <code>excludeAccess=flags</code> for an {@link AccessExclusion} and <code>excludeMethod=pattern</code> for a {@link MethodExclusion},
+ * which must be the same as the exclusions of {@link OfflineInstrument#analyze()} to keep counters in line with meta data.
+ * Meta data is neither kept nor written by the agent. Use {@link OfflineInstrument#analyze()} to write it.
+ * Controls and snapshots which {@link UndercoverSettings} specify are started with the agent.
+ * Classes are instrumented concurrently, without holding any lock while class files are read from class loaders.
+ */
+public class OnlineInstrument implements ClassFileTransformer {
+	static final String[] RESERVED_PACKAGES = {
+		"java/", "javax/", "sun/", "com/sun/", "jdk/",
+		"undercover/runtime/", "undercover/instrument/", "undercover/data/", "undercover/support/", "undercover/shaded/",
+	};
+
+	static final List<String> OPTION_KEYS = Arrays.asList(
+		"include", "exclude", "probe", "flat", "cache", "skipTrivial", "excludeAnnotation", "excludeAccess", "excludeMethod"
+	);
+
+	private Logger logger = new JdkLogger();
+	private final GlobFilter filter;
+	final Instrument instrument;
+	private final Map<ClassLoader, Map<String, ClassHierarchy.Type>> types = new WeakHashMap<ClassLoader, Map<String, ClassHierarchy.Type>>();
+
+	public static void premain(String options, Instrumentation instrumentation) {
+		OnlineInstrument transformer = new OnlineInstrument(parseFilter(options), parseProbeMode(options));
+		transformer.setFlatCounters(parseFlatCounters(options));
+		transformer.setCacheCounters(parseCacheCounters(options));
+		transformer.setSkipTrivialMethods(parseSkipTrivialMethods(options));
+		for (Exclusion each : parseExclusions(options)) {
+			transformer.addExclusion(each);
+		}
+		instrumentation.addTransformer(transformer);
+		ProbeControl.start(UndercoverSettings.load(), transformer.logger);
+	}
+
+	/**
+	 * Classes loaded before the agent is attached are not instrumented.
+	 */
+	public static void agentmain(String options, Instrumentation instrumentation) {
+		premain(options, instrumentation);
+	}
+
+	public OnlineInstrument(GlobFilter filter) {
+		this(filter, ProbeMode.COUNT);
+	}
+
+	public OnlineInstrument(GlobFilter filter, ProbeMode probeMode) {
+		this.filter = filter;
+		instrument = new Instrument();
+		instrument.addFilter(filter);
+		instrument.setProbeMode(probeMode);
+	}
+
+	public void setLogger(Logger logger) {
+		this.logger = logger;
+	}
+
+	public void setFlatCounters(boolean flatCounters) {
+		instrument.setFlatCounters(flatCounters);
+	}
+
+	public void setCacheCounters(boolean cacheCounters) {
+		instrument.setCacheCounters(cacheCounters);
+	}
+
+	public void setSkipTrivialMethods(boolean skipTrivialMethods) {
+		instrument.setSkipTrivialMethods(skipTrivialMethods);
+	}
+
+	public void addExclusion(Exclusion exclusion) {
+		instrument.addExclusion(exclusion);
+	}
+
+	public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer) throws IllegalClassFormatException {
+		if (loader == null || className == null || classBeingRedefined != null) {
+			return null;
+		}
+		if (isReserved(className) || !filter.accept(className)) {
+			return null;
+		}
+		try {
+			ClassReader reader = new ClassReader(classfileBuffer);
+			if (instrument.isExcluded(reader)) {
+				return null;
+			}
+			ClassWriter writer = Instrument.newClassWriter(reader, getClassHierarchy(loader));
+			ClassMeta classMeta = instrument.instrument(reader, writer);
+			return classMeta == null ? null : writer.toByteArray();
+		} catch (RuntimeException e) {
+			logger.error("Unable to instrument class " + className + ": " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Super classes are resolved from class files of the loader of the instrumented class.
+	 * Resolved types are kept for each loader without holding the loader.
+	 * The lock is held only to look up the types, never while class files are read.
+	 */
+	ClassHierarchy getClassHierarchy(ClassLoader loader) {
+		Map<String, ClassHierarchy.Type> result;
+		synchronized (types) {
+			result = types.get(loader);
+			if (result == null) {
+				result = new ConcurrentHashMap<String, ClassHierarchy.Type>();
+				types.put(loader, result);
+			}
+		}
+		return new ClassHierarchy(loader, result);
+	}
+
+	static boolean isReserved(String className) {
+		for (String each : RESERVED_PACKAGES) {
+			if (className.startsWith(each)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static GlobFilter parseFilter(String options) {
+		List<String> includes = new ArrayList<String>();
+		List<String> excludes = new ArrayList<String>();
+		for (String[] each : parseOptions(options)) {
+			if ("include".equals(each[0])) {
+				includes.add(each[1]);
+			} else if ("exclude".equals(each[0])) {
+				excludes.add(each[1]);
+			}
+		}
+		return new GlobFilter(includes.toArray(new String[includes.size()]), excludes.toArray(new String[excludes.size()]));
+	}
+
+	static ProbeMode parseProbeMode(String options) {
+		ProbeMode result = ProbeMode.COUNT;
+		for (String[] each : parseOptions(options)) {
+			if ("probe".equals(each[0])) {
+				result = ProbeMode.parse(each[1]);
+			}
+		}
+		return result;
+	}
+
+	static boolean parseFlatCounters(String options) {
+		return parseBoolean(options, "flat");
+	}
+
+	static boolean parseCacheCounters(String options) {
+		return parseBoolean(options, "cache");
+	}
+
+	static boolean parseSkipTrivialMethods(String options) {
+		return parseBoolean(options, "skipTrivial");
+	}
+
+	static List<Exclusion> parseExclusions(String options) {
+		List<Exclusion> result = new ArrayList<Exclusion>();
+		List<String> annotations = new ArrayList<String>();
+		List<String> methods = new ArrayList<String>();
+		for (String[] each : parseOptions(options)) {
+			if ("excludeAnnotation".equals(each[0])) {
+				annotations.add(each[1]);
+			} else if ("excludeAccess".equals(each[0])) {
+				result.add(AccessExclusion.parse(each[1]));
+			} else if ("excludeMethod".equals(each[0])) {
+				methods.add(each[1]);
+			}
+		}
+		if (!annotations.isEmpty()) {
+			result.add(new AnnotationExclusion(annotations.toArray(new String[annotations.size()])));
+		}
+		if (!methods.isEmpty()) {
+			result.add(new MethodExclusion(methods.toArray(new String[methods.size()])));
+		}
+		return result;
+	}
+
+	static boolean parseBoolean(String options, String key) {
+		boolean result = false;
+		for (String[] each : parseOptions(options)) {
+			if (key.equals(each[0])) {
+				result = Boolean.valueOf(each[1]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return key and value pairs.
+	 */
+	static List<String[]> parseOptions(String options) {
+		List<String[]> result = new ArrayList<String[]>();
+		if (options != null) {
+			for (String each : options.split(",")) {
+				if (each.trim().length() == 0) {
+					continue;
+				}
+				int separator = each.indexOf('=');
+				String key = separator == -1 ? each : each.substring(0, separator).trim();
+				String value = separator == -1 ? "" : each.substring(separator + 1).trim();
+				if (!OPTION_KEYS.contains(key)) {
+					throw new IllegalArgumentException("Unknown agent option " + each);
+				}
+				result.add(new String[] { key, value });
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,50 @@
+package undercover.instrument;
+
+import java.util.Locale;
+
+/**
+ * What a probe records when a block is executed, chosen at instrument time.
+ */
+public enum ProbeMode {
+	/**
+	 * Sets a flag of the block in a flat boolean array of the class. Cheapest, a single store.
+	 * Coverage data has no execution counts.
+	 */
+	HIT(3),
+	/**
+	 * Increments the counter without synchronization. Counts are lost under contention, and may overflow.
+	 */
+	COUNT(4),
+	/**
+	 * Increments the counter without synchronization, but stops at {@link Integer#MAX_VALUE}.
+	 */
+	SATURATE(5),
+	/**
+	 * Increments a counter of the current thread, so that no count is lost.
+	 * Counters of all threads are summed when coverage data is saved.
+	 * Each call of an instrumented method looks up counters of the current thread once, which costs a {@link ThreadLocal#get()}.
+	 */
+	EXACT(4);
+	
+	final int maxStack;
+	
+	private ProbeMode(int maxStack) {
+		this.maxStack = maxStack;
+	}
+	
+	/**
+	 * @param name case insensitive name of the mode.
+	 * @throws IllegalArgumentException if there is no such mode.
+	 */
+	public static ProbeMode parse(String name) {
+		try {
+			return valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown probe mode " + name);
+		}
+	}
+	
+	public String toString() {
+		return name().toLowerCase(Locale.ENGLISH);
+	}
+}
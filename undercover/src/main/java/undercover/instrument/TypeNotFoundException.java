@@ -0,0 +1,16 @@
+package undercover.instrument;
+
+/**
+ * Thrown when a type whose super classes are needed for stack map frames has no class file,
+ * e.g. because the class path is incomplete. The class being instrumented should be kept as it is.
+ */
+public class TypeNotFoundException extends RuntimeException {
+	private static final long serialVersionUID = -3467195301734282716L;
+
+	public final String typeName;
+
+	public TypeNotFoundException(String typeName) {
+		super("Class file of " + typeName + " is not found to compute stack map frames");
+		this.typeName = typeName;
+	}
+}
@@ -0,0 +1,75 @@
+package undercover.instrument.filter;
+
+import static org.objectweb.asm.Opcodes.*;
+import static undercover.instrument.filter.ExclusionUtils.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Excludes methods which have all the access flags, e.g. <code>private static synthetic</code> for bodies of lambdas.
+ */
+public class AccessExclusion implements Exclusion {
+	static final Map<String, Integer> FLAGS = new LinkedHashMap<String, Integer>();
+	private final int access;
+
+	static {
+		FLAGS.put("public", ACC_PUBLIC);
+		FLAGS.put("private", ACC_PRIVATE);
+		FLAGS.put("protected", ACC_PROTECTED);
+		FLAGS.put("static", ACC_STATIC);
+		FLAGS.put("final", ACC_FINAL);
+		FLAGS.put("synchronized", ACC_SYNCHRONIZED);
+		FLAGS.put("bridge", ACC_BRIDGE);
+		FLAGS.put("varargs", ACC_VARARGS);
+		FLAGS.put("native", ACC_NATIVE);
+		FLAGS.put("abstract", ACC_ABSTRACT);
+		FLAGS.put("strict", ACC_STRICT);
+		FLAGS.put("synthetic", ACC_SYNTHETIC);
+	}
+
+	public AccessExclusion(int access) {
+		this.access = access;
+	}
+
+	/**
+	 * @param flags names of access flags separated by spaces, e.g. <code>private static synthetic</code>.
+	 * @throws IllegalArgumentException if a flag is unknown or no flag is given.
+	 */
+	public static AccessExclusion parse(String flags) {
+		int access = 0;
+		for (String each : flags.trim().split("\\s+")) {
+			Integer flag = FLAGS.get(each.toLowerCase());
+			if (flag == null) {
+				throw new IllegalArgumentException("Unknown access flag '" + each + "'. Must be one of " + FLAGS.keySet());
+			}
+			access |= flag;
+		}
+		return new AccessExclusion(access);
+	}
+
+	public boolean exclude(String className) {
+		return false;
+	}
+
+	public boolean exclude(ClassNode classNode) {
+		return false;
+	}
+
+	public boolean exclude(ClassNode classNode, MethodNode methodNode) {
+		return hasAccess(methodNode.access, access);
+	}
+
+	public String toString() {
+		StringBuilder builder = new StringBuilder("access=");
+		for (Map.Entry<String, Integer> each : FLAGS.entrySet()) {
+			if (hasAccess(access, each.getValue())) {
+				builder.append(each.getKey()).append(' ');
+			}
+		}
+		return builder.toString().trim();
+	}
+}
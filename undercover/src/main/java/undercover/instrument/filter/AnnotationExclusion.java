@@ -0,0 +1,61 @@
+package undercover.instrument.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Excludes classes and methods annotated with any of the annotations, such as <code>lombok/Generated</code>.
+ * Annotations are matched by {@link GlobPattern}s of internal names, e.g. <code>**&#47;Generated</code>.
+ * Only annotations kept in class files, of <code>CLASS</code> or <code>RUNTIME</code> retention, can be matched.
+ */
+public class AnnotationExclusion implements Exclusion {
+	private final List<String> annotations;
+	private final GlobMatcher matcher;
+
+	/**
+	 * @param annotations patterns of internal or qualified names of annotations.
+	 */
+	public AnnotationExclusion(String... annotations) {
+		this.annotations = Arrays.asList(annotations);
+		Collection<GlobPattern> patterns = new ArrayList<GlobPattern>();
+		for (String each : annotations) {
+			patterns.add(new GlobPattern(each.replace('.', '/')));
+		}
+		matcher = new GlobMatcher(patterns);
+	}
+
+	public boolean exclude(String className) {
+		return false;
+	}
+
+	public boolean exclude(ClassNode classNode) {
+		return isAnnotated(classNode.visibleAnnotations) || isAnnotated(classNode.invisibleAnnotations);
+	}
+
+	public boolean exclude(ClassNode classNode, MethodNode methodNode) {
+		return isAnnotated(methodNode.visibleAnnotations) || isAnnotated(methodNode.invisibleAnnotations);
+	}
+
+	boolean isAnnotated(List<AnnotationNode> annotationNodes) {
+		if (annotationNodes == null) {
+			return false;
+		}
+		for (AnnotationNode each : annotationNodes) {
+			if (matcher.match(Type.getType(each.desc).getInternalName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public String toString() {
+		return "annotations=" + annotations;
+	}
+}
@@ -7,6 +7,9 @@ import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodNode;
 
 public class BridgeMethodExclusion implements Exclusion {
+	public boolean exclude(String className) {
+		return false;
+	}
 
 	public boolean exclude(ClassNode classNode) {
 		return false;
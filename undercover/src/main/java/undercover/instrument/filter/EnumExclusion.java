@@ -10,6 +10,10 @@ import org.objectweb.asm.tree.MethodNode;
  * Exclude synthetic methods for enums.
  */
 public class EnumExclusion implements Exclusion {
+	public boolean exclude(String className) {
+		return false;
+	}
+
 	public boolean exclude(ClassNode classNode) {
 		return false;
 	}
@@ -4,6 +4,10 @@ import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodNode;
 
 public interface Exclusion {
+	/**
+	 * Excludes a class by its name only, before the class is parsed.
+	 */
+	boolean exclude(String className);
 	boolean exclude(ClassNode classNode);
 	boolean exclude(ClassNode classNode, MethodNode methodNode);
 }
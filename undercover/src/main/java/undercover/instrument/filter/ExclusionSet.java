@@ -23,6 +23,15 @@ public class ExclusionSet implements Exclusion {
 		exclusions.add(exclusion);
 	}
 
+	public boolean exclude(String className) {
+		for (Exclusion each : exclusions) {
+			if (each.exclude(className)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public boolean exclude(ClassNode classNode) {
 		for (Exclusion each : exclusions) {
 			if (each.exclude(classNode)) {
@@ -42,6 +51,6 @@ public class ExclusionSet implements Exclusion {
 	}
 	
 	public static ExclusionSet withDefault() {
-		return new ExclusionSet(Arrays.asList(new BridgeMethodExclusion(), new NestedClassExclusion(), new EnumExclusion()));
+		return new ExclusionSet(Arrays.asList(new InfoClassExclusion(), new BridgeMethodExclusion(), new NestedClassExclusion(), new EnumExclusion()));
 	}
 }
@@ -9,7 +9,11 @@ public class GlobExclusion extends NoExclusion {
 		this.globFilter = globFilter;
 	}
 	
+	public boolean exclude(String className) {
+		return !globFilter.accept(className);
+	}
+
 	public boolean exclude(ClassNode classNode) {
-		return !globFilter.accept(classNode.name);
+		return exclude(classNode.name);
 	}
 }
@@ -6,37 +6,30 @@ import java.util.Collection;
 
 /**
  * Folows <a href="http://emma.sourceforge.net/reference/ch02s06s02.html">Emma inclusion/exclusion matching algorithm</a>.
+ * All includes and all excludes are each compiled into a {@link GlobMatcher}.
  */
 public class GlobFilter {
 	private final Collection<GlobPattern> includePatterns;
 	private final Collection<GlobPattern> excludePatterns;
+	private final GlobMatcher includeMatcher;
+	private final GlobMatcher excludeMatcher;
 	
 	public GlobFilter(String[] includes, String[] excludes) {
 		includePatterns = patterns(Arrays.asList(includes));
 		excludePatterns = patterns(Arrays.asList(excludes));
+		includeMatcher = new GlobMatcher(includePatterns);
+		excludeMatcher = new GlobMatcher(excludePatterns);
 	}
 	
 	public boolean accept(String name) {
-		if (!includePatterns.isEmpty()) {
-			boolean included = false;
-			for (GlobPattern each : includePatterns) {
-				if (each.match(name)) {
-					included = true;
-					break;
-				}
-			}
-			if (!included) {
-				return false;
-			}
+		if (!includePatterns.isEmpty() && !includeMatcher.match(name)) {
+			return false;
 		}
-		if (!excludePatterns.isEmpty()) {
-			for (GlobPattern each : excludePatterns) {
-				if (each.match(name)) {
-					return false;
-				}
-			}
-		}
-		return true;
+		return !excludeMatcher.match(name);
+	}
+
+	public String toString() {
+		return "includes=" + includePatterns + ", excludes=" + excludePatterns;
 	}
 
 	static Collection<GlobPattern> patterns(Collection<String> expression) {
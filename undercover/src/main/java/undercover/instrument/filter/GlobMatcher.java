@@ -0,0 +1,211 @@
+package undercover.instrument.filter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Matches a name against any of many {@link GlobPattern}s in a single scan of the name.
+ * Patterns are compiled into one nondeterministic automaton, whose deterministic states are built lazily and shared by all names.
+ * Common literal prefixes of patterns are therefore scanned once as in a trie, and no pattern ever backtracks.
+ * Safe to be used concurrently.
+ */
+public class GlobMatcher {
+	static final int CHAR = 0;
+	static final int ANY = 1;
+	static final int STAR = 2;
+	static final int DIRS = 3;
+	static final int DIRS_LOOP = 4;
+	static final int ALL = 5;
+	static final int END = 6;
+	private static final int ASCII = 128;
+
+	private final int[] kinds;
+	private final char[] chars;
+	private final int[] nexts;
+	private final ConcurrentMap<BitSet, State> states;
+	private final State initial;
+
+	/**
+	 * Set of positions of the nondeterministic automaton, with transitions which are added as they are followed.
+	 */
+	class State {
+		final BitSet positions;
+		final boolean accepting;
+		final boolean acceptingAll;
+		final State[] asciiTransitions;
+		final ConcurrentMap<Character, State> otherTransitions;
+
+		State(BitSet positions) {
+			this.positions = positions;
+			boolean accepting = false;
+			boolean acceptingAll = false;
+			for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+				accepting |= kinds[i] == END;
+				acceptingAll |= kinds[i] == ALL;
+			}
+			this.accepting = accepting;
+			this.acceptingAll = acceptingAll;
+			asciiTransitions = new State[ASCII];
+			otherTransitions = new ConcurrentHashMap<Character, State>();
+		}
+
+		boolean isDead() {
+			return positions.isEmpty();
+		}
+	}
+
+	public GlobMatcher(Collection<GlobPattern> patterns) {
+		List<int[]> positions = new ArrayList<int[]>();
+		BitSet starts = new BitSet();
+		for (GlobPattern each : patterns) {
+			starts.set(positions.size());
+			compile(each.getExpression(), positions);
+		}
+		kinds = new int[positions.size()];
+		chars = new char[positions.size()];
+		nexts = new int[positions.size()];
+		for (int i = 0; i < kinds.length; i++) {
+			int[] position = positions.get(i);
+			kinds[i] = position[0];
+			chars[i] = (char) position[1];
+			nexts[i] = position[2];
+		}
+		states = new ConcurrentHashMap<BitSet, State>();
+		BitSet closure = new BitSet(kinds.length);
+		for (int i = starts.nextSetBit(0); i >= 0; i = starts.nextSetBit(i + 1)) {
+			close(closure, i);
+		}
+		initial = intern(closure);
+	}
+
+	/**
+	 * Appends positions of the pattern, each of which is <code>{ kind, char, next position }</code>.
+	 * Follows {@link GlobPattern}: <code>**&#47;</code> matches zero or more directories and trailing <code>**</code> matches anything.
+	 */
+	static void compile(String expression, List<int[]> positions) {
+		int length = expression.length();
+		int index = 0;
+		while (index < length) {
+			int position = positions.size();
+			char c = expression.charAt(index);
+			if (c == '*') {
+				if (expression.startsWith("**/", index)) {
+					positions.add(new int[] { DIRS, 0, position + 2 });
+					positions.add(new int[] { DIRS_LOOP, 0, position + 2 });
+					index += 2;
+				} else if (expression.substring(index).equals("**")) {
+					positions.add(new int[] { ALL, 0, position + 1 });
+					index += 1;
+				} else {
+					positions.add(new int[] { STAR, 0, position + 1 });
+				}
+			} else if (c == '?') {
+				positions.add(new int[] { ANY, 0, position + 1 });
+			} else {
+				positions.add(new int[] { CHAR, c, position + 1 });
+			}
+			index++;
+		}
+		positions.add(new int[] { END, 0, -1 });
+	}
+
+	public boolean match(String name) {
+		State state = initial;
+		int length = name.length();
+		for (int i = 0; i < length; i++) {
+			if (state.acceptingAll) {
+				return true;
+			}
+			if (state.isDead()) {
+				return false;
+			}
+			state = next(state, name.charAt(i));
+		}
+		return state.accepting;
+	}
+
+	/**
+	 * Racing threads may build the same transition twice, which ends in the same interned state.
+	 */
+	State next(State state, char c) {
+		State result = c < ASCII ? state.asciiTransitions[c] : state.otherTransitions.get(c);
+		if (result == null) {
+			result = intern(step(state.positions, c));
+			if (c < ASCII) {
+				state.asciiTransitions[c] = result;
+			} else {
+				state.otherTransitions.put(c, result);
+			}
+		}
+		return result;
+	}
+
+	BitSet step(BitSet positions, char c) {
+		BitSet result = new BitSet(kinds.length);
+		for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+			switch (kinds[i]) {
+			case CHAR:
+				if (c == chars[i]) {
+					close(result, nexts[i]);
+				}
+				break;
+			case ANY:
+				if (c != '/') {
+					close(result, nexts[i]);
+				}
+				break;
+			case STAR:
+				if (c != '/') {
+					close(result, i);
+				}
+				break;
+			case DIRS:
+				close(result, i + 1);
+				if (c == '/') {
+					close(result, nexts[i]);
+				}
+				break;
+			case DIRS_LOOP:
+				close(result, i);
+				if (c == '/') {
+					close(result, nexts[i]);
+				}
+				break;
+			case ALL:
+				close(result, i);
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the position and positions reachable from it without consuming a character.
+	 */
+	void close(BitSet positions, int position) {
+		if (positions.get(position)) {
+			return;
+		}
+		positions.set(position);
+		int kind = kinds[position];
+		if (kind == STAR || kind == DIRS || kind == ALL) {
+			close(positions, nexts[position]);
+		}
+	}
+
+	State intern(BitSet positions) {
+		State state = states.get(positions);
+		if (state == null) {
+			state = new State(positions);
+			State previous = states.putIfAbsent(positions, state);
+			if (previous != null) {
+				state = previous;
+			}
+		}
+		return state;
+	}
+}
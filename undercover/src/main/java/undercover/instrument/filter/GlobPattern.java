@@ -1,46 +1,29 @@
 package undercover.instrument.filter;
 
-import java.util.regex.Pattern;
+import java.util.Collections;
 
 /**
  * Ant style <a href="http://ant.apache.org/manual/dirtasks.html#patterns">glob pattern matching</a>.
+ * @see GlobMatcher
  */
 public class GlobPattern {
-	private final Pattern pattern;
+	private final String expression;
+	private final GlobMatcher matcher;
 	
 	public GlobPattern(String expression) {
-		pattern = Pattern.compile(toRegex(expression));
+		this.expression = expression;
+		matcher = new GlobMatcher(Collections.singleton(this));
 	}
 
 	public boolean match(String name) {
-		return pattern.matcher(name).matches();
+		return matcher.match(name);
 	}
 	
-	String toRegex(String expression) {
-		StringBuilder regex = new StringBuilder();
-		int length = expression.length();
-		int index = 0;
-		while (index < length) {
-			char c = expression.charAt(index);
-			if (c == '*') {
-				if (expression.startsWith("**/", index)) {
-					regex.append("([^/]*/)*");
-					index += 2;
-				} else if (expression.substring(index).equals("**")) {
-					regex.append("([^/]*/)*[^/]*");
-					index += 1;
-				} else {
-					regex.append("[^/]*");
-				}
-			} else if (c == '?') {
-				regex.append("[^/]");
-			} else if ("!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~".indexOf(c) >= 0) {
-				regex.append("\\").append(c);
-			} else {
-				regex.append(c);
-			}
-			index++;
-		}
-		return regex.toString();
+	String getExpression() {
+		return expression;
+	}
+	
+	public String toString() {
+		return expression;
 	}
 }
@@ -0,0 +1,22 @@
+package undercover.instrument.filter;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import org.objectweb.asm.tree.ClassNode;
+
+/**
+ * Excludes <code>module-info</code> and <code>package-info</code> classes, which may have no fields or methods.
+ */
+public class InfoClassExclusion extends NoExclusion {
+	public boolean exclude(String className) {
+		return isInfo(className, "module-info") || isInfo(className, "package-info");
+	}
+
+	static boolean isInfo(String className, String simpleName) {
+		return className.equals(simpleName) || className.endsWith("/" + simpleName);
+	}
+
+	public boolean exclude(ClassNode classNode) {
+		return (classNode.access & ACC_MODULE) != 0;
+	}
+}
@@ -0,0 +1,52 @@
+package undercover.instrument.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Excludes methods by {@link GlobPattern}s of their names and, optionally, descriptors.
+ * A pattern is either a name such as <code>get*</code>, or a name followed by a descriptor such as <code>hashCode()I</code>
+ * or <code>set*(**</code>. In descriptors, <code>**</code> matches class names with packages.
+ */
+public class MethodExclusion implements Exclusion {
+	private final List<String> methods;
+	private final List<GlobPattern> namePatterns;
+	private final List<GlobPattern> descPatterns;
+
+	public MethodExclusion(String... methods) {
+		this.methods = Arrays.asList(methods);
+		namePatterns = new ArrayList<GlobPattern>();
+		descPatterns = new ArrayList<GlobPattern>();
+		for (String each : methods) {
+			int index = each.indexOf('(');
+			namePatterns.add(new GlobPattern(index < 0 ? each : each.substring(0, index)));
+			descPatterns.add(index < 0 ? null : new GlobPattern(each.substring(index)));
+		}
+	}
+
+	public boolean exclude(String className) {
+		return false;
+	}
+
+	public boolean exclude(ClassNode classNode) {
+		return false;
+	}
+
+	public boolean exclude(ClassNode classNode, MethodNode methodNode) {
+		for (int i = 0; i < namePatterns.size(); i++) {
+			GlobPattern descPattern = descPatterns.get(i);
+			if (namePatterns.get(i).match(methodNode.name) && (descPattern == null || descPattern.match(methodNode.desc))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public String toString() {
+		return "methods=" + methods;
+	}
+}
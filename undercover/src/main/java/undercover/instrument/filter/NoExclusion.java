@@ -4,6 +4,10 @@ import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodNode;
 
 public class NoExclusion implements Exclusion {
+	public boolean exclude(String className) {
+		return false;
+	}
+
 	public boolean exclude(ClassNode classNode) {
 		return false;
 	}
@@ -0,0 +1,77 @@
+package undercover.junit;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
+
+import undercover.runtime.Helper;
+import undercover.runtime.Probe;
+import undercover.runtime.TestCoverage;
+import undercover.runtime.TestCoverageWriter;
+
+/**
+ * Records blocks executed by each test, for test impact analysis.
+ * Register as a JUnit run listener, e.g. by the <code>listener</code> property of Surefire.
+ * Each JVM writes a file <code>tests-RUN.tc</code> into {@link undercover.runtime.UndercoverSettings#getTestCoverageDirectory()}.
+ * <p>
+ * Counters are collected by {@link Probe#collect()}, so that coverage data saved on exit still has every test.
+ * Tests must run one at a time, since executions of other tests would be lost or attributed to the wrong test,
+ * so a test which starts before the previous one finishes is refused with an <code>IllegalStateException</code>.
+ */
+public class CoverageListener extends RunListener {
+	private final Probe probe;
+	private final File directory;
+	private FileOutputStream output;
+	private TestCoverageWriter writer;
+	private Description running;
+
+	public CoverageListener() {
+		this(Probe.INSTANCE, Probe.INSTANCE.getSettings().getTestCoverageDirectory());
+	}
+
+	CoverageListener(Probe probe, File directory) {
+		this.probe = probe;
+		this.directory = directory;
+	}
+
+	/**
+	 * Coverage between tests, e.g. of class initializers, is attributed to no test.
+	 */
+	public void testStarted(Description description) {
+		if (running != null) {
+			throw new IllegalStateException("Unable to record coverage of tests run in parallel: " + getTestName(running) + " and " + getTestName(description));
+		}
+		running = description;
+		probe.collect();
+	}
+
+	public void testFinished(Description description) throws IOException {
+		if (!description.equals(running)) {
+			throw new IllegalStateException("Unable to record coverage of tests run in parallel: " + getTestName(description));
+		}
+		running = null;
+		TestCoverage testCoverage = TestCoverage.of(getTestName(description), probe.collect());
+		if (writer == null) {
+			directory.mkdirs();
+			output = new FileOutputStream(new File(directory, "tests-" + Helper.newRunId() + ".tc"));
+			writer = new TestCoverageWriter(output.getChannel());
+		}
+		writer.write(testCoverage);
+	}
+
+	public void testRunFinished(Result result) {
+		running = null;
+		Helper.closeQuietly(output);
+		output = null;
+		writer = null;
+	}
+
+	static String getTestName(Description description) {
+		String methodName = description.getMethodName();
+		return methodName == null ? description.getDisplayName() : description.getClassName() + "#" + methodName;
+	}
+}
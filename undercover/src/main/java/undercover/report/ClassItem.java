@@ -2,7 +2,9 @@ package undercover.report;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ClassItem implements Item {
 	private final String name;
@@ -10,6 +12,7 @@ public class ClassItem implements Item {
 	public final List<Item> children;
 	public final List<MethodItem> methods;
 	public final List<ClassItem> classes;
+	private final Map<String, MethodItem> methodsByName;
 	private final BlockMetrics blockMetrics;
 	private final MethodMetrics methodMetrics;
 	
@@ -18,6 +21,7 @@ public class ClassItem implements Item {
 		children = new ArrayList<Item>();
 		methods = new ArrayList<MethodItem>();
 		classes = new ArrayList<ClassItem>();
+		methodsByName = new HashMap<String, MethodItem>();
 		blockMetrics = new BlockMetrics(children);
 		methodMetrics = new MethodMetrics(children);
 	}
@@ -50,15 +54,13 @@ public class ClassItem implements Item {
 	public void addMethod(MethodItem methodItem) {
 		children.add(methodItem);
 		methods.add(methodItem);
+		if (!methodsByName.containsKey(methodItem.getName())) {
+			methodsByName.put(methodItem.getName(), methodItem);
+		}
 	}
 
 	public MethodItem getMethod(String methodName) {
-		for (MethodItem each : methods) {
-			if (each.getName().equals(methodName)) {
-				return each;
-			}
-		}
-		return null;
+		return methodsByName.get(methodName);
 	}
 
 	public void addClass(ClassItem classItem) {
@@ -37,6 +37,7 @@ public class ReportDataBuilder implements MetaDataVisitor {
 	MethodItem methodItem;
 	int methodIndex;
 	int blockIndex;
+	boolean trivialMethod;
 	
 	public ReportDataBuilder(File metaDataFile, File coverageDataFile) throws IOException {
 		metaData = MetaData.load(metaDataFile);
@@ -131,6 +132,7 @@ public class ReportDataBuilder implements MetaDataVisitor {
 	public void visitEnter(MethodMeta methodMeta) {
 		logger.debug("Reading metadata for method " + methodMeta.name + methodMeta.descriptor);
 		blockIndex = 0;
+		trivialMethod = methodMeta.trivial;
 	}
 
 	public void visitLeave(MethodMeta methodMeta) {
@@ -143,7 +145,8 @@ public class ReportDataBuilder implements MetaDataVisitor {
 	public void visit(BlockMeta blockMeta) {
 		logger.debug("Reading metadata for block " + blockMeta.toString());
 		int executionCount = classCoverage == null ? 0 : classCoverage.countExecution(methodIndex, blockIndex);
-		sourceItem.addBlock(blockMeta, executionCount);
+		// A trivial method records a hit, not a count
+		sourceItem.addBlock(blockMeta, executionCount, (classCoverage == null || classCoverage.counted) && !trivialMethod);
 		blockIndex++;
 	}
 }
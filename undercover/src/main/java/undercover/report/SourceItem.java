@@ -49,8 +49,15 @@ public class SourceItem implements Item {
 	}
 	
 	public void addBlock(BlockMeta blockMeta, int executionCount) {
+		addBlock(blockMeta, executionCount, true);
+	}
+	
+	/**
+	 * @param counted <code>false</code> if execution count is 1 for executed and 0 for not executed.
+	 */
+	public void addBlock(BlockMeta blockMeta, int executionCount, boolean counted) {
 		if (sourceFile.isExist()) {
-			addUpLineCoverage(blockMeta, executionCount);
+			addUpLineCoverage(blockMeta, executionCount, counted);
 		}
 	}
 	
@@ -98,13 +105,13 @@ public class SourceItem implements Item {
 		return lines;
 	}
 	
-	void addUpLineCoverage(BlockMeta blockMeta, int executionCount) {
+	void addUpLineCoverage(BlockMeta blockMeta, int executionCount, boolean counted) {
 		for (int lineNumber : blockMeta.lines) {
 			if (lines.size() < lineNumber) {
 				continue;
 			}
 			SourceLine sourceLine = lines.get(lineNumber - 1);
-			sourceLine.addBlock(executionCount);
+			sourceLine.addBlock(executionCount, counted);
 		}
 	}
 }
@@ -6,6 +6,10 @@ public class SourceLine {
 	public int blockCount = 0;
 	public int coveredBlockCount = 0;
 	public int touchCount = 0;
+	/**
+	 * <code>false</code> if any block of the line has no execution count, only whether it is executed or not.
+	 */
+	public boolean touchCounted = true;
 	
 	public SourceLine(int number, String text) {
 		this.number = number;
@@ -13,7 +17,15 @@ public class SourceLine {
 	}
 	
 	public void addBlock(int executionCount) {
+		addBlock(executionCount, true);
+	}
+	
+	/**
+	 * @param counted <code>false</code> if execution count is 1 for executed and 0 for not executed.
+	 */
+	public void addBlock(int executionCount, boolean counted) {
 		blockCount++;
+		touchCounted &= counted;
 		if (executionCount > 0) {
 			coveredBlockCount++;
 			touchCount = Math.max(touchCount, executionCount);
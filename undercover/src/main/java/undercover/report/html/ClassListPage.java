@@ -4,17 +4,18 @@ import java.util.Collection;
 
 import undercover.report.ClassItem;
 import undercover.support.xml.Element;
+import undercover.support.xml.XmlStream;
 
 public abstract class ClassListPage extends ReportPage {
 	@Override
-	public Element getBody() {
-		return body().append(
-				classList(getClassItems())
-				);
+	public void writeBody(XmlStream out) {
+		out.start(body());
+		writeClassList(out, getClassItems());
+		out.end();
 	}
 
-	protected Element classList(Collection<ClassItem> classes) {
-		return table().attr("class", "item-children").append(
+	protected void writeClassList(XmlStream out, Collection<ClassItem> classes) {
+		out.start(table().attr("class", "item-children").append(
 				colgroup().append(
 						col().attr("width", "*"),
 						col().attr("width", "80")
@@ -24,22 +25,19 @@ public abstract class ClassListPage extends ReportPage {
 								th().append("Class"),
 								th().append("Coverage")
 								)
-						),
-				classListBody(classes)
-				);
-	}
-
-	protected Element classListBody(Collection<ClassItem> classes) {
-		Element result = tbody();
+						)
+				)).start(tbody());
 		for (ClassItem each : classes) {
-			result.append(
-					tr().append(
-							td().append(a().attr("href", "source-" + each.getSource().getLinkName() + ".html").attr("target", "classPane").append(each.getSimpleName())),
-							td().attr("class", "coverage").append(CoverageFormat.percentShort(each.getBlockMetrics().getCoverage()))
-							)
-					);
+			out.write(classRow(each));
 		}
-		return result;
+		out.end().end();
+	}
+
+	protected Element classRow(ClassItem classItem) {
+		return tr().append(
+				td().append(a().attr("href", "source-" + classItem.getSource().getLinkName() + ".html").attr("target", "classPane").append(classItem.getSimpleName())),
+				td().attr("class", "coverage").append(CoverageFormat.percentShort(classItem.getBlockMetrics().getCoverage()))
+				);
 	}
 
 	public abstract Collection<ClassItem> getClassItems();
@@ -10,6 +10,7 @@ import undercover.report.ClassItem;
 import undercover.report.Item;
 import undercover.report.ReportData;
 import undercover.support.xml.Element;
+import undercover.support.xml.XmlStream;
 
 public class DashboardPage extends SummaryPage {
 	private final ReportData reportData;
@@ -24,8 +25,8 @@ public class DashboardPage extends SummaryPage {
 	}
 	
 	@Override
-	public Element getBody() {
-		return body().append(
+	public void writeBody(XmlStream out) {
+		out.write(body().append(
 				new NavigationPanel().build(),
 				new ItemStatisticsPanel(reportData).build(),
 				table().attr("class", "layout").append(
@@ -62,7 +63,7 @@ public class DashboardPage extends SummaryPage {
 								)
 						),
 				new CopyrightPanel().build()
-				);
+				));
 	}
 
 	@Override
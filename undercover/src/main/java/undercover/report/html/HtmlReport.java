@@ -1,5 +1,6 @@
 package undercover.report.html;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -14,9 +15,9 @@ import undercover.report.SourceItem;
 import undercover.support.FileUtils;
 import undercover.support.IOUtils;
 import undercover.support.xml.DoctypeDeclaration;
-import undercover.support.xml.Element;
 import undercover.support.xml.XmlDeclaration;
-import undercover.support.xml.XmlWriter;
+import undercover.support.xml.XmlStream;
+import undercover.support.xml.XmlStreamWriter;
 
 /**
  * Produce HTML report. 
@@ -80,15 +81,15 @@ public class HtmlReport {
 	}
 	
 	void generateProjectPackages() throws IOException {
-		write(new MenuPage(reportData).build(), "project-packages.html");
+		write(new MenuPage(reportData), "project-packages.html");
 	}
 
 	void generateProjectSummary() throws IOException {
-		write(new ProjectSummaryPage(reportData).build(), "project-summary.html");
+		write(new ProjectSummaryPage(reportData), "project-summary.html");
 	}
 
 	void generateProjectClasses() throws IOException {
-		write(new ProjectClassListPage(reportData).build(), "project-classes.html");
+		write(new ProjectClassListPage(reportData), "project-classes.html");
 	}
 
 	void generatePackageReports() throws IOException {
@@ -99,11 +100,11 @@ public class HtmlReport {
 	}
 
 	void generatePackageSummary(PackageItem packageItem) throws IOException {
-		write(new PackageSummaryPage(packageItem).build(), "package-" + packageItem.getLinkName() + "-summary.html");
+		write(new PackageSummaryPage(packageItem), "package-" + packageItem.getLinkName() + "-summary.html");
 	}
 
 	void generatePackageClasses(PackageItem packageItem) throws IOException {
-		write(new PackageClassListPage(packageItem).build(), "package-" + packageItem.getLinkName() + "-classes.html");
+		write(new PackageClassListPage(packageItem), "package-" + packageItem.getLinkName() + "-classes.html");
 	}
 
 	void generateSourceReports() throws IOException {
@@ -113,21 +114,24 @@ public class HtmlReport {
 	}
 	
 	void generateSourceSummary(SourceItem sourceItem) throws IOException {
-		write(new SourceSummaryPage(sourceItem).build(), "source-" + sourceItem.getLinkName() + ".html");
+		write(new SourceSummaryPage(sourceItem), "source-" + sourceItem.getLinkName() + ".html");
 	}
 	
 	void generateDashboardReport() throws IOException {
-		write(new DashboardPage(reportData).build(), "project-dashboard.html");
+		write(new DashboardPage(reportData), "project-dashboard.html");
 	}
 
-	void write(Element root, String path) throws IOException {
+	/**
+	 * Streams the page, so that no page is held in memory as a whole.
+	 */
+	void write(ReportPage page, String path) throws IOException {
 		PrintWriter writer = null;
 		try {
-			writer = new PrintWriter(openWriter(path));
-			XmlWriter xmlWriter = new XmlWriter(writer);
-			xmlWriter.visitXmlDeclaration(new XmlDeclaration("1.0", encoding));
-			xmlWriter.visitDoctypeDeclaration(new DoctypeDeclaration("html", "http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd", "-//W3C//DTD XHTML 1.0 Transitional//EN"));
-			root.accept(xmlWriter);
+			writer = new PrintWriter(new BufferedWriter(openWriter(path)));
+			XmlStream out = new XmlStreamWriter(writer);
+			out.write(new XmlDeclaration("1.0", encoding));
+			out.write(new DoctypeDeclaration("html", "http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd", "-//W3C//DTD XHTML 1.0 Transitional//EN"));
+			page.write(out);
 		} finally {
 			IOUtils.closeQuietly(writer);
 		}
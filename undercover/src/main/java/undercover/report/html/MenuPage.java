@@ -5,6 +5,7 @@ import java.util.Collection;
 import undercover.report.PackageItem;
 import undercover.report.ReportData;
 import undercover.support.xml.Element;
+import undercover.support.xml.XmlStream;
 
 public class MenuPage extends ReportPage {
 	private final ReportData reportData;
@@ -19,15 +20,14 @@ public class MenuPage extends ReportPage {
 	}
 	
 	@Override
-	public Element getBody() {
-		return body().append(
-				new RoundedPanel(h2().append("Undercover Coverage Report")).build(),
-				div().attr("class", "navigation").append(
-						mainMenu(),
-						h3().append("Packages"),
-						packageList(reportData.getPackages())
-						)
-				);
+	public void writeBody(XmlStream out) {
+		out.start(body()).write(new RoundedPanel(h2().append("Undercover Coverage Report")).build());
+		out.start(div().attr("class", "navigation").append(
+				mainMenu(),
+				h3().append("Packages")
+				));
+		writePackageList(out, reportData.getPackages());
+		out.end().end();
 	}
 	
 	Element mainMenu() {
@@ -36,14 +36,14 @@ public class MenuPage extends ReportPage {
 				li().append(a().attr("href", "project-summary.html").attr("target", "classPane").append("Overview")));
 	}
 	
-	Element packageList(Collection<PackageItem> packageItems) {
-		Element result = ul().attr("class", "package-list");
+	void writePackageList(XmlStream out, Collection<PackageItem> packageItems) {
+		out.start(ul().attr("class", "package-list"));
 		for (PackageItem each : packageItems) {
 			String summaryPage = "package-" + each.getLinkName() + "-summary.html";
-			result.append(li()
+			out.write(li()
 					.append(a().attr("href", summaryPage).attr("target", "classPane").append(each.getDisplayName()))
 					.append(" (" + CoverageFormat.percentShort(each.getBlockMetrics().getCoverage()) + ")"));
 		}
-		return result;
+		out.end();
 	}	
 }
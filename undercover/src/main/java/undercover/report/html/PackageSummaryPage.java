@@ -5,7 +5,7 @@ import java.util.Collection;
 import undercover.report.ClassItem;
 import undercover.report.MethodMetrics;
 import undercover.report.PackageItem;
-import undercover.support.xml.Element;
+import undercover.support.xml.XmlStream;
 
 public class PackageSummaryPage extends SummaryPage {
 	private final PackageItem packageItem;
@@ -20,14 +20,13 @@ public class PackageSummaryPage extends SummaryPage {
 	}
 	
 	@Override
-	public Element getBody() {
-		return body().append(
-				new NavigationPanel().build(),
-				new ItemStatisticsPanel(packageItem).build(),
-				h3().append("Classes"),
-				classList(packageItem.classes),
-				new CopyrightPanel().build()
-				);
+	public void writeBody(XmlStream out) {
+		out.start(body())
+			.write(new NavigationPanel().build())
+			.write(new ItemStatisticsPanel(packageItem).build())
+			.write(h3().append("Classes"));
+		writeClassList(out, packageItem.classes);
+		out.write(new CopyrightPanel().build()).end();
 	}
 	
 	@Override
@@ -35,8 +34,8 @@ public class PackageSummaryPage extends SummaryPage {
 		return "package-" + packageItem.getLinkName() + "-classes.html";
 	};
 
-	Element classList(Collection<ClassItem> items) {
-		return table().attr("class", "item-children").append(
+	void writeClassList(XmlStream out, Collection<ClassItem> items) {
+		out.start(table().attr("class", "item-children").append(
 				colgroup().append(
 						col().attr("width", "*"),
 						col().attr("width", "70"),
@@ -54,16 +53,11 @@ public class PackageSummaryPage extends SummaryPage {
 								th().append("Complexity"),
 								th().append("Coverage").attr("colspan", "2")
 								)
-						),
-				classListBody(items)
-				);
-	}
-	
-	Element classListBody(Collection<ClassItem> items) {
-		Element result = tbody();
+						)
+				)).start(tbody());
 		for (ClassItem each : items) {
 			MethodMetrics methodMetrics = each.getMethodMetrics();
-			result.append(tr().append(
+			out.write(tr().append(
 					td().append(a().attr("href", "source-" + each.getSource().getLinkName() + ".html").append(each.getSimpleName())),
 					td().attr("class", "number").append(String.valueOf(methodMetrics.getCount())),
 					td().attr("class", "complexity").append(String.format("%.2f", methodMetrics.getComplexity().getAverage())),
@@ -73,6 +67,6 @@ public class PackageSummaryPage extends SummaryPage {
 					td().attr("class", "coverage").append(new CoverageBar(each).build())
 					));
 		}
-		return result;
+		out.end().end();
 	}
 }
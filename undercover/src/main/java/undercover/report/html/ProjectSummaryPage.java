@@ -5,7 +5,7 @@ import java.util.Collection;
 import undercover.report.ClassMetrics;
 import undercover.report.PackageItem;
 import undercover.report.ReportData;
-import undercover.support.xml.Element;
+import undercover.support.xml.XmlStream;
 
 public class ProjectSummaryPage extends SummaryPage {
 	private final ReportData reportData;
@@ -20,14 +20,13 @@ public class ProjectSummaryPage extends SummaryPage {
 	}
 	
 	@Override
-	public Element getBody() {
-		return body().append(
-				new NavigationPanel().build(),
-				new ItemStatisticsPanel(reportData).build(),
-				h3().append("Packages"),
-				packageList(reportData.getPackages()),
-				new CopyrightPanel().build()
-				);
+	public void writeBody(XmlStream out) {
+		out.start(body())
+			.write(new NavigationPanel().build())
+			.write(new ItemStatisticsPanel(reportData).build())
+			.write(h3().append("Packages"));
+		writePackageList(out, reportData.getPackages());
+		out.write(new CopyrightPanel().build()).end();
 	}
 	
 	@Override
@@ -35,8 +34,8 @@ public class ProjectSummaryPage extends SummaryPage {
 		return "project-classes.html";
 	};
 
-	Element packageList(Collection<PackageItem> items) {
-		return table().attr("class", "item-children").append(
+	void writePackageList(XmlStream out, Collection<PackageItem> items) {
+		out.start(table().attr("class", "item-children").append(
 				colgroup().append(
 						col().attr("width", "*"),
 						col().attr("width", "70"),
@@ -54,16 +53,11 @@ public class ProjectSummaryPage extends SummaryPage {
 								th().append("Complexity"),
 								th().append("Coverage").attr("colspan", "2")
 								)
-						),
-				packageListBody(items)
-				);
-	}
-	
-	Element packageListBody(Collection<PackageItem> items) {
-		Element result = tbody();
+						)
+				)).start(tbody());
 		for (PackageItem each : items) {
 			ClassMetrics classMetrics = each.getClassMetrics();
-			result.append(tr().append(
+			out.write(tr().append(
 					td().append(a().attr("href", "package-" + each.getLinkName() + "-summary.html").append(each.getDisplayName())),
 					td().attr("class", "number").append(String.valueOf(classMetrics.getCount())),
 					td().attr("class", "complexity").append(String.format("%.2f", classMetrics.getComplexity().getAverage())),
@@ -73,6 +67,6 @@ public class ProjectSummaryPage extends SummaryPage {
 					td().attr("class", "coverage").append(new CoverageBar(each).build())
 					));
 		}
-		return result;
+		out.end().end();
 	}
 }
@@ -1,13 +1,26 @@
 package undercover.report.html;
 
 import undercover.support.xml.Element;
+import undercover.support.xml.ElementBuilder;
+import undercover.support.xml.XmlStream;
 
 /**
  * A report HTML page.
  */
 public abstract class ReportPage extends HtmlElements implements HtmlFragment {
+	/**
+	 * Builds the whole page in memory. {@link #write(XmlStream)} streams the page instead.
+	 */
 	public Element build() {
-		return html().append(getHead(), getBody());
+		ElementBuilder builder = new ElementBuilder();
+		write(builder);
+		return builder.getRoot();
+	}
+
+	public void write(XmlStream out) {
+		out.start(html()).write(getHead());
+		writeBody(out);
+		out.end();
 	}
 
 	/**
@@ -26,7 +39,7 @@ public abstract class ReportPage extends HtmlElements implements HtmlFragment {
 	public abstract String getTitle();
 
 	/**
-	 * Body of this page.
+	 * Writes body of this page. Rows of long lists are written one at a time.
 	 */
-	public abstract Element getBody();
+	public abstract void writeBody(XmlStream out);
 }
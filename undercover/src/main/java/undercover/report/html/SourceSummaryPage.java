@@ -8,6 +8,7 @@ import undercover.report.MethodMetrics;
 import undercover.report.SourceItem;
 import undercover.report.SourceLine;
 import undercover.support.xml.Element;
+import undercover.support.xml.XmlStream;
 
 public class SourceSummaryPage extends SummaryPage {
 	private final SourceItem sourceItem;
@@ -22,20 +23,19 @@ public class SourceSummaryPage extends SummaryPage {
 	}
 	
 	@Override
-	public Element getBody() {
-		return body().append(
-				new NavigationPanel().build(),
-				new ItemStatisticsPanel(sourceItem).build(),
-				h3().append("Classes"),
-				classList(sourceItem.classes),
-				h3().append("Source"),
-				sourceView(sourceItem),
-				new CopyrightPanel().build()
-				);
+	public void writeBody(XmlStream out) {
+		out.start(body())
+			.write(new NavigationPanel().build())
+			.write(new ItemStatisticsPanel(sourceItem).build())
+			.write(h3().append("Classes"));
+		writeClassList(out, sourceItem.classes);
+		out.write(h3().append("Source"));
+		writeSourceView(out, sourceItem);
+		out.write(new CopyrightPanel().build()).end();
 	}
 	
-	Element classList(Collection<ClassItem> items) {
-		return table().attr("class", "item-children").append(
+	void writeClassList(XmlStream out, Collection<ClassItem> items) {
+		out.start(table().attr("class", "item-children").append(
 				colgroup().append(
 						col().attr("width", "*"),
 						col().attr("width", "70"),
@@ -53,16 +53,11 @@ public class SourceSummaryPage extends SummaryPage {
 								th().append("Complexity"),
 								th().append("Coverage").attr("colspan", "2")
 								)
-						),
-				classListBody(items)
-				);
-	}
-	
-	Element classListBody(Collection<ClassItem> items) {
-		Element result = tbody();
+						)
+				)).start(tbody());
 		for (ClassItem each : items) {
 			MethodMetrics methodMetrics = each.getMethodMetrics();
-			result.append(tr().append(
+			out.write(tr().append(
 					th().append(each.getSimpleName()),
 					td().attr("class", "number").append(String.valueOf(methodMetrics.getCount())),
 					td().attr("class", "complexity").append(String.format("%.2f", methodMetrics.getComplexity().getAverage())),
@@ -72,7 +67,7 @@ public class SourceSummaryPage extends SummaryPage {
 					td().attr("class", "coverage").append(new CoverageBar(each).build())
 					));
 			for (MethodItem methodItem : each.methods) {
-				result.append(tr().append(
+				out.write(tr().append(
 						td().attr("colspan", "4").append(methodItem.getDisplayName()),
 						td().attr("class", "complexity").append(String.valueOf(methodItem.getBlockMetrics().getComplexity())),
 						td().attr("class", "coverage").append(CoverageFormat.percentDetailed(methodItem.getBlockMetrics().getCoverage())),
@@ -80,38 +75,53 @@ public class SourceSummaryPage extends SummaryPage {
 						));
 			}
 		}
-		return result;
+		out.end().end();
 	}
 
-	Element sourceView(SourceItem sourceItem) {
-		Element tbody = tbody();
-		for (SourceLine each : sourceItem.getLines()) {
-			Element tr = tr();
-			if (each.isExecutable()) {
-				String styleClass = null;
-				if (each.isCompletelyCovered()) {
-					styleClass = "completely-covered";
-				} else if (each.isPartialyCovered()) {
-					styleClass = "partialy-covered";
-				} else {
-					styleClass = "not-covered";
-				}
-				tr.attr("class", styleClass);
-			}
-			tr.append(
-					td().attr("class", "line-number").append(String.valueOf(each.number)),
-					td().attr("class", "line-touch").append(each.isExecutable() ? String.valueOf(each.touchCount) : ""),
-					td().attr("class", "line-text").append(each.text)
-					);
-			tbody.append(tr);
-		}
-		return table().attr("class", "source").append(
+	void writeSourceView(XmlStream out, SourceItem sourceItem) {
+		out.start(table().attr("class", "source").append(
 				colgroup().append(
 						col().attr("width", "60"),
 						col().attr("width", "40"),
 						col().attr("width", "*")
-						),
-				tbody
+						)
+				)).start(tbody());
+		for (SourceLine each : sourceItem.getLines()) {
+			out.write(sourceLine(each));
+		}
+		out.end().end();
+	}
+
+	Element sourceLine(SourceLine line) {
+		Element tr = tr();
+		if (line.isExecutable()) {
+			String styleClass = null;
+			if (line.isCompletelyCovered()) {
+				styleClass = "completely-covered";
+			} else if (line.isPartialyCovered()) {
+				styleClass = "partialy-covered";
+			} else {
+				styleClass = "not-covered";
+			}
+			tr.attr("class", styleClass);
+		}
+		return tr.append(
+				td().attr("class", "line-number").append(String.valueOf(line.number)),
+				td().attr("class", "line-touch").append(touchText(line)),
+				td().attr("class", "line-text").append(line.text)
 				);
 	}
+
+	/**
+	 * Lines without execution counts show whether they are executed.
+	 */
+	static String touchText(SourceLine line) {
+		if (!line.isExecutable()) {
+			return "";
+		}
+		if (!line.touchCounted) {
+			return line.touchCount > 0 ? "hit" : "0";
+		}
+		return String.valueOf(line.touchCount);
+	}
 }
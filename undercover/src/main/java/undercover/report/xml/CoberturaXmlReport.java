@@ -1,5 +1,6 @@
 package undercover.report.xml;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
@@ -14,7 +15,8 @@ import undercover.support.FileUtils;
 import undercover.support.xml.DoctypeDeclaration;
 import undercover.support.xml.Element;
 import undercover.support.xml.XmlDeclaration;
-import undercover.support.xml.XmlWriter;
+import undercover.support.xml.XmlStream;
+import undercover.support.xml.XmlStreamWriter;
 
 public class CoberturaXmlReport {
 	private ReportData reportData;
@@ -26,22 +28,24 @@ public class CoberturaXmlReport {
 	public void writeTo(File file, String encoding) throws IOException {
 		PrintWriter writer = null;
 		try {
-			writer = new PrintWriter(new OutputStreamWriter(FileUtils.openOutputStream(file), encoding));
+			writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(FileUtils.openOutputStream(file), encoding)));
 			writeTo(writer, encoding);
 		} finally {
 			writer.close();
 		}
 	}
 
+	/**
+	 * Streams the report, holding a single class in memory.
+	 */
 	public void writeTo(PrintWriter writer, String encoding) {
-		XmlWriter xmlWriter = new XmlWriter(writer);
-		xmlWriter.visitXmlDeclaration(new XmlDeclaration("1.0", encoding));
-		xmlWriter.visitDoctypeDeclaration(new DoctypeDeclaration("coverage", "http://cobertura.sourceforge.net/xml/coverage-04.dtd"));
-		Element root = buildCoverage(reportData);
-		root.accept(xmlWriter);
+		XmlStream out = new XmlStreamWriter(writer);
+		out.write(new XmlDeclaration("1.0", encoding));
+		out.write(new DoctypeDeclaration("coverage", "http://cobertura.sourceforge.net/xml/coverage-04.dtd"));
+		writeCoverage(out, reportData);
 	}
 
-	Element buildCoverage(ReportData reportData) {
+	void writeCoverage(XmlStream out, ReportData reportData) {
 		ReportData item = reportData;
 		Element result = new Element("coverage");
 		result.attr("line-rate", item.getBlockMetrics().getCoverage().getRatio());
@@ -53,34 +57,36 @@ public class CoberturaXmlReport {
 		result.attr("complexity", item.getMethodMetrics().getComplexity().getAverage());
 		result.attr("version", "1.9.2");
 		result.attr("timestamp", System.currentTimeMillis());
-		result.append(buildPackages(reportData.getPackages()));
-		return result;
+		out.start(result);
+		writePackages(out, reportData.getPackages());
+		out.end();
 	}
 
-	Element buildPackages(Collection<PackageItem> items) {
-		Element result = new Element("packages");
+	void writePackages(XmlStream out, Collection<PackageItem> items) {
+		out.start(new Element("packages"));
 		for (PackageItem each : items) {
-			result.append(buildPackage(each));
+			writePackage(out, each);
 		}
-		return result;
+		out.end();
 	}
 
-	Element buildPackage(PackageItem item) {
+	void writePackage(XmlStream out, PackageItem item) {
 		Element result = new Element("package");
 		result.attr("name", item.getDisplayName());
 		result.attr("line-rate", item.getBlockMetrics().getCoverage().getRatio());
 		result.attr("branch-rate", item.getBlockMetrics().getCoverage().getRatio());
 		result.attr("complexity", item.getMethodMetrics().getComplexity().getAverage());
-		result.append(buildClasses(item.classes));
-		return result;
+		out.start(result);
+		writeClasses(out, item.classes);
+		out.end();
 	}
 
-	Element buildClasses(Collection<ClassItem> items) {
-		Element result = new Element("classes");
+	void writeClasses(XmlStream out, Collection<ClassItem> items) {
+		out.start(new Element("classes"));
 		for (ClassItem each : items) {
-			result.append(buildClass(each));
+			out.write(buildClass(each));
 		}
-		return result;
+		out.end();
 	}
 
 	Element buildClass(ClassItem item) {
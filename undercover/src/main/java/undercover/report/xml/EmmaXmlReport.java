@@ -1,5 +1,6 @@
 package undercover.report.xml;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
@@ -19,7 +20,8 @@ import undercover.support.FileUtils;
 import undercover.support.Proportion;
 import undercover.support.xml.Element;
 import undercover.support.xml.XmlDeclaration;
-import undercover.support.xml.XmlWriter;
+import undercover.support.xml.XmlStream;
+import undercover.support.xml.XmlStreamWriter;
 
 public class EmmaXmlReport {
 	private ReportData reportData;
@@ -31,7 +33,7 @@ public class EmmaXmlReport {
 	public void writeTo(File file, String encoding) throws IOException {
 		PrintWriter writer = null;
 		try {
-			writer = new PrintWriter(new OutputStreamWriter(FileUtils.openOutputStream(file), encoding));
+			writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(FileUtils.openOutputStream(file), encoding)));
 			writeTo(writer, encoding);
 		} finally {
 			if (writer != null) {
@@ -40,15 +42,20 @@ public class EmmaXmlReport {
 		}
 	}
 	
+	/**
+	 * Streams the report, holding a single class in memory.
+	 */
 	public void writeTo(PrintWriter writer, String encoding) {
-		XmlWriter xmlWriter = new XmlWriter(writer);
-		xmlWriter.visitXmlDeclaration(new XmlDeclaration("1.0", encoding));
-		buildReport(reportData).accept(xmlWriter);		
+		XmlStream out = new XmlStreamWriter(writer);
+		out.write(new XmlDeclaration("1.0", encoding));
+		writeReport(out, reportData);
 	}
 
-	Element buildReport(ReportData reportData) {
-		return new Element("report")
-			.append(buildStats(reportData), buildData(reportData));
+	void writeReport(XmlStream out, ReportData reportData) {
+		out.start(new Element("report")
+			.append(buildStats(reportData)));
+		writeData(out, reportData);
+		out.end();
 	}
 
 	Element buildStats(ReportData reportData) {
@@ -68,12 +75,17 @@ public class EmmaXmlReport {
 		return result;
 	}
 
-	Element buildData(ReportData item) {
-		return new Element("data").append(new Element("all")
+	void writeData(XmlStream out, ReportData item) {
+		out.start(new Element("data")).start(new Element("all")
 			.append(buildCoverage("class", item.getClassMetrics().getCoverage()))
 			.append(buildCoverage("method", item.getMethodMetrics().getCoverage()))
-			.append(buildCoverage("block", item.getBlockMetrics().getCoverage()))
-			.append(buildPackages(item.getPackages())));
+			.append(buildCoverage("block", item.getBlockMetrics().getCoverage())));
+		for (PackageItem each : item.getPackages()) {
+			if (each.getBlockMetrics().isExecutable()) {
+				writePackage(out, each);
+			}
+		}
+		out.end().end();
 	}
 
 	Element buildCoverage(String type, Proportion coverage) {
@@ -82,59 +94,36 @@ public class EmmaXmlReport {
 			.attr("value", String.format("%.0f%% (%d/%d)", coverage.getRatio() * 100, coverage.part, coverage.whole));
 	}
 
-	List<Element> buildPackages(Collection<PackageItem> items) {
-		List<Element> result = new ArrayList<Element>();
-		for (PackageItem each : items) {
-			if (!each.getBlockMetrics().isExecutable()) {
-				continue;
-			}
-			result.add(buildPackage(each));
-		}
-		return result;
-	}
-	
-	Element buildPackage(PackageItem item) {
+	void writePackage(XmlStream out, PackageItem item) {
 		Set<SourceItem> sources = new HashSet<SourceItem>();
 		for (ClassItem each : item.classes) {
 			sources.add(each.getSource());
 		}
-		return new Element("package")
+		out.start(new Element("package")
 			.attr("name", item.getDisplayName())
 			.append(buildCoverage("class", item.getClassMetrics().getCoverage()))
 			.append(buildCoverage("method", item.getMethodMetrics().getCoverage()))
-			.append(buildCoverage("block", item.getBlockMetrics().getCoverage()))
-			.append(buildSources(sources));
-	}
-	
-	List<Element> buildSources(Collection<SourceItem> items) {
-		List<Element> result = new ArrayList<Element>();
-		for (SourceItem each : items) {
-			if (!each.getBlockMetrics().isExecutable()) {
-				continue;
+			.append(buildCoverage("block", item.getBlockMetrics().getCoverage())));
+		for (SourceItem each : sources) {
+			if (each.getBlockMetrics().isExecutable()) {
+				writeSource(out, each);
 			}
-			result.add(buildSource(each));
 		}
-		return result;
+		out.end();
 	}
 
-	Element buildSource(SourceItem item) {
-		return new Element("srcfile")
+	void writeSource(XmlStream out, SourceItem item) {
+		out.start(new Element("srcfile")
 			.attr("name", item.getSimpleName())
 			.append(buildCoverage("class", item.getClassMetrics().getCoverage()))
 			.append(buildCoverage("method", item.getMethodMetrics().getCoverage()))
-			.append(buildCoverage("block", item.getBlockMetrics().getCoverage()))
-			.append(buildClasses(item.classes));
-	}
-	
-	List<Element> buildClasses(Collection<ClassItem> items) {
-		List<Element> result = new ArrayList<Element>();
-		for (ClassItem each : items) {
-			if (!each.getBlockMetrics().isExecutable()) {
-				continue;
+			.append(buildCoverage("block", item.getBlockMetrics().getCoverage())));
+		for (ClassItem each : item.classes) {
+			if (each.getBlockMetrics().isExecutable()) {
+				out.write(buildClass(each));
 			}
-			result.add(buildClass(each));
 		}
-		return result;
+		out.end();
 	}
 
 	Element buildClass(ClassItem item) {
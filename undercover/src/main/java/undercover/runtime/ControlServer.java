@@ -0,0 +1,99 @@
+package undercover.runtime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+
+import undercover.support.JdkLogger;
+import undercover.support.Logger;
+
+/**
+ * Accepts commands on the loopback address, one command per connection, on a daemon thread.
+ * <ul>
+ * <li><code>dump</code> writes a snapshot of coverage data in the binary format, and closes the connection.</li>
+ * <li><code>dumpAndReset</code> does the same and clears counters.</li>
+ * <li><code>reset</code> clears counters.</li>
+ * <li><code>save</code> saves coverage data as when the JVM exits.</li>
+ * </ul>
+ * A command is a line of ASCII characters. Unknown commands are answered by closing the connection.
+ * A client which sends no command within {@link #SO_TIMEOUT} milliseconds is disconnected, so that it never blocks others,
+ * and a failed command is reported without stopping the server.
+ */
+public class ControlServer extends Thread {
+	static final int MAX_COMMAND_LENGTH = 64;
+	static final int SO_TIMEOUT = 10000;
+
+	private final ProbeControl control;
+	private final ServerSocket serverSocket;
+	private Logger logger = new JdkLogger();
+	int soTimeout = SO_TIMEOUT;
+
+	/**
+	 * @param port port to listen on, or 0 for any free port.
+	 */
+	public ControlServer(ProbeControl control, int port) throws IOException {
+		super("undercover-control");
+		this.control = control;
+		serverSocket = new ServerSocket(port, 1, InetAddress.getByName(null));
+		setDaemon(true);
+		setPriority(MIN_PRIORITY);
+	}
+
+	public void setLogger(Logger logger) {
+		this.logger = logger;
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public void run() {
+		while (!serverSocket.isClosed()) {
+			Socket socket = null;
+			try {
+				socket = serverSocket.accept();
+				socket.setSoTimeout(soTimeout);
+				handle(readCommand(socket.getInputStream()), socket.getOutputStream());
+			} catch (IOException e) {
+				// The connection is dropped or timed out, or the server is closed.
+			} catch (RuntimeException e) {
+				logger.error("Unable to run control command: " + e);
+			} finally {
+				Helper.closeQuietly(socket);
+			}
+		}
+	}
+
+	public void close() {
+		Helper.closeQuietly(serverSocket);
+	}
+
+	void handle(String command, OutputStream output) throws IOException {
+		if ("dump".equals(command) || "dumpAndReset".equals(command)) {
+			CoverageData coverageData = control.snapshot("dumpAndReset".equals(command));
+			new CoverageDataWriter(Channels.newChannel(output)).write(coverageData, control.getProbe().getSettings().isCoverageBitset());
+		} else if ("reset".equals(command)) {
+			control.reset();
+		} else if ("save".equals(command)) {
+			control.save();
+		}
+		output.flush();
+	}
+
+	static String readCommand(InputStream input) throws IOException {
+		StringBuilder result = new StringBuilder();
+		for (int c = input.read(); c != -1 && c != '\n'; c = input.read()) {
+			if (result.length() == MAX_COMMAND_LENGTH) {
+				throw new IOException("Command is too long");
+			}
+			if (c != '\r') {
+				result.append((char) c);
+			}
+		}
+		return result.toString().trim();
+	}
+}
@@ -0,0 +1,16 @@
+package undercover.runtime;
+
+/**
+ * Counters of a class which probes do not update in place.
+ * They are collected into the registered total counters before coverage data is read.
+ */
+public interface Counters {
+	int[][] getTotal();
+	
+	void collect();
+	
+	/**
+	 * Clears the counters which probes update, and the total counters.
+	 */
+	void reset();
+}
@@ -1,25 +1,135 @@
 package undercover.runtime;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 
 public class Coverage implements Serializable {
 	private static final long serialVersionUID = -6522224503868018324L;
 	public final String className;
+	/**
+	 * Counters of each method, or <code>null</code> if counters are flat.
+	 */
 	public final int[][] blocks;
+	/**
+	 * Counters of all blocks in method order, or <code>null</code> if counters are not flat.
+	 */
+	public final int[] counters;
+	/**
+	 * Offset of the first block of each method in flat counters, followed by the number of all blocks.
+	 */
+	public final int[] offsets;
+	/**
+	 * <code>false</code> if blocks have 1 for executed and 0 for not executed, instead of execution counts.
+	 */
+	public final boolean counted;
+	/**
+	 * Read from a serialized stream, which may not have fields added after the first release.
+	 */
+	private transient Coverage resolved;
 	
 	public Coverage(String className, int[][] blocks) {
+		this(className, blocks, true);
+	}
+	
+	public Coverage(String className, int[][] blocks, boolean counted) {
+		this(className, blocks, null, null, counted);
+	}
+	
+	public Coverage(String className, int[] counters, int[] offsets) {
+		this(className, null, counters, offsets, true);
+	}
+	
+	private Coverage(String className, int[][] blocks, int[] counters, int[] offsets, boolean counted) {
 		this.className = className;
 		this.blocks = blocks;
+		this.counters = counters;
+		this.offsets = offsets;
+		this.counted = counted;
+	}
+	
+	/**
+	 * Streams of the first release have neither flat counters nor <code>counted</code>, and always have counts.
+	 */
+	private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = input.readFields();
+		resolved = new Coverage(
+				(String) fields.get("className", null),
+				(int[][]) fields.get("blocks", null),
+				(int[]) fields.get("counters", null),
+				(int[]) fields.get("offsets", null),
+				fields.get("counted", true));
+	}
+
+	private Object readResolve() {
+		return resolved;
+	}
+
+	public boolean isFlat() {
+		return blocks == null;
+	}
+	
+	public int getMethodCount() {
+		return isFlat() ? offsets.length - 1 : blocks.length;
+	}
+	
+	public int getBlockCount(int methodIndex) {
+		return isFlat() ? offsets[methodIndex + 1] - offsets[methodIndex] : blocks[methodIndex].length;
 	}
 	
 	public int countExecution(int methodIndex, int blockIndex) {
-		return blocks[methodIndex][blockIndex];
+		return isFlat() ? counters[offsets[methodIndex] + blockIndex] : blocks[methodIndex][blockIndex];
+	}
+
+	/**
+	 * @return counters of each method, copied.
+	 */
+	public int[][] copyBlocks() {
+		int[][] result = new int[getMethodCount()][];
+		for (int i = 0; i < result.length; i++) {
+			if (isFlat()) {
+				result[i] = new int[getBlockCount(i)];
+				System.arraycopy(counters, offsets[i], result[i], 0, result[i].length);
+			} else {
+				result[i] = blocks[i].clone();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Clears counters in place, so that probes keep updating the same arrays.
+	 */
+	public void reset() {
+		if (isFlat()) {
+			Arrays.fill(counters, 0);
+		} else {
+			for (int[] each : blocks) {
+				Arrays.fill(each, 0);
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if both have the same number of methods and blocks.
+	 */
+	public boolean isCompatible(Coverage other) {
+		if (getMethodCount() != other.getMethodCount()) {
+			return false;
+		}
+		for (int i = 0; i < getMethodCount(); i++) {
+			if (getBlockCount(i) != other.getBlockCount(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	public int countCoveredBlocks(int methodIndex) {
 		int result = 0;
-		for (int each : blocks[methodIndex]) {
-			if (each > 0) {
+		for (int i = 0; i < getBlockCount(methodIndex); i++) {
+			if (countExecution(methodIndex, i) > 0) {
 				result++;
 			}
 		}
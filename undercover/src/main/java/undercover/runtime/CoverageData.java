@@ -1,39 +1,198 @@
 package undercover.runtime;
 
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
 public class CoverageData implements Serializable {
 	private static final long serialVersionUID = -2867261294970889507L;
 
+	private static final Object APPEND_LOCK = new Object();
+
 	private final Map<String, Coverage> coverages = new HashMap<String, Coverage>();
 
-	public synchronized void register(String className, int[][] coverage) {
-		coverages.put(className, new Coverage(className, coverage));
+	public void register(String className, int[][] coverage) {
+		register(className, coverage, true);
+	}
+	
+	/**
+	 * @param counted <code>false</code> if blocks have 1 for executed and 0 for not executed.
+	 */
+	public synchronized void register(String className, int[][] coverage, boolean counted) {
+		coverages.put(className, new Coverage(className, coverage, counted));
+	}
+	
+	/**
+	 * @param counters counters of all blocks in method order.
+	 * @param offsets offset of the first block of each method, followed by the number of all blocks.
+	 */
+	public synchronized void register(String className, int[] counters, int[] offsets) {
+		coverages.put(className, new Coverage(className, counters, offsets));
 	}
 	
 	public synchronized Coverage getCoverage(String className) {
 		return coverages.get(className);
 	}
+
+	public synchronized Collection<Coverage> getCoverages() {
+		return new ArrayList<Coverage>(coverages.values());
+	}
+
+	/**
+	 * Adds execution counts of the given coverage to the coverage of the same class, stopping at {@link Integer#MAX_VALUE}.
+	 * If either has no execution counts, the result has only whether blocks are executed or not.
+	 * 
+	 * @throws IllegalArgumentException if the coverage of the same class has different numbers of methods or blocks,
+	 * e.g. saved before the class is changed.
+	 * @see #checkCompatible(Coverage)
+	 */
+	public synchronized void merge(Coverage coverage) {
+		checkCompatible(coverage);
+		Coverage existing = coverages.get(coverage.className);
+		if (existing == null) {
+			register(coverage.className, coverage.copyBlocks(), coverage.counted);
+			return;
+		}
+		boolean counted = existing.counted && coverage.counted;
+		int[][] blocks = existing.isFlat() ? existing.copyBlocks() : existing.blocks;
+		for (int i = 0; i < blocks.length; i++) {
+			for (int j = 0; j < blocks[i].length; j++) {
+				if (counted) {
+					blocks[i][j] = (int) Math.min((long) blocks[i][j] + coverage.countExecution(i, j), Integer.MAX_VALUE);
+				} else {
+					blocks[i][j] = blocks[i][j] > 0 || coverage.countExecution(i, j) > 0 ? 1 : 0;
+				}
+			}
+		}
+		if (!counted || existing.isFlat()) {
+			register(existing.className, blocks, counted);
+		}
+	}
+
+	/**
+	 * Merges the given coverage, or replaces the coverage of the same class if it has different numbers of methods or blocks,
+	 * e.g. saved before the class is changed.
+	 */
+	public synchronized void mergeOrReplace(Coverage coverage) {
+		Coverage existing = coverages.get(coverage.className);
+		if (existing != null && !existing.isCompatible(coverage)) {
+			register(coverage.className, coverage.copyBlocks(), coverage.counted);
+		} else {
+			merge(coverage);
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the coverage of the same class has different numbers of methods or blocks.
+	 */
+	public synchronized void checkCompatible(Coverage coverage) {
+		Coverage existing = coverages.get(coverage.className);
+		if (existing != null && !existing.isCompatible(coverage)) {
+			throw new IllegalArgumentException("Coverage does not match class " + coverage.className);
+		}
+	}
 		
 	public void save(File file) throws IOException {
-		ObjectOutputStream output = null;
+		save(file, false);
+	}
+	
+	/**
+	 * @param bitset if <code>true</code>, execution counts are not saved, only whether blocks are executed or not.
+	 * Execution counts are not saved either if any coverage has no execution counts.
+	 */
+	public void save(File file, boolean bitset) throws IOException {
+		FileOutputStream output = null;
 		try {
-			output = new ObjectOutputStream(new FileOutputStream(file));
-			output.writeObject(this);
+			output = new FileOutputStream(file);
+			new CoverageDataWriter(output.getChannel()).write(this, bitset);
 		} finally {
             Helper.closeQuietly(output);
 		}
 	}
 	
+	/**
+	 * Merges into the coverage data file while holding a lock on it,
+	 * so that JVMs exiting at the same time can save to the same file.
+	 * Coverage of a class which is changed since the file is saved replaces the saved coverage.
+	 * @param bitset if <code>true</code>, execution counts are not saved, only whether blocks are executed or not.
+	 */
+	public void append(File file, boolean bitset) throws IOException {
+		synchronized (APPEND_LOCK) {
+			RandomAccessFile output = null;
+			try {
+				output = new RandomAccessFile(file, "rw");
+				FileChannel channel = output.getChannel();
+				channel.lock();
+				CoverageData result = read(channel);
+				for (Coverage each : getCoverages()) {
+					result.mergeOrReplace(each);
+				}
+				channel.truncate(0);
+				channel.position(0);
+				new CoverageDataWriter(channel).write(result, bitset);
+			} finally {
+				Helper.closeQuietly(output);
+			}
+		}
+	}
+
+	static CoverageData read(FileChannel channel) throws IOException {
+		if (channel.size() == 0) {
+			return new CoverageData();
+		}
+		ByteBuffer magic = ByteBuffer.allocate(2);
+		channel.read(magic, 0);
+		magic.flip();
+		if (magic.remaining() == 2 && magic.getShort() == ObjectStreamConstants.STREAM_MAGIC) {
+			try {
+				return (CoverageData) new ObjectInputStream(Channels.newInputStream(channel)).readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+		return new CoverageDataReader(channel).read();
+	}
+	
+	/**
+	 * Reads the binary format, or the Java serialization format of previous versions.
+	 */
 	public static CoverageData load(File file) throws IOException {
+		if (isSerialized(file)) {
+			return loadSerialized(file);
+		}
+		FileInputStream input = null;
+		try {
+			input = new FileInputStream(file);
+			return new CoverageDataReader(input.getChannel()).read();
+		} finally {
+            Helper.closeQuietly(input);
+		}
+	}
+
+	static boolean isSerialized(File file) throws IOException {
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new FileInputStream(file));
+			return file.length() >= 2 && input.readShort() == ObjectStreamConstants.STREAM_MAGIC;
+		} finally {
+            Helper.closeQuietly(input);
+		}
+	}
+
+	static CoverageData loadSerialized(File file) throws IOException {
 		ObjectInputStream input = null;
 		try {
 			input = new ObjectInputStream(new FileInputStream(file));
@@ -0,0 +1,106 @@
+package undercover.runtime;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads coverage data written by {@link CoverageDataWriter}.
+ */
+public class CoverageDataReader {
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+
+	public CoverageDataReader(ReadableByteChannel channel) {
+		this.channel = channel;
+		buffer = ByteBuffer.allocate(CoverageDataWriter.BUFFER_SIZE);
+		buffer.flip();
+	}
+
+	public CoverageData read() throws IOException {
+		ensure(6);
+		if (buffer.getInt() != CoverageDataWriter.MAGIC) {
+			throw new IOException("Not a coverage data file");
+		}
+		byte version = buffer.get();
+		if (version != CoverageDataWriter.VERSION) {
+			throw new IOException("Unsupported coverage data version " + version);
+		}
+		boolean bitset = (buffer.get() & CoverageDataWriter.FLAG_BITSET) != 0;
+
+		String[] classNames = new String[readVarint()];
+		for (int i = 0; i < classNames.length; i++) {
+			classNames[i] = readString();
+		}
+		CoverageData result = new CoverageData();
+		for (String each : classNames) {
+			int[][] blocks = new int[readVarint()][];
+			for (int i = 0; i < blocks.length; i++) {
+				blocks[i] = new int[readVarint()];
+				if (bitset) {
+					readBitset(blocks[i]);
+				} else {
+					for (int j = 0; j < blocks[i].length; j++) {
+						blocks[i][j] = readVarint();
+					}
+				}
+			}
+			result.register(each, blocks, !bitset);
+		}
+		return result;
+	}
+
+	void readBitset(int[] blocks) throws IOException {
+		for (int i = 0; i < blocks.length; i += 8) {
+			ensure(1);
+			int bits = buffer.get();
+			for (int j = 0; j < 8 && i + j < blocks.length; j++) {
+				blocks[i + j] = (bits >> j) & 1;
+			}
+		}
+	}
+
+	int readByte() throws IOException {
+		ensure(1);
+		return buffer.get() & 0xff;
+	}
+
+	String readString() throws IOException {
+		byte[] bytes = new byte[readVarint()];
+		int offset = 0;
+		while (offset < bytes.length) {
+			ensure(1);
+			int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.get(bytes, offset, length);
+			offset += length;
+		}
+		return new String(bytes, "UTF-8");
+	}
+
+	int readVarint() throws IOException {
+		int result = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			ensure(1);
+			byte b = buffer.get();
+			result |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	void ensure(int length) throws IOException {
+		if (buffer.remaining() >= length) {
+			return;
+		}
+		buffer.compact();
+		while (buffer.position() < length) {
+			if (channel.read(buffer) == -1) {
+				throw new EOFException();
+			}
+		}
+		buffer.flip();
+	}
+}
@@ -0,0 +1,122 @@
+package undercover.runtime;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+
+/**
+ * Writes coverage data in the binary format.
+ * <pre>
+ * magic         int "UCCD"
+ * version       byte
+ * flags         byte, {@link #FLAG_BITSET} if only hits are recorded
+ * class count   varint
+ * class names   varint length and UTF-8 bytes for each class
+ * coverages     for each class, varint method count, then for each method
+ *               varint block count and block counters (varints, or a bitset)
+ * </pre>
+ */
+public class CoverageDataWriter {
+	static final int MAGIC = 0x55434344;
+	static final byte VERSION = 1;
+	static final byte FLAG_BITSET = 0x01;
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+
+	public CoverageDataWriter(WritableByteChannel channel) {
+		this.channel = channel;
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bitset if <code>true</code>, execution counts are not written, only whether blocks are executed or not.
+	 * A bitset is written also if any coverage has no execution counts.
+	 */
+	public void write(CoverageData coverageData, boolean bitset) throws IOException {
+		Collection<Coverage> coverages = coverageData.getCoverages();
+		for (Coverage each : coverages) {
+			bitset |= !each.counted;
+		}
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		buffer.put(bitset ? FLAG_BITSET : 0);
+		writeVarint(coverages.size());
+		for (Coverage each : coverages) {
+			writeString(each.className);
+		}
+		for (Coverage each : coverages) {
+			writeVarint(each.getMethodCount());
+			for (int i = 0; i < each.getMethodCount(); i++) {
+				writeVarint(each.getBlockCount(i));
+				if (bitset) {
+					writeBitset(each, i);
+				} else {
+					for (int j = 0; j < each.getBlockCount(i); j++) {
+						writeVarint(each.countExecution(i, j));
+					}
+				}
+			}
+		}
+		flush();
+	}
+
+	void writeBitset(Coverage coverage, int methodIndex) throws IOException {
+		int blockCount = coverage.getBlockCount(methodIndex);
+		for (int i = 0; i < blockCount; i += 8) {
+			int bits = 0;
+			for (int j = 0; j < 8 && i + j < blockCount; j++) {
+				if (coverage.countExecution(methodIndex, i + j) != 0) {
+					bits |= 1 << j;
+				}
+			}
+			ensure(1);
+			buffer.put((byte) bits);
+		}
+	}
+
+	void writeByte(int value) throws IOException {
+		ensure(1);
+		buffer.put((byte) value);
+	}
+
+	void writeString(String value) throws IOException {
+		byte[] bytes = value.getBytes("UTF-8");
+		writeVarint(bytes.length);
+		int offset = 0;
+		while (offset < bytes.length) {
+			ensure(1);
+			int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	/**
+	 * Unsigned LEB128. Negative values, i.e. overflowed counters, take five bytes.
+	 */
+	void writeVarint(int value) throws IOException {
+		ensure(5);
+		while ((value & ~0x7f) != 0) {
+			buffer.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	void ensure(int length) throws IOException {
+		if (buffer.remaining() < length) {
+			flush();
+		}
+	}
+
+	void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
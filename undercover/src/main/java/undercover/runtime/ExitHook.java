@@ -3,11 +3,18 @@ package undercover.runtime;
 public class ExitHook extends Thread {
 	private final Probe probe;
 
+	/**
+	 * Exits {@link Probe#INSTANCE}.
+	 */
+	public ExitHook() {
+		this(null);
+	}
+
 	public ExitHook(Probe probe) {
 		this.probe = probe;
 	}
 	
 	public void run() {
-        probe.onExit();
+        (probe == null ? Probe.INSTANCE : probe).onExit();
 	}
 }
\ No newline at end of file
@@ -2,8 +2,18 @@ package undercover.runtime;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Random;
 
 public class Helper {
+    /**
+     * @return name which is unique to this JVM among JVMs writing files to the same directory.
+     */
+    public static String newRunId() {
+        return Long.toString(System.currentTimeMillis(), 36) + Integer.toString(new Random().nextInt(Integer.MAX_VALUE), 36);
+    }
+
     public static void closeQuietly(Closeable closeable) {
         try {
             if (closeable != null) {
@@ -13,4 +23,27 @@ public class Helper {
             // ignore
         }
     }
+
+    /**
+     * Sockets are not {@link Closeable} before Java 7.
+     */
+    public static void closeQuietly(Socket socket) {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException ioe) {
+            // ignore
+        }
+    }
+
+    public static void closeQuietly(ServerSocket serverSocket) {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException ioe) {
+            // ignore
+        }
+    }
 }
@@ -0,0 +1,43 @@
+package undercover.runtime;
+
+import java.util.Arrays;
+
+/**
+ * Whether blocks of a class are executed, in a flat array of all blocks in method order.
+ * {@link #collect()} copies them into the total counters as 0 or 1.
+ */
+public class HitCounters implements Counters {
+	private final boolean[] hits;
+	private final int[][] total;
+	
+	/**
+	 * @param blockCounts number of blocks of each method.
+	 */
+	public HitCounters(boolean[] hits, int[] blockCounts) {
+		this.hits = hits;
+		total = new int[blockCounts.length][];
+		for (int i = 0; i < blockCounts.length; i++) {
+			total[i] = new int[blockCounts[i]];
+		}
+	}
+	
+	public int[][] getTotal() {
+		return total;
+	}
+	
+	public void collect() {
+		int offset = 0;
+		for (int[] each : total) {
+			for (int j = 0; j < each.length; j++) {
+				each[j] = hits[offset++] ? 1 : 0;
+			}
+		}
+	}
+	
+	public void reset() {
+		Arrays.fill(hits, false);
+		for (int[] each : total) {
+			Arrays.fill(each, 0);
+		}
+	}
+}
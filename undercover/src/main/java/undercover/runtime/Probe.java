@@ -1,18 +1,39 @@
 package undercover.runtime;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Probe {
-	public final static Probe INSTANCE = new Probe(UndercoverSettings.load());
+	public final static Probe INSTANCE = new Probe(UndercoverSettings.load(), true);
 	
 	private final UndercoverSettings settings;
 	private final CoverageData coverageData;
+	private final List<Counters> collected;
+	private final boolean registry;
 	private ExitHook exitHook;
+	private volatile int clearCount;
+	private CoverageData collectedCoverageData;
 	
 	public Probe(UndercoverSettings settings) {
+		this(settings, false);
+		installExitHook();
+	}
+
+	/**
+	 * @param registry if <code>true</code>, counters registered to {@link Registry} are included in coverage data,
+	 * and the exit hook is installed by {@link Registry}, which also starts controls.
+	 */
+	Probe(UndercoverSettings settings, boolean registry) {
 		this.settings = settings;
+		this.registry = registry;
 		coverageData = new CoverageData();
-		installExitHook();
+		collected = new ArrayList<Counters>();
+		collectedCoverageData = new CoverageData();
+		if (registry) {
+			Registry.installExitHook();
+		}
 	}
 
     public UndercoverSettings getSettings() {
@@ -23,13 +44,177 @@ public class Probe {
         coverageData.register(className, coverage);
     }
 
+    public void register(String className, ThreadCounters counters) {
+        register(className, counters, true);
+    }
+
+    /**
+     * @param hits whether each block is executed, in method order.
+     * @param blockCounts number of blocks of each method.
+     */
+    public void register(String className, boolean[] hits, int[] blockCounts) {
+        register(className, new HitCounters(hits, blockCounts), false);
+    }
+
+    /**
+     * @param counters counters of all blocks in method order.
+     * @param offsets offset of the first block of each method, followed by the number of all blocks.
+     */
+    public void register(String className, int[] counters, int[] offsets) {
+        coverageData.register(className, counters, offsets);
+    }
+
+    void register(Registry.Registration registration) {
+        Object counters = registration.counters;
+        if (counters instanceof int[][]) {
+            register(registration.className, (int[][]) counters);
+        } else if (counters instanceof ThreadCounters) {
+            register(registration.className, (ThreadCounters) counters);
+        } else if (counters instanceof boolean[]) {
+            register(registration.className, (boolean[]) counters, registration.shape);
+        } else {
+            register(registration.className, (int[]) counters, registration.shape);
+        }
+    }
+
+    void register(String className, Counters counters, boolean counted) {
+        synchronized (collected) {
+            collected.add(counters);
+        }
+        coverageData.register(className, counters.getTotal(), counted);
+    }
+
+    /**
+     * Counters registered since the last call are taken from {@link Registry},
+     * and counters which probes do not update in place are collected, before coverage data is returned.
+     */
 	public CoverageData getCoverageData() {
+		synchronized (collected) {
+			if (registry) {
+				for (Registry.Registration each : Registry.drain()) {
+					register(each);
+				}
+			}
+			for (Counters each : collected) {
+				each.collect();
+			}
+		}
 		return coverageData;
 	}
 
+    /**
+     * Copies counters of all classes, without stopping probes. Each counter is read once,
+     * so that a snapshot is consistent with itself even if probes update counters meanwhile.
+     * Counts taken by {@link #collect()} are included.
+     * 
+     * @param reset if <code>true</code>, counters are cleared after they are copied.
+     */
+    public CoverageData snapshot(boolean reset) {
+        synchronized (collected) {
+            CoverageData result = copyCounters();
+            for (Coverage each : collectedCoverageData.getCoverages()) {
+                result.mergeOrReplace(each);
+            }
+            if (reset) {
+                reset();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Copies and clears counters of all classes, e.g. to attribute coverage to each test.
+     * Unlike {@link #reset()}, cleared counts are kept in coverage data which is saved, dumped or snapshot.
+     * <p>
+     * Probes keep updating the same counters meanwhile, and counters are cleared after all of them are copied,
+     * so executions between copying and clearing a counter are lost.
+     * Call it only while no other thread executes instrumented code, e.g. between tests which run one at a time.
+     * 
+     * @return counts since the previous call, or since counters are registered.
+     */
+    public CoverageData collect() {
+        synchronized (collected) {
+            CoverageData result = copyCounters();
+            clearCounters();
+            for (Coverage each : result.getCoverages()) {
+                collectedCoverageData.mergeOrReplace(each);
+            }
+            return result;
+        }
+    }
+
+    CoverageData copyCounters() {
+        CoverageData result = new CoverageData();
+        for (Coverage each : getCoverageData().getCoverages()) {
+            result.register(each.className, each.copyBlocks(), each.counted);
+        }
+        return result;
+    }
+
+    /**
+     * @return copy of the counters, with counts taken by {@link #collect()}.
+     */
+    Coverage copyTotal(Coverage coverage) {
+        synchronized (collected) {
+            CoverageData result = new CoverageData();
+            result.register(coverage.className, coverage.copyBlocks(), coverage.counted);
+            Coverage collectedCoverage = collectedCoverageData.getCoverage(coverage.className);
+            if (collectedCoverage != null) {
+                result.mergeOrReplace(collectedCoverage);
+            }
+            return result.getCoverage(coverage.className);
+        }
+    }
+
+    /**
+     * Clears counters of all classes in place, and counts taken by {@link #collect()}.
+     * Executions which race with clearing may be lost or kept.
+     */
+    public void reset() {
+        synchronized (collected) {
+            collectedCoverageData = new CoverageData();
+            clearCounters();
+        }
+    }
+
+    void clearCounters() {
+        clearCount++;
+        for (Coverage each : getCoverageData().getCoverages()) {
+            each.reset();
+        }
+        for (Counters each : collected) {
+            each.reset();
+        }
+    }
+
+    /**
+     * @return number of times counters are cleared, by {@link #reset()} or {@link #collect()}.
+     */
+    int getClearCount() {
+        return clearCount;
+    }
+
+    /**
+     * Saves a snapshot to the file, as {@link UndercoverSettings#isCoverageBitset()}.
+     */
+    public void dump(File file, boolean reset) throws IOException {
+        snapshot(reset).save(file, settings.isCoverageBitset());
+    }
+
+    /**
+     * Counts taken by {@link #collect()} are included.
+     */
     public void saveCoverageData() {
         try {
-            coverageData.save(settings.getCoverageFile());
+            CoverageData saved;
+            synchronized (collected) {
+                saved = collectedCoverageData.getCoverages().isEmpty() ? getCoverageData() : snapshot(false);
+            }
+            if (settings.isCoverageAppend()) {
+                saved.append(settings.getCoverageFile(), settings.isCoverageBitset());
+            } else {
+                saved.save(settings.getCoverageFile(), settings.isCoverageBitset());
+            }
         } catch (IOException e) {
             throw new RuntimeException("Unable to save coverage data to " + settings.getCoverageFile());
         }
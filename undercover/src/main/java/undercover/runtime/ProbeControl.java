@@ -0,0 +1,91 @@
+package undercover.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import undercover.support.Logger;
+
+/**
+ * Dumps and resets coverage data of a running JVM, over JMX and {@link ControlServer}, as {@link UndercoverSettings} specify.
+ * Commands run on the calling thread, and never stop application threads.
+ */
+public class ProbeControl implements ProbeControlMBean {
+	public static final String OBJECT_NAME = "undercover:type=Probe";
+	private static final AtomicBoolean STARTED = new AtomicBoolean();
+
+	private final Probe probe;
+
+	/**
+	 * Controls {@link Probe#INSTANCE}, which is initialized by the first command.
+	 */
+	public ProbeControl() {
+		this(null);
+	}
+
+	public ProbeControl(Probe probe) {
+		this.probe = probe;
+	}
+
+	/**
+	 * Starts controls and periodic snapshots of {@link Probe#INSTANCE} once, when the agent is started or the first class is registered,
+	 * without initializing {@link Probe}. Failures are reported, but do not fail the application.
+	 */
+	public static void start(UndercoverSettings settings, Logger logger) {
+		if (!STARTED.compareAndSet(false, true)) {
+			return;
+		}
+		if (settings.isControlJmx()) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new ProbeControl(), new ObjectName(OBJECT_NAME));
+			} catch (JMException e) {
+				logger.error("Unable to register " + OBJECT_NAME + ": " + e);
+			}
+		}
+		if (settings.getControlPort() != 0) {
+			try {
+				ControlServer server = new ControlServer(new ProbeControl(), settings.getControlPort());
+				server.setLogger(logger);
+				server.start();
+			} catch (IOException e) {
+				logger.error("Unable to listen on port " + settings.getControlPort() + ": " + e);
+			}
+		}
+		if (settings.getSnapshotInterval() > 0) {
+			SnapshotWriter writer = new SnapshotWriter(null, settings);
+			writer.setLogger(logger);
+			writer.start();
+		}
+	}
+
+	Probe getProbe() {
+		return probe == null ? Probe.INSTANCE : probe;
+	}
+
+	public void save() {
+		getProbe().saveCoverageData();
+	}
+
+	public void dump(String file) throws IOException {
+		getProbe().dump(new File(file), false);
+	}
+
+	public void dumpAndReset(String file) throws IOException {
+		getProbe().dump(new File(file), true);
+	}
+
+	public void reset() {
+		getProbe().reset();
+	}
+
+	/**
+	 * @param reset if <code>true</code>, counters are cleared after they are copied.
+	 */
+	public CoverageData snapshot(boolean reset) {
+		return getProbe().snapshot(reset);
+	}
+}
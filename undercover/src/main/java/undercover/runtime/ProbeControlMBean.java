@@ -0,0 +1,25 @@
+package undercover.runtime;
+
+import java.io.IOException;
+
+/**
+ * Management interface of {@link Probe#INSTANCE}, registered as {@link ProbeControl#OBJECT_NAME}.
+ */
+public interface ProbeControlMBean {
+	/**
+	 * Saves coverage data as when the JVM exits.
+	 */
+	void save();
+
+	/**
+	 * Saves a snapshot of coverage data to the file.
+	 */
+	void dump(String file) throws IOException;
+
+	/**
+	 * Saves a snapshot of coverage data to the file, and clears counters.
+	 */
+	void dumpAndReset(String file) throws IOException;
+
+	void reset();
+}
@@ -0,0 +1,106 @@
+package undercover.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import undercover.support.JdkLogger;
+
+/**
+ * Counters registered by class initializers of instrumented classes.
+ * Registration neither locks nor initializes {@link Probe}, and allocates only an entry of a lock-free stack.
+ * {@link Probe#INSTANCE} takes the registered counters whenever its coverage data is requested.
+ * <p>
+ * The first registration installs the exit hook and starts controls and snapshots, which initialize {@link Probe} only
+ * when they are used, so that a running JVM of classes instrumented offline can be dumped, and survives being killed.
+ */
+public class Registry {
+	private static final AtomicReference<Registration> HEAD = new AtomicReference<Registration>();
+	private static final AtomicBoolean EXIT_HOOK_INSTALLED = new AtomicBoolean();
+
+	static {
+		if (installExitHook()) {
+			startControl();
+		}
+	}
+
+	static class Registration {
+		final String className;
+		final Object counters;
+		final int[] shape;
+		Registration next;
+
+		Registration(String className, Object counters, int[] shape) {
+			this.className = className;
+			this.counters = counters;
+			this.shape = shape;
+		}
+	}
+
+	public static void register(String className, int[][] coverage) {
+		push(new Registration(className, coverage, null));
+	}
+
+	public static void register(String className, ThreadCounters counters) {
+		push(new Registration(className, counters, null));
+	}
+
+	/**
+	 * @see Probe#register(String, boolean[], int[])
+	 */
+	public static void register(String className, boolean[] hits, int[] blockCounts) {
+		push(new Registration(className, hits, blockCounts));
+	}
+
+	/**
+	 * @see Probe#register(String, int[], int[])
+	 */
+	public static void register(String className, int[] counters, int[] offsets) {
+		push(new Registration(className, counters, offsets));
+	}
+
+	static void push(Registration registration) {
+		do {
+			registration.next = HEAD.get();
+		} while (!HEAD.compareAndSet(registration.next, registration));
+	}
+
+	/**
+	 * @return registrations since the last call, in registration order.
+	 */
+	static List<Registration> drain() {
+		List<Registration> result = new ArrayList<Registration>();
+		for (Registration each = HEAD.getAndSet(null); each != null; each = each.next) {
+			result.add(each);
+		}
+		for (int i = 0, j = result.size() - 1; i < j; i++, j--) {
+			result.set(j, result.set(i, result.get(j)));
+		}
+		return result;
+	}
+
+	/**
+	 * Installs the exit hook of {@link Probe#INSTANCE} once, which initializes it on exit if it is not used until then.
+	 * 
+	 * @return <code>false</code> if the JVM is already shutting down.
+	 */
+	static boolean installExitHook() {
+		if (EXIT_HOOK_INSTALLED.compareAndSet(false, true)) {
+			try {
+				Runtime.getRuntime().addShutdownHook(new ExitHook());
+			} catch (IllegalStateException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Starts controls and snapshots with settings of their own, so that {@link Probe} is not initialized,
+	 * which in turn uses this class.
+	 */
+	static void startControl() {
+		ProbeControl.start(UndercoverSettings.load(), new JdkLogger());
+	}
+}
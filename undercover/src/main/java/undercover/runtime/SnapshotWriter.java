@@ -0,0 +1,199 @@
+package undercover.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+
+import undercover.support.JdkLogger;
+import undercover.support.Logger;
+
+/**
+ * Saves coverage data into a directory periodically, on a low priority daemon thread,
+ * so that coverage survives a JVM which never runs its exit hook.
+ * It is started when the agent starts or the first instrumented class registers to {@link Registry}, whichever is first.
+ * <p>
+ * A snapshot file has only the classes whose counters changed since the previous snapshot,
+ * and the classes whose latest copy is in the file deleted for retention, which are carried over.
+ * Files of a JVM are named <code>undercover-RUN-SEQUENCE.cd</code>. They are written to a temporary file first,
+ * and renamed. {@link #load(File)} reads the latest copy of each class of each run, and merges runs.
+ */
+public class SnapshotWriter extends Thread {
+	static final String PREFIX = "undercover-";
+	static final String SUFFIX = ".cd";
+
+	private final Probe probe;
+	private final File directory;
+	private final long interval;
+	private final int retention;
+	private final String run;
+	private final Map<String, int[]> counts;
+	private final Map<String, Integer> locations;
+	private final LinkedList<Integer> sequences;
+	private int sequence;
+	private int clearCount;
+	private Logger logger = new JdkLogger();
+
+	/**
+	 * @param probe <code>null</code> for {@link Probe#INSTANCE}, which is initialized by the first snapshot.
+	 */
+	public SnapshotWriter(Probe probe, UndercoverSettings settings) {
+		this(probe, settings.getSnapshotDirectory(), settings.getSnapshotInterval() * 1000L, settings.getSnapshotRetention());
+	}
+
+	SnapshotWriter(Probe probe, File directory, long interval, int retention) {
+		super("undercover-snapshot");
+		this.probe = probe;
+		this.directory = directory;
+		this.interval = interval;
+		this.retention = Math.max(retention, 1);
+		run = Helper.newRunId();
+		counts = new HashMap<String, int[]>();
+		locations = new HashMap<String, Integer>();
+		sequences = new LinkedList<Integer>();
+		setDaemon(true);
+		setPriority(MIN_PRIORITY);
+	}
+
+	public void setLogger(Logger logger) {
+		this.logger = logger;
+	}
+
+	public void run() {
+		while (true) {
+			try {
+				sleep(interval);
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				snapshot();
+			} catch (IOException e) {
+				logger.error("Unable to save coverage snapshot to " + directory + ": " + e);
+			}
+		}
+	}
+
+	Probe getProbe() {
+		return probe == null ? Probe.INSTANCE : probe;
+	}
+
+	/**
+	 * Every class is changed once counters are cleared, because counts kept by {@link Probe#collect()} are not compared.
+	 * 
+	 * @return written file, or <code>null</code> if no counter is changed.
+	 */
+	File snapshot() throws IOException {
+		Probe probe = getProbe();
+		boolean cleared = probe.getClearCount() != clearCount;
+		clearCount = probe.getClearCount();
+		Integer evicted = sequences.size() >= retention ? sequences.getFirst() : null;
+		CoverageData snapshot = new CoverageData();
+		for (Coverage each : probe.getCoverageData().getCoverages()) {
+			boolean changed = updateCounts(each);
+			if (cleared || changed || locations.get(each.className).equals(evicted)) {
+				Coverage copy = probe.copyTotal(each);
+				snapshot.register(copy.className, copy.blocks, copy.counted);
+			}
+		}
+		if (snapshot.getCoverages().isEmpty()) {
+			return null;
+		}
+		sequence++;
+		File file = new File(directory, PREFIX + run + "-" + sequence + SUFFIX);
+		write(snapshot, file);
+		for (Coverage each : snapshot.getCoverages()) {
+			locations.put(each.className, sequence);
+		}
+		sequences.add(sequence);
+		if (evicted != null) {
+			new File(directory, PREFIX + run + "-" + evicted + SUFFIX).delete();
+			sequences.removeFirst();
+		}
+		return file;
+	}
+
+	/**
+	 * Writes a temporary file first, so that a killed JVM never leaves a partial snapshot.
+	 */
+	void write(CoverageData snapshot, File file) throws IOException {
+		directory.mkdirs();
+		File temporary = new File(directory, file.getName() + ".tmp");
+		snapshot.save(temporary, getProbe().getSettings().isCoverageBitset());
+		if (!temporary.renameTo(file)) {
+			temporary.delete();
+			throw new IOException("Unable to rename " + temporary + " to " + file);
+		}
+	}
+
+	/**
+	 * Compares counters with their counts of the previous snapshot exactly, and keeps the current counts for the next one.
+	 * Counts are kept in a single array for each class, which is allocated only when the class is first seen.
+	 * 
+	 * @return <code>true</code> if the class is new, or any counter is changed.
+	 */
+	boolean updateCounts(Coverage coverage) {
+		int size = 0;
+		for (int i = 0; i < coverage.getMethodCount(); i++) {
+			size += coverage.getBlockCount(i);
+		}
+		int[] previous = counts.get(coverage.className);
+		boolean result = previous == null || previous.length != size;
+		if (result) {
+			previous = new int[size];
+			counts.put(coverage.className, previous);
+		}
+		int index = 0;
+		for (int i = 0; i < coverage.getMethodCount(); i++) {
+			for (int j = 0; j < coverage.getBlockCount(i); j++, index++) {
+				int count = coverage.countExecution(i, j);
+				if (previous[index] != count) {
+					previous[index] = count;
+					result = true;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the latest copy of each class in each run, merged across runs.
+	 */
+	public static CoverageData load(File directory) throws IOException {
+		Map<String, TreeMap<Integer, File>> runs = new TreeMap<String, TreeMap<Integer, File>>();
+		File[] files = directory.listFiles();
+		for (File each : files == null ? new File[0] : files) {
+			String name = each.getName();
+			int separator = name.lastIndexOf('-');
+			if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX) || separator < PREFIX.length()) {
+				continue;
+			}
+			String run = name.substring(PREFIX.length(), separator);
+			TreeMap<Integer, File> sequences = runs.get(run);
+			if (sequences == null) {
+				sequences = new TreeMap<Integer, File>();
+				runs.put(run, sequences);
+			}
+			try {
+				sequences.put(Integer.parseInt(name.substring(separator + 1, name.length() - SUFFIX.length())), each);
+			} catch (NumberFormatException e) {
+				continue;
+			}
+		}
+		CoverageData result = new CoverageData();
+		for (TreeMap<Integer, File> each : runs.values()) {
+			CoverageData latest = new CoverageData();
+			for (File file : each.values()) {
+				for (Coverage coverage : CoverageData.load(file).getCoverages()) {
+					latest.register(coverage.className, coverage.blocks, coverage.counted);
+				}
+			}
+			for (Coverage coverage : latest.getCoverages()) {
+				result.mergeOrReplace(coverage);
+			}
+		}
+		return result;
+	}
+}
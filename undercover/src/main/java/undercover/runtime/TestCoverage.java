@@ -0,0 +1,46 @@
+package undercover.runtime;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Blocks executed by a test. Blocks of each executed class are a bitset of all blocks in method order,
+ * i.e. indexed by block offsets of methods in meta data.
+ */
+public class TestCoverage {
+	public final String testName;
+	public final Map<String, BitSet> classes;
+
+	public TestCoverage(String testName, Map<String, BitSet> classes) {
+		this.testName = testName;
+		this.classes = classes;
+	}
+
+	/**
+	 * @param coverageData coverage of the test only, e.g. {@link Probe#collect()}.
+	 */
+	public static TestCoverage of(String testName, CoverageData coverageData) {
+		Map<String, BitSet> classes = new LinkedHashMap<String, BitSet>();
+		for (Coverage each : coverageData.getCoverages()) {
+			BitSet blocks = new BitSet();
+			int index = 0;
+			for (int i = 0; i < each.getMethodCount(); i++) {
+				for (int j = 0; j < each.getBlockCount(i); j++) {
+					if (each.countExecution(i, j) != 0) {
+						blocks.set(index);
+					}
+					index++;
+				}
+			}
+			if (!blocks.isEmpty()) {
+				classes.put(each.className, blocks);
+			}
+		}
+		return new TestCoverage(testName, classes);
+	}
+
+	public String toString() {
+		return testName + classes;
+	}
+}
@@ -0,0 +1,102 @@
+package undercover.runtime;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads coverage of tests written by {@link TestCoverageWriter}.
+ * A test which is partially written, e.g. by a killed JVM, is ignored.
+ */
+public class TestCoverageReader {
+	static final String SUFFIX = ".tc";
+
+	private final CoverageDataReader input;
+
+	public TestCoverageReader(ReadableByteChannel channel) {
+		input = new CoverageDataReader(channel);
+	}
+
+	public List<TestCoverage> read() throws IOException {
+		List<TestCoverage> result = new ArrayList<TestCoverage>();
+		int magic = 0;
+		try {
+			for (int i = 0; i < 4; i++) {
+				magic = magic << 8 | input.readByte();
+			}
+		} catch (EOFException e) {
+			return result;
+		}
+		if (magic != TestCoverageWriter.MAGIC) {
+			throw new IOException("Not a test coverage file");
+		}
+		int version = input.readByte();
+		if (version != TestCoverageWriter.VERSION) {
+			throw new IOException("Unsupported test coverage version " + version);
+		}
+		List<String> classNames = new ArrayList<String>();
+		try {
+			while (true) {
+				result.add(readTest(classNames));
+			}
+		} catch (EOFException e) {
+			return result;
+		}
+	}
+
+	TestCoverage readTest(List<String> classNames) throws IOException {
+		String testName = input.readString();
+		int classCount = input.readVarint();
+		Map<String, BitSet> classes = new LinkedHashMap<String, BitSet>();
+		for (int i = 0; i < classCount; i++) {
+			int classId = input.readVarint();
+			if (classId == classNames.size()) {
+				classNames.add(input.readString());
+			}
+			BitSet blocks = new BitSet();
+			int bitCount = input.readVarint();
+			for (int j = 0; j < bitCount; j += 8) {
+				int bits = input.readByte();
+				for (int k = 0; k < 8; k++) {
+					if ((bits & 1 << k) != 0) {
+						blocks.set(j + k);
+					}
+				}
+			}
+			classes.put(classNames.get(classId), blocks);
+		}
+		return new TestCoverage(testName, classes);
+	}
+
+	/**
+	 * @param file a test coverage file, or a directory of them.
+	 */
+	public static List<TestCoverage> load(File file) throws IOException {
+		List<TestCoverage> result = new ArrayList<TestCoverage>();
+		if (file.isDirectory()) {
+			File[] files = file.listFiles();
+			Arrays.sort(files);
+			for (File each : files) {
+				if (each.getName().endsWith(SUFFIX)) {
+					result.addAll(load(each));
+				}
+			}
+			return result;
+		}
+		FileInputStream input = null;
+		try {
+			input = new FileInputStream(file);
+			return new TestCoverageReader(input.getChannel()).read();
+		} finally {
+			Helper.closeQuietly(input);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package undercover.runtime;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes coverage of tests as they finish, in a compact binary format.
+ * <pre>
+ * header   int magic "UCTC", byte version
+ * tests    for each test, name and varint class count, followed by classes
+ * class    varint class id, name if the id is new, varint bit count and bitset bytes of executed blocks
+ * </pre>
+ * Class ids are numbered in order of appearance, so that each class name is written once.
+ * Each test is flushed, so that tests finished before a JVM is killed are kept.
+ */
+public class TestCoverageWriter {
+	static final int MAGIC = 0x55435443;
+	static final byte VERSION = 1;
+
+	private final CoverageDataWriter output;
+	private final Map<String, Integer> classIds;
+
+	public TestCoverageWriter(WritableByteChannel channel) throws IOException {
+		output = new CoverageDataWriter(channel);
+		classIds = new HashMap<String, Integer>();
+		output.writeByte(MAGIC >>> 24);
+		output.writeByte(MAGIC >>> 16);
+		output.writeByte(MAGIC >>> 8);
+		output.writeByte(MAGIC);
+		output.writeByte(VERSION);
+	}
+
+	public void write(TestCoverage testCoverage) throws IOException {
+		output.writeString(testCoverage.testName);
+		output.writeVarint(testCoverage.classes.size());
+		for (Map.Entry<String, BitSet> each : testCoverage.classes.entrySet()) {
+			Integer classId = classIds.get(each.getKey());
+			if (classId == null) {
+				output.writeVarint(classIds.size());
+				output.writeString(each.getKey());
+				classIds.put(each.getKey(), classIds.size());
+			} else {
+				output.writeVarint(classId);
+			}
+			BitSet blocks = each.getValue();
+			output.writeVarint(blocks.length());
+			for (int i = 0; i < blocks.length(); i += 8) {
+				int bits = 0;
+				for (int j = 0; j < 8; j++) {
+					if (blocks.get(i + j)) {
+						bits |= 1 << j;
+					}
+				}
+				output.writeByte(bits);
+			}
+		}
+		output.flush();
+	}
+}
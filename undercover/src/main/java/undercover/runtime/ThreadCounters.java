@@ -0,0 +1,141 @@
+package undercover.runtime;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Block counters of a class kept for each thread, so that no count is lost under contention.
+ * Counters of all threads are summed into the total counters by {@link #collect()}.
+ * Counters of a terminated thread are folded into retired counters, when another thread starts counting or counters are collected,
+ * so that memory is bounded by live threads rather than by all threads which ever ran the class.
+ */
+public class ThreadCounters implements Counters {
+	private final int[][] total;
+	private final int[][] retired;
+	private final List<Local> threads;
+	private final ThreadLocal<int[][]> local;
+
+	/**
+	 * Counters of a thread, which do not keep the thread alive.
+	 */
+	static class Local {
+		final WeakReference<Thread> owner;
+		final int[][] counters;
+
+		Local(Thread owner, int[][] counters) {
+			this.owner = new WeakReference<Thread>(owner);
+			this.counters = counters;
+		}
+
+		boolean isTerminated() {
+			Thread thread = owner.get();
+			return thread == null || !thread.isAlive();
+		}
+	}
+	
+	public ThreadCounters(int[][] total) {
+		this.total = total;
+		retired = newArrays(total);
+		threads = new ArrayList<Local>();
+		local = new ThreadLocal<int[][]>() {
+			protected int[][] initialValue() {
+				return newCounters();
+			}
+		};
+	}
+	
+	int[][] newCounters() {
+		int[][] result = newArrays(total);
+		synchronized (threads) {
+			retire();
+			threads.add(new Local(Thread.currentThread(), result));
+		}
+		return result;
+	}
+
+	static int[][] newArrays(int[][] shape) {
+		int[][] result = new int[shape.length][];
+		for (int i = 0; i < shape.length; i++) {
+			result[i] = new int[shape[i].length];
+		}
+		return result;
+	}
+
+	/**
+	 * Folds counters of terminated threads into the retired counters. Called with the lock of threads.
+	 */
+	void retire() {
+		for (Iterator<Local> i = threads.iterator(); i.hasNext();) {
+			Local each = i.next();
+			if (each.isTerminated()) {
+				for (int j = 0; j < retired.length; j++) {
+					for (int k = 0; k < retired[j].length; k++) {
+						retired[j][k] = (int) Math.min((long) retired[j][k] + each.counters[j][k], Integer.MAX_VALUE);
+					}
+				}
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return number of threads whose counters are kept.
+	 */
+	int getThreadCount() {
+		synchronized (threads) {
+			return threads.size();
+		}
+	}
+	
+	/**
+	 * @return counters of the current thread.
+	 */
+	public int[][] get() {
+		return local.get();
+	}
+	
+	public int[][] getTotal() {
+		return total;
+	}
+	
+	/**
+	 * Sums counters of all threads and the retired counters into the total counters, stopping at {@link Integer#MAX_VALUE}.
+	 * A total counter is never lowered, so that hits which entry probes of trivial methods set to the total counters are kept.
+	 */
+	public void collect() {
+		synchronized (threads) {
+			retire();
+			for (int i = 0; i < total.length; i++) {
+				for (int j = 0; j < total[i].length; j++) {
+					long sum = retired[i][j];
+					for (Local each : threads) {
+						sum += each.counters[i][j];
+					}
+					total[i][j] = (int) Math.max(total[i][j], Math.min(sum, Integer.MAX_VALUE));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Clears counters of all threads, which keep their arrays.
+	 */
+	public void reset() {
+		synchronized (threads) {
+			for (Local each : threads) {
+				clear(each.counters);
+			}
+			clear(retired);
+			clear(total);
+		}
+	}
+	
+	static void clear(int[][] counters) {
+		for (int[] each : counters) {
+			Arrays.fill(each, 0);
+		}
+	}
+}
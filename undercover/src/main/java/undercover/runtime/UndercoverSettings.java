@@ -11,6 +11,14 @@ public class UndercoverSettings {
 	private static final String LOCATION = "undercover.properties";
 	private static final String COVERAGEDATA_SAVE_ON_EXIT = "undercover.coveragedata.saveOnExit";
 	private static final String COVERAGEDATA_FILE = "undercover.coveragedata.file";
+	private static final String COVERAGEDATA_BITSET = "undercover.coveragedata.bitset";
+	private static final String COVERAGEDATA_APPEND = "undercover.coveragedata.append";
+	private static final String CONTROL_JMX = "undercover.control.jmx";
+	private static final String CONTROL_PORT = "undercover.control.port";
+	private static final String SNAPSHOT_INTERVAL = "undercover.snapshot.interval";
+	private static final String SNAPSHOT_DIRECTORY = "undercover.snapshot.directory";
+	private static final String SNAPSHOT_RETENTION = "undercover.snapshot.retention";
+	private static final String TESTCOVERAGE_DIRECTORY = "undercover.testcoverage.directory";
 	
 	private final Properties properties;
 
@@ -57,6 +65,14 @@ public class UndercoverSettings {
 		return defaultValue;
 	}
 
+	public int getProperty(String key, int defaultValue) {
+		String value = properties.getProperty(key);
+		if (value != null) {
+			return Integer.parseInt(value.trim());
+		}
+		return defaultValue;
+	}
+
 	public File getProperty(String key, File defaultValue) {
 		String value = properties.getProperty(key);
 		if (value != null) {
@@ -80,4 +96,97 @@ public class UndercoverSettings {
 	public void setCoverageFile(File file) {
 		properties.setProperty(COVERAGEDATA_FILE, file.getAbsolutePath());
 	}
+
+	/**
+	 * Saves only whether blocks are executed or not, without execution counts.
+	 */
+	public boolean isCoverageBitset() {
+		return getProperty(COVERAGEDATA_BITSET, false);
+	}
+
+	public void setCoverageBitset(boolean coverageBitset) {
+		properties.setProperty(COVERAGEDATA_BITSET, Boolean.toString(coverageBitset));
+	}
+
+	/**
+	 * Merges into the existing coverage data file, instead of overwriting it, under a file lock.
+	 */
+	public boolean isCoverageAppend() {
+		return getProperty(COVERAGEDATA_APPEND, false);
+	}
+
+	public void setCoverageAppend(boolean coverageAppend) {
+		properties.setProperty(COVERAGEDATA_APPEND, Boolean.toString(coverageAppend));
+	}
+
+	/**
+	 * Registers {@link ProbeControlMBean} to the platform MBean server.
+	 */
+	public boolean isControlJmx() {
+		return getProperty(CONTROL_JMX, false);
+	}
+
+	public void setControlJmx(boolean controlJmx) {
+		properties.setProperty(CONTROL_JMX, Boolean.toString(controlJmx));
+	}
+
+	/**
+	 * Port of {@link ControlServer} on the loopback address, or 0 if it is not started.
+	 */
+	public int getControlPort() {
+		return getProperty(CONTROL_PORT, 0);
+	}
+
+	public void setControlPort(int controlPort) {
+		properties.setProperty(CONTROL_PORT, Integer.toString(controlPort));
+	}
+
+	/**
+	 * Seconds between snapshots of {@link SnapshotWriter}, or 0 if no snapshot is saved.
+	 */
+	public int getSnapshotInterval() {
+		return getProperty(SNAPSHOT_INTERVAL, 0);
+	}
+
+	public void setSnapshotInterval(int snapshotInterval) {
+		properties.setProperty(SNAPSHOT_INTERVAL, Integer.toString(snapshotInterval));
+	}
+
+	/**
+	 * Directory of snapshots, which defaults to <code>undercover-snapshots</code> next to the coverage data file.
+	 */
+	public File getSnapshotDirectory() {
+		return getProperty(SNAPSHOT_DIRECTORY, nextToCoverageFile("undercover-snapshots"));
+	}
+
+	File nextToCoverageFile(String name) {
+		File coverageFile = getCoverageFile();
+		return new File(coverageFile == null ? null : coverageFile.getAbsoluteFile().getParentFile(), name);
+	}
+
+	public void setSnapshotDirectory(File snapshotDirectory) {
+		properties.setProperty(SNAPSHOT_DIRECTORY, snapshotDirectory.getAbsolutePath());
+	}
+
+	/**
+	 * Number of snapshot files kept by a JVM, 10 by default.
+	 */
+	public int getSnapshotRetention() {
+		return getProperty(SNAPSHOT_RETENTION, 10);
+	}
+
+	public void setSnapshotRetention(int snapshotRetention) {
+		properties.setProperty(SNAPSHOT_RETENTION, Integer.toString(snapshotRetention));
+	}
+
+	/**
+	 * Directory of coverage of each test, which defaults to <code>undercover-tests</code> next to the coverage data file.
+	 */
+	public File getTestCoverageDirectory() {
+		return getProperty(TESTCOVERAGE_DIRECTORY, nextToCoverageFile("undercover-tests"));
+	}
+
+	public void setTestCoverageDirectory(File testCoverageDirectory) {
+		properties.setProperty(TESTCOVERAGE_DIRECTORY, testCoverageDirectory.getAbsolutePath());
+	}
 }
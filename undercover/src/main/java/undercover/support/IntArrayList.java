@@ -0,0 +1,30 @@
+package undercover.support;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Unmodifiable list view of an int array. Elements are boxed only when they are read.
+ */
+public class IntArrayList extends AbstractList<Integer> implements RandomAccess, Serializable {
+	private static final long serialVersionUID = -2035616337823914335L;
+
+	private final int[] values;
+
+	public IntArrayList(int[] values) {
+		this.values = values;
+	}
+
+	public Integer get(int index) {
+		return values[index];
+	}
+
+	public int getInt(int index) {
+		return values[index];
+	}
+
+	public int size() {
+		return values.length;
+	}
+}
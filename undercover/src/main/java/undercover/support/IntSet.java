@@ -0,0 +1,101 @@
+package undercover.support;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of ints kept in a sorted array, for a few elements such as lines of a block.
+ * Elements are boxed only when they are iterated.
+ */
+public class IntSet extends AbstractSet<Integer> implements Serializable {
+	private static final long serialVersionUID = 4427325962815313460L;
+
+	private int[] values;
+	private int size;
+
+	public IntSet() {
+		values = new int[2];
+	}
+
+	public IntSet(int... values) {
+		this();
+		for (int each : values) {
+			add(each);
+		}
+	}
+
+	/**
+	 * Searches from the largest element, because elements are mostly added in ascending order.
+	 */
+	public boolean add(int value) {
+		int index = size;
+		while (index > 0 && values[index - 1] > value) {
+			index--;
+		}
+		if (index > 0 && values[index - 1] == value) {
+			return false;
+		}
+		if (size == values.length) {
+			int[] grown = new int[size * 2];
+			System.arraycopy(values, 0, grown, 0, size);
+			values = grown;
+		}
+		System.arraycopy(values, index, values, index + 1, size - index);
+		values[index] = value;
+		size++;
+		return true;
+	}
+
+	public boolean add(Integer value) {
+		return add(value.intValue());
+	}
+
+	public boolean contains(int value) {
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean contains(Object o) {
+		return o instanceof Integer && contains(((Integer) o).intValue());
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return elements in ascending order.
+	 */
+	public int[] toIntArray() {
+		int[] result = new int[size];
+		System.arraycopy(values, 0, result, 0, size);
+		return result;
+	}
+
+	public Iterator<Integer> iterator() {
+		return new Iterator<Integer>() {
+			private int index;
+
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			public Integer next() {
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+				return values[index++];
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -0,0 +1,43 @@
+package undercover.support.xml;
+
+import java.util.LinkedList;
+
+/**
+ * Builds the tree of a stream of elements, e.g. to inspect a small document.
+ * Nodes outside of the root element, such as declarations, are ignored.
+ */
+public class ElementBuilder implements XmlStream {
+	private final LinkedList<Element> started;
+	private Element root;
+
+	public ElementBuilder() {
+		started = new LinkedList<Element>();
+	}
+
+	public XmlStream start(Element element) {
+		write(element);
+		started.add(element);
+		return this;
+	}
+
+	public XmlStream write(Node node) {
+		if (!started.isEmpty()) {
+			started.getLast().append(node);
+		} else if (root == null && node instanceof Element) {
+			root = (Element) node;
+		}
+		return this;
+	}
+
+	public XmlStream end() {
+		started.removeLast();
+		return this;
+	}
+
+	/**
+	 * @return the first element, or <code>null</code> if there is none.
+	 */
+	public Element getRoot() {
+		return root;
+	}
+}
@@ -0,0 +1,20 @@
+package undercover.support.xml;
+
+/**
+ * Stream of elements which are written as they are started and ended,
+ * so that a large document is never held in memory as a whole.
+ * Small subtrees, such as a table row, are built as nodes and written at once.
+ */
+public interface XmlStream {
+	/**
+	 * Starts the element with its attributes and children, which is left open for more children until {@link #end()}.
+	 */
+	XmlStream start(Element element);
+
+	XmlStream write(Node node);
+
+	/**
+	 * Ends the element which is started last.
+	 */
+	XmlStream end();
+}
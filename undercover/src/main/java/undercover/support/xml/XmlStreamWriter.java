@@ -0,0 +1,36 @@
+package undercover.support.xml;
+
+import java.io.PrintWriter;
+import java.util.LinkedList;
+
+/**
+ * Writes a stream of elements with {@link XmlWriter}. Only the started elements are kept, for their end tags.
+ */
+public class XmlStreamWriter implements XmlStream {
+	private final XmlWriter writer;
+	private final LinkedList<Element> started;
+
+	public XmlStreamWriter(PrintWriter out) {
+		writer = new XmlWriter(out);
+		started = new LinkedList<Element>();
+	}
+
+	public XmlStream start(Element element) {
+		writer.enterElement(element);
+		for (Node each : element.children) {
+			each.accept(writer);
+		}
+		started.add(element);
+		return this;
+	}
+
+	public XmlStream write(Node node) {
+		node.accept(writer);
+		return this;
+	}
+
+	public XmlStream end() {
+		writer.leaveElement(started.removeLast());
+		return this;
+	}
+}
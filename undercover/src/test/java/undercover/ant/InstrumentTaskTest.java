@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.util.Arrays;
 
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
 import org.jmock.Mockery;
 import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
@@ -54,4 +55,36 @@ public class InstrumentTaskTest {
 	public void destDirIsRequired() {
 		dut.checkDestDir();
 	}
+	
+	@Test public void destDirIsNotRequiredForMetaDataOnly() {
+		dut.setMetaDataOnly(true);
+		dut.checkDestDir();
+		assertNull(dut.destDir);
+	}
+
+	@Test public void exclusions() {
+		dut.setExcludeAnnotations("lombok.Generated");
+		dut.setExcludeAccess("synthetic, private static");
+		dut.setExcludeMethods("toString , hashCode()I");
+		dut.checkExclusions();
+		assertEquals("[annotations=[lombok.Generated], access=synthetic, access=private static, methods=[toString, hashCode()I]]", dut.exclusions.toString());
+	}
+	
+	@Test public void agentOptions() {
+		dut.setProject(new Project());
+		dut.createFilter().setIncludes("p/**");
+		dut.setProbeMode("hit");
+		dut.setExcludeAccess("synthetic, private static");
+		dut.setExcludeMethods("toString");
+		dut.checkFilter();
+		dut.checkExclusions();
+		dut.checkProbeMode();
+		assertEquals("include=p/**,probe=hit,flat=false,cache=false,skipTrivial=false,excludeAccess=synthetic,excludeAccess=private static,excludeMethod=toString", dut.agentOptions());
+	}
+	
+	@Test(expected=BuildException.class)
+	public void unknownAccessFlag() {
+		dut.setExcludeAccess("generated");
+		dut.checkExclusions();
+	}
 }
@@ -0,0 +1,38 @@
+package undercover.ant;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MergeTaskTest {
+	private MergeTask dut;
+
+	@Before public void beforeEach() {
+		dut = new MergeTask();
+		dut.setProject(new Project());
+	}
+	
+	@Test(expected=BuildException.class)
+	public void fileSetIsRequired() {
+		dut.checkFiles();
+	}
+
+	@Test public void files() throws IOException {
+		File file = File.createTempFile("undercover-", ".cd");
+		file.deleteOnExit();
+		FileSet fileSet = new FileSet();
+		fileSet.setDir(file.getParentFile());
+		fileSet.setIncludes(file.getName());
+		dut.addFileSet(fileSet);
+		dut.checkFiles();
+		assertEquals(Arrays.asList(file), dut.files);
+	}
+}
@@ -0,0 +1,33 @@
+package undercover.ant;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestImpactTaskTest {
+	private TestImpactTask dut;
+
+	@Before public void beforeEach() {
+		dut = new TestImpactTask();
+		dut.setProject(new Project());
+	}
+
+	@Test(expected=BuildException.class)
+	public void changesFileIsRequired() {
+		dut.checkChangesFile();
+	}
+
+	@Test public void testCoverageDir() {
+		dut.checkTestCoverageDir();
+		assertEquals(new File("undercover-tests"), dut.testCoverageDir);
+		File dir = new File("tests");
+		dut.setTestCoverageDir(dir);
+		dut.checkTestCoverageDir();
+		assertEquals(dir, dut.testCoverageDir);
+	}
+}
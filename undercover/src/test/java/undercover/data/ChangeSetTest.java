@@ -0,0 +1,73 @@
+package undercover.data;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ChangeSetTest {
+	@Test public void parseList() throws IOException {
+		ChangeSet dut = ChangeSet.parse(new StringReader("# changed\nsrc/p/C.java:3,10-12\n\nsrc/p/D.java\n"));
+		assertEquals(Arrays.asList("src/p/C.java", "src/p/D.java"), Arrays.asList(dut.getPaths().toArray()));
+		assertArrayEquals(new int[] { 3, 10, 11, 12 }, dut.getLines("src/p/C.java").toIntArray());
+		assertNull(dut.getLines("src/p/D.java"));
+	}
+
+	@Test public void parseDiff() throws IOException {
+		ChangeSet dut = ChangeSet.parse(new StringReader(
+				"diff --git a/src/p/C.java b/src/p/C.java\n" +
+				"index 1..2 100644\n" +
+				"--- a/src/p/C.java\n" +
+				"+++ b/src/p/C.java\n" +
+				"@@ -3,4 +3,4 @@ class C {\n" +
+				" \tint a;\n" +
+				"-\tint b;\n" +
+				"+\tint c;\n" +
+				" \tint d;\n" +
+				"@@ -20,3 +20,2 @@\n" +
+				" \tint e;\n" +
+				"-\tint f;\n" +
+				" }\n" +
+				"\\ No newline at end of file\n" +
+				"--- a/src/p/D.java\n" +
+				"+++ /dev/null\n" +
+				"@@ -1 +0,0 @@\n" +
+				"-class D {}\n"));
+		assertArrayEquals(new int[] { 4, 5, 21 }, dut.getLines("src/p/C.java").toIntArray());
+		assertNull(dut.getLines("src/p/D.java"));
+		assertTrue(dut.getPaths().contains("src/p/D.java"));
+	}
+
+	@Test public void parseDiffByOldLines() throws IOException {
+		ChangeSet dut = ChangeSet.parse(new StringReader(
+				"--- a/src/p/C.java\n" +
+				"+++ b/src/p/C.java\n" +
+				"@@ -2,2 +2,4 @@\n" +
+				" \tint a;\n" +
+				"+\tint x;\n" +
+				"+\tint y;\n" +
+				" \tint b;\n" +
+				"@@ -10,3 +12,3 @@\n" +
+				" \tint c;\n" +
+				"-\tint d;\n" +
+				"+\tint e;\n" +
+				" \tint f;\n" +
+				"@@ -20,0 +22,1 @@\n" +
+				"+\tint g;\n" +
+				"--- /dev/null\n" +
+				"+++ b/src/p/E.java\n" +
+				"@@ -0,0 +1 @@\n" +
+				"+class E {}\n"));
+		assertArrayEquals(new int[] { 2, 3, 11, 12, 20, 21 }, dut.getLines("src/p/C.java").toIntArray());
+		assertNull(dut.getLines("src/p/E.java"));
+		assertTrue(dut.getPaths().contains("src/p/E.java"));
+	}
+
+	@Test(expected=IOException.class)
+	public void invalidHunk() throws IOException {
+		ChangeSet.parse(new StringReader("+++ b/C.java\n@@ -1 @@\n"));
+	}
+}
@@ -0,0 +1,70 @@
+package undercover.data;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import undercover.runtime.CoverageData;
+
+public class CoverageMergerTest {
+	private CoverageMerger dut;
+
+	@Before public void beforeEach() {
+		dut = new CoverageMerger();
+	}
+
+	@Test public void merge() throws IOException {
+		dut.merge(Arrays.asList(
+				save(new int[][] { { 1, 0 }, { 2 } }, "p/d", new int[][] { { 3 } }),
+				save(new int[][] { { 0, 5 }, { 1 } }, "p/e", new int[][] { { 4 } })));
+		CoverageData actual = dut.getCoverageData();
+		assertArrayEquals(new int[][] { { 1, 5 }, { 3 } }, actual.getCoverage("p/c").blocks);
+		assertArrayEquals(new int[][] { { 3 } }, actual.getCoverage("p/d").blocks);
+		assertArrayEquals(new int[][] { { 4 } }, actual.getCoverage("p/e").blocks);
+	}
+
+	@Test public void rejectUnmatchedCoverage() throws IOException {
+		dut.merge(save(new int[][] { { 1, 0 }, { 2 } }, "p/d", new int[][] { { 3 } }));
+		try {
+			dut.merge(save(new int[][] { { 1 }, { 2 } }, "p/e", new int[][] { { 4 } }));
+			fail();
+		} catch (IOException expected) {
+		}
+		assertArrayEquals(new int[][] { { 1, 0 }, { 2 } }, dut.getCoverageData().getCoverage("p/c").blocks);
+		assertNull(dut.getCoverageData().getCoverage("p/e"));
+	}
+
+	@Test public void rejectUnmatchedMetaData() throws IOException {
+		MetaData metaData = new MetaData();
+		BlockMeta block = new BlockMeta(Arrays.asList(1));
+		metaData.addClass(new ClassMeta("p/c", "c.java", Arrays.asList(new MethodMeta("m", "()V", 1, Arrays.asList(block, block)), new MethodMeta("n", "()V", 1, Arrays.asList(block)))));
+		dut.setMetaData(metaData);
+		File matched = save(new int[][] { { 1, 0 }, { 2 } }, "p/c", new int[][] { { 1, 0 }, { 2 } });
+		dut.merge(matched);
+		try {
+			dut.merge(save(new int[][] { { 1, 0 }, { 2 } }, "p/d", new int[][] { { 3 } }));
+			fail();
+		} catch (IOException expected) {
+		}
+		try {
+			dut.merge(save(new int[][] { { 1 } }, "p/c", new int[][] { { 1 } }));
+			fail();
+		} catch (IOException expected) {
+		}
+	}
+
+	File save(int[][] c, String otherClassName, int[][] other) throws IOException {
+		File file = File.createTempFile("undercover-", ".cd");
+		file.deleteOnExit();
+		CoverageData coverageData = new CoverageData();
+		coverageData.register("p/c", c);
+		coverageData.register(otherClassName, other);
+		coverageData.save(file);
+		return file;
+	}
+}
@@ -3,12 +3,16 @@ package undercover.data;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 
 import org.junit.Test;
 
+import undercover.support.IOUtils;
+
 public class MetaDataTest {
 	@Test public void loadAndSave() throws IOException {
 		File file = File.createTempFile("undercover-", ".md");
@@ -20,4 +24,68 @@ public class MetaDataTest {
 		MetaData actual = MetaData.load(file);
 		assertEquals(expected, actual);
 	}
+
+	@Test public void loadAndSaveAnonymousClassAndLines() throws IOException {
+		File file = File.createTempFile("undercover-", ".md");
+		MetaData expected = new MetaData();
+		MethodMeta methodMeta = new MethodMeta("run", "()V", 2, Arrays.asList(new BlockMeta(Arrays.asList(10, 11)), new BlockMeta(Arrays.asList(12))));
+		MethodMeta nextMethodMeta = new MethodMeta("next", "()V", 1, Arrays.asList(new BlockMeta(Arrays.asList(13))), 2, true);
+		expected.addClass(new ClassMeta("Foo", "Foo.java"));
+		expected.addClass(new ClassMeta("Foo$1", "Foo.java", Arrays.asList(methodMeta, nextMethodMeta), new ClassMeta.Outer("Foo", "bar")));
+		expected.save(file);
+		MetaData actual = MetaData.load(file);
+		assertEquals(expected, actual);
+		assertEquals(expected.getClass("Foo$1"), actual.getClass("Foo$1"));
+		assertNull(actual.getClass("Bar"));
+	}
+
+	@Test public void addClassToLoaded() throws IOException {
+		File file = File.createTempFile("undercover-", ".md");
+		MetaData saved = new MetaData();
+		saved.addClass(new ClassMeta("Foo", "Foo.java"));
+		saved.save(file);
+		MetaData dut = MetaData.load(file);
+		assertEquals(1, dut.addClass(new ClassMeta("Bar", "Bar.java")));
+		assertEquals("Bar", dut.getClass("Bar").name);
+		assertEquals("Foo", dut.getClass("Foo").name);
+		dut.save(file);
+		assertEquals(2, MetaData.load(file).getAllClasses().size());
+	}
+
+	@Test public void getFirstOfDuplicateClasses() throws IOException {
+		File file = File.createTempFile("undercover-", ".md");
+		MetaData dut = new MetaData();
+		dut.addClass(new ClassMeta("Foo", "Foo.java"));
+		dut.addClass(new ClassMeta("Foo", "Bar.java"));
+		assertEquals("Foo.java", dut.getClass("Foo").source);
+		dut.save(file);
+		assertEquals("Foo.java", MetaData.load(file).getClass("Foo").source);
+	}
+
+	@Test public void getClassAndMethod() {
+		MetaData dut = new MetaData();
+		MethodMeta bar = new MethodMeta("bar", "()V", 1, new ArrayList<BlockMeta>());
+		MethodMeta barInt = new MethodMeta("bar", "(I)V", 1, new ArrayList<BlockMeta>());
+		dut.addClass(new ClassMeta("Foo", "Foo.java", Arrays.asList(bar, barInt)));
+		assertNull(dut.getClass("Baz"));
+		dut.addClass(new ClassMeta("Baz", "Baz.java"));
+		assertEquals("Baz", dut.getClass("Baz").name);
+		assertSame(barInt, dut.getClass("Foo").getMethod("bar", "(I)V"));
+		assertSame(bar, dut.getClass("Foo").getMethod("bar", "()V"));
+		assertNull(dut.getClass("Foo").getMethod("bar", "(J)V"));
+	}
+
+	@Test public void loadSerialized() throws IOException {
+		File file = File.createTempFile("undercover-", ".md");
+		MetaData expected = new MetaData();
+		expected.addClass(new ClassMeta("Foo", "Foo.java"));
+		ObjectOutputStream output = null;
+		try {
+			output = new ObjectOutputStream(new FileOutputStream(file));
+			output.writeObject(expected);
+		} finally {
+			IOUtils.closeQuietly(output);
+		}
+		assertEquals(expected, MetaData.load(file));
+	}
 }
@@ -0,0 +1,92 @@
+package undercover.data;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import undercover.runtime.TestCoverage;
+
+public class TestImpactIndexTest {
+	private TestImpactIndex dut;
+
+	@Before public void beforeEach() {
+		MetaData metaData = new MetaData();
+		metaData.addClass(new ClassMeta("p/C", "C.java", Arrays.asList(
+				new MethodMeta("m", "()V", 2, Arrays.asList(new BlockMeta(Arrays.asList(3, 4)), new BlockMeta(Arrays.asList(5)))),
+				new MethodMeta("n", "()V", 1, Arrays.asList(new BlockMeta(Arrays.asList(8)))),
+				new MethodMeta("o", "()V", 2, Arrays.asList(new BlockMeta(Arrays.asList(10)), new BlockMeta(Arrays.asList(12)))))));
+		dut = TestImpactIndex.build(metaData, Arrays.asList(
+				test("T#a", "p/C", 0),
+				test("T#b", "p/C", 1, 2),
+				test("T#c", "p/Unknown", 0),
+				test("T#a", "p/C", 2),
+				test("T#d", "p/C", 4)));
+	}
+
+	@Test public void getTests() {
+		assertEquals(Collections.singleton("T#a"), dut.getTests("p/C.java", 3));
+		assertEquals(Collections.singleton("T#b"), dut.getTests("p/C.java", 5));
+		assertEquals(Arrays.asList("T#a", "T#b"), Arrays.asList(dut.getTests("p/C.java", 8).toArray()));
+		assertTrue(dut.getTests("p/C.java", 6).isEmpty());
+		assertTrue(dut.getTests("p/D.java", 3).isEmpty());
+	}
+
+	@Test public void selectTests() throws IOException {
+		assertEquals(Collections.singleton("T#a"), dut.selectTests(ChangeSet.parse(new StringReader("src/main/java/p/C.java:4,10"))));
+		assertEquals(Arrays.asList("T#a", "T#b", "T#d"), Arrays.asList(dut.selectTests(ChangeSet.parse(new StringReader("src/main/java/p/C.java"))).toArray()));
+		assertEquals(Arrays.asList("T#a", "T#b", "T#c", "T#d"), Arrays.asList(dut.selectTests(ChangeSet.parse(new StringReader("src/main/java/q/C.java"))).toArray()));
+	}
+
+	@Test public void selectTestsOfMethodAroundLineWithoutBlock() throws IOException {
+		assertEquals(Collections.singleton("T#d"), dut.selectTests(ChangeSet.parse(new StringReader("src/main/java/p/C.java:11"))));
+	}
+
+	@Test public void selectTestsOfFileForLineOutsideMethods() throws IOException {
+		assertEquals(Arrays.asList("T#a", "T#b", "T#d"), Arrays.asList(dut.selectTests(ChangeSet.parse(new StringReader("src/main/java/p/C.java:1"))).toArray()));
+	}
+
+	@Test public void selectTestsOfShiftedLines() throws IOException {
+		// The first hunk adds two lines, so the removed line 8 is line 10 of the new file
+		ChangeSet changes = ChangeSet.parse(new StringReader(
+				"--- a/src/main/java/p/C.java\n" +
+				"+++ b/src/main/java/p/C.java\n" +
+				"@@ -3,1 +3,3 @@\n" +
+				" \t\ta();\n" +
+				"+\t\tb();\n" +
+				"+\t\tc();\n" +
+				"@@ -8,1 +10,0 @@\n" +
+				"-\t\tn();\n"));
+		assertArrayEquals(new int[] { 3, 4, 8 }, changes.getLines("src/main/java/p/C.java").toIntArray());
+		assertEquals(Arrays.asList("T#a", "T#b"), Arrays.asList(dut.selectTests(changes).toArray()));
+	}
+
+	@Test public void selectAllTestsForUnknownPath() throws IOException {
+		ChangeSet changes = ChangeSet.parse(new StringReader("src/main/java/p/C.java:8\nsrc/test/java/p/CTest.java:3\n"));
+		assertEquals(dut.getAllTests(), dut.selectTests(changes));
+		assertEquals(Arrays.asList("T#a", "T#b", "T#c", "T#d"), Arrays.asList(dut.getAllTests().toArray()));
+	}
+
+	@Test public void getUnknownPaths() throws IOException {
+		ChangeSet changes = ChangeSet.parse(new StringReader("src/main/java/p/C.java:4\npom.xml\n"));
+		assertEquals(Collections.singleton("pom.xml"), dut.getUnknownPaths(changes));
+	}
+
+	static TestCoverage test(String testName, String className, int... blocks) {
+		BitSet bits = new BitSet();
+		for (int each : blocks) {
+			bits.set(each);
+		}
+		Map<String, BitSet> classes = new LinkedHashMap<String, BitSet>();
+		classes.put(className, bits);
+		return new TestCoverage(testName, classes);
+	}
+}
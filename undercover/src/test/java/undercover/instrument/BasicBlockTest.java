@@ -3,8 +3,6 @@ package undercover.instrument;
 import static org.junit.Assert.*;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -12,6 +10,8 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.MethodNode;
 
+import undercover.support.IntSet;
+
 public class BasicBlockTest implements Opcodes {
 	private BasicBlockAnalyzer dut;
 	
@@ -19,12 +19,8 @@ public class BasicBlockTest implements Opcodes {
 		dut = new BasicBlockAnalyzer();
 	}
 	
-	<T> Set<T> set(T... elements) {
-		Set<T> result = new HashSet<T>(elements.length);
-		for (T each : elements) {
-			result.add(each);
-		}
-		return result;
+	IntSet set(int... lines) {
+		return new IntSet(lines);
 	}
 	
 	@Test public void abstractMethodsHaveNoEdges() {
@@ -63,7 +59,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLineNumber(97, l0);
 		mv.visitTypeInsn(NEW, "java/lang/UnsupportedOperationException");
 		mv.visitInsn(DUP);
-		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/UnsupportedOperationException", "<init>", "()V");
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/UnsupportedOperationException", "<init>", "()V", false);
 		mv.visitInsn(ATHROW);
 		//4
 		Label l1 = new Label();
@@ -84,7 +80,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLabel(l0);
 		mv.visitLineNumber(43, l0);
 		mv.visitVarInsn(ALOAD, 0);
-		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b1", "()Z");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b1", "()Z", false);
 		Label l1 = new Label();
 		mv.visitJumpInsn(IFEQ, l1);
 		//3
@@ -92,7 +88,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLabel(l2);
 		mv.visitLineNumber(44, l2);
 		mv.visitVarInsn(ALOAD, 0);
-		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b2", "()Z");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b2", "()Z", false);
 		mv.visitInsn(POP);
 		//6
 		mv.visitLabel(l1);
@@ -124,7 +120,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLabel(l0);
 		mv.visitLineNumber(62, l0);
 		mv.visitVarInsn(ALOAD, 0);
-		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b1", "()Z");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b1", "()Z", false);
 		mv.visitInsn(POP);
 		mv.visitLabel(l1);
 		Label l3 = new Label();
@@ -137,7 +133,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLabel(l4);
 		mv.visitLineNumber(64, l4);
 		mv.visitVarInsn(ALOAD, 0);
-		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b2", "()Z");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b2", "()Z", false);
 		mv.visitInsn(POP);
 		//8
 		mv.visitLabel(l3);
@@ -177,7 +173,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLabel(l3);
 		mv.visitLineNumber(102, l3);
 		mv.visitVarInsn(ALOAD, 0);
-		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b1", "()Z");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b1", "()Z", false);
 		mv.visitInsn(POP);
 		Label l4 = new Label();
 		mv.visitLabel(l4);
@@ -228,7 +224,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLineNumber(109, l1);
 		mv.visitFieldInsn(GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
 		mv.visitLdcInsn("1");
-		mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V", false);
 		Label l4 = new Label();
 		mv.visitLabel(l4);
 		mv.visitLineNumber(110, l4);
@@ -238,7 +234,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLineNumber(112, l2);
 		mv.visitFieldInsn(GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
 		mv.visitLdcInsn("2");
-		mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V", false);
 		//9
 		mv.visitLabel(l3);
 		mv.visitLineNumber(114, l3);
@@ -277,7 +273,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLineNumber(119, l1);
 		mv.visitFieldInsn(GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
 		mv.visitLdcInsn("1");
-		mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V", false);
 		Label l4 = new Label();
 		mv.visitLabel(l4);
 		mv.visitLineNumber(120, l4);
@@ -287,7 +283,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLineNumber(122, l2);
 		mv.visitFieldInsn(GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
 		mv.visitLdcInsn("max");
-		mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V", false);
 		//9
 		mv.visitLabel(l3);
 		mv.visitLineNumber(124, l3);
@@ -327,7 +323,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLabel(l0);
 		mv.visitLineNumber(78, l0);
 		mv.visitVarInsn(ALOAD, 0);
-		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b1", "()Z");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b1", "()Z", false);
 		mv.visitInsn(POP);
 		mv.visitLabel(l1);
 		mv.visitLineNumber(79, l1);
@@ -346,7 +342,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLabel(l9);
 		mv.visitLineNumber(80, l9);
 		mv.visitVarInsn(ALOAD, 0);
-		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b2", "()Z");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b2", "()Z", false);
 		mv.visitInsn(POP);
 		Label l10 = new Label();
 		mv.visitLabel(l10);
@@ -369,7 +365,7 @@ public class BasicBlockTest implements Opcodes {
 		mv.visitLabel(l7);
 		mv.visitVarInsn(ASTORE, 3);
 		mv.visitVarInsn(ALOAD, 0);
-		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b3", "()Z");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "undercover/instrument/HelloWorld", "b3", "()Z", false);
 		mv.visitInsn(POP);
 		mv.visitVarInsn(RET, 3);
 		//20
@@ -396,4 +392,42 @@ public class BasicBlockTest implements Opcodes {
 						new BasicBlock(20, 21, 0, set(84))),
 				dut.blocks);
 	}
+
+	@Test public void instanceFieldAccessorsAreTrivial() {
+		MethodNode mv = new MethodNode(ACC_PUBLIC, "getValue", "()I", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, "undercover/instrument/HelloWorld", "value", "I");
+		mv.visitInsn(IRETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+
+		dut.analyze(mv);
+		assertTrue(dut.isTrivial(mv));
+	}
+
+	@Test public void staticFieldAccessorsAreNotTrivial() {
+		MethodNode mv = new MethodNode(ACC_PUBLIC + ACC_STATIC, "getCount", "()I", null, null);
+		mv.visitCode();
+		mv.visitFieldInsn(GETSTATIC, "undercover/instrument/HelloWorld", "count", "I");
+		mv.visitInsn(IRETURN);
+		mv.visitMaxs(1, 0);
+		mv.visitEnd();
+
+		dut.analyze(mv);
+		assertFalse(dut.isTrivial(mv));
+	}
+
+	@Test public void staticFieldSettersAreNotTrivial() {
+		MethodNode mv = new MethodNode(ACC_PUBLIC + ACC_STATIC, "setCount", "(I)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ILOAD, 0);
+		mv.visitFieldInsn(PUTSTATIC, "undercover/instrument/HelloWorld", "count", "I");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+
+		dut.analyze(mv);
+		assertFalse(dut.isTrivial(mv));
+	}
 }
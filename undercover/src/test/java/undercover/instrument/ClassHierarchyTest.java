@@ -0,0 +1,41 @@
+package undercover.instrument;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClassHierarchyTest {
+	private ClassHierarchy dut;
+
+	@Before public void beforeEach() {
+		dut = new ClassHierarchy(getClass().getClassLoader());
+	}
+
+	@Test public void commonSuperClass() {
+		assertEquals("java/util/AbstractList", dut.getCommonSuperClass("java/util/ArrayList", "java/util/LinkedList"));
+		assertEquals("java/util/AbstractList", dut.getCommonSuperClass("java/util/LinkedList", "java/util/ArrayList"));
+		assertEquals("java/util/ArrayList", dut.getCommonSuperClass("java/util/ArrayList", "java/util/ArrayList"));
+		assertEquals("java/lang/Object", dut.getCommonSuperClass("java/lang/String", "java/lang/Integer"));
+	}
+
+	@Test public void interfaceIsObject() {
+		assertEquals("java/lang/Object", dut.getCommonSuperClass("java/util/ArrayList", "java/util/List"));
+	}
+
+	@Test(expected=TypeNotFoundException.class)
+	public void unknownClassFails() {
+		dut.getCommonSuperClass("p/Unknown", "java/util/ArrayList");
+	}
+
+	@Test public void paths() throws Exception {
+		File testClasses = new File(getClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+		dut = ClassHierarchy.of(Arrays.asList(testClasses), ClassLoader.getSystemClassLoader().getParent());
+		assertTrue(dut.getType("undercover/instrument/HelloWorldInterface").isInterface);
+		assertEquals("java/lang/Object", dut.getType("undercover/instrument/ProbeSample").superName);
+		assertEquals("java/util/AbstractList", dut.getType("java/util/ArrayList").superName);
+	}
+}
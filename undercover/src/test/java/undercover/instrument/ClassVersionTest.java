@@ -0,0 +1,90 @@
+package undercover.instrument;
+
+import static org.junit.Assert.*;
+import static org.objectweb.asm.Opcodes.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.util.CheckClassAdapter;
+
+import undercover.runtime.Probe;
+import undercover.support.IOUtils;
+
+public class ClassVersionTest {
+	static final String INTERFACE_NAME = "undercover/instrument/Java8Sample";
+	private Instrument dut;
+
+	@Before public void beforeEach() {
+		dut = new Instrument();
+	}
+
+	@Test public void interfaceWithStaticAndDefaultMethods() throws Exception {
+		byte[] bytecode = dut.instrument(java8Interface());
+		Class<?> sample = new ClassLoader(getClass().getClassLoader()) {
+			Class<?> define(byte[] bytecode) {
+				return defineClass(INTERFACE_NAME.replace('/', '.'), bytecode, 0, bytecode.length);
+			}
+		}.define(bytecode);
+		assertEquals(-1, sample.getMethod("sign", int.class).invoke(null, -5));
+		assertEquals(2, dut.getMetaData().getClass(INTERFACE_NAME).methods.size());
+		assertEquals(2, Probe.INSTANCE.getCoverageData().getCoverage(INTERFACE_NAME).countCoveredBlocks(0));
+	}
+
+	@Test public void lambdas() throws IOException {
+		byte[] bytecode = dut.instrument(IOUtils.toByteArray(ClassLoader.getSystemResourceAsStream("java/util/Comparator.class")));
+		assertTrue(dut.getMetaData().getClass("java/util/Comparator").methods.size() > 0);
+		StringWriter errors = new StringWriter();
+		CheckClassAdapter.verify(new ClassReader(bytecode), getClass().getClassLoader(), false, new PrintWriter(errors));
+		assertEquals("", errors.toString());
+	}
+
+	/**
+	 * <pre>
+	 * interface Java8Sample {
+	 *     static int sign(int x) { if (x &lt; 0) return -1; return 1; }
+	 *     default int negate(int x) { return x &lt; 0 ? x : -x; }
+	 * }
+	 * </pre>
+	 */
+	byte[] java8Interface() {
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+		writer.visit(V1_8, ACC_PUBLIC | ACC_ABSTRACT | ACC_INTERFACE, INTERFACE_NAME, null, "java/lang/Object", null);
+		MethodVisitor sign = writer.visitMethod(ACC_PUBLIC | ACC_STATIC, "sign", "(I)I", null, null);
+		sign.visitCode();
+		Label positive = new Label();
+		sign.visitVarInsn(ILOAD, 0);
+		sign.visitJumpInsn(IFGE, positive);
+		sign.visitInsn(ICONST_M1);
+		sign.visitInsn(IRETURN);
+		sign.visitLabel(positive);
+		sign.visitInsn(ICONST_1);
+		sign.visitInsn(IRETURN);
+		sign.visitMaxs(0, 0);
+		sign.visitEnd();
+		MethodVisitor negate = writer.visitMethod(ACC_PUBLIC, "negate", "(I)I", null, null);
+		negate.visitCode();
+		Label nonNegative = new Label();
+		Label end = new Label();
+		negate.visitVarInsn(ILOAD, 1);
+		negate.visitJumpInsn(IFGE, nonNegative);
+		negate.visitVarInsn(ILOAD, 1);
+		negate.visitJumpInsn(GOTO, end);
+		negate.visitLabel(nonNegative);
+		negate.visitVarInsn(ILOAD, 1);
+		negate.visitInsn(INEG);
+		negate.visitLabel(end);
+		negate.visitInsn(IRETURN);
+		negate.visitMaxs(0, 0);
+		negate.visitEnd();
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+}
@@ -5,11 +5,14 @@ import static org.junit.Assert.*;
 import java.io.IOException;
 
 import org.junit.Before;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
 import org.junit.Test;
 
 import undercover.data.ClassMeta;
 import undercover.data.MetaData;
 import undercover.data.MethodMeta;
+import undercover.instrument.filter.GlobFilter;
 import undercover.support.IOUtils;
 
 //FIXME: How to test instrumented bytecode?
@@ -92,4 +95,30 @@ public class InstrumentTest {
 		assertEquals(4, methodMeta.blocks.size());
 		assertEquals(2, methodMeta.complexity);
 	}
+
+	@Test public void excludedClassIsKept() throws IOException {
+		dut = new Instrument();
+		dut.addFilter(new GlobFilter(new String[0], new String[] { "undercover/instrument/HelloWorld" }));
+		byte[] original = IOUtils.toByteArray(getClass().getResourceAsStream("HelloWorld.class"));
+		assertSame(original, dut.instrument(original));
+		assertNull(dut.getMetaData().getClass("undercover/instrument/HelloWorld"));
+	}
+
+	@Test public void moduleIsKept() {
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V9, Opcodes.ACC_MODULE, "module-info", null, null, null);
+		writer.visitModule("m", 0, null).visitEnd();
+		writer.visitEnd();
+		byte[] original = writer.toByteArray();
+		assertSame(original, dut.instrument(original));
+		assertNull(dut.getMetaData().getClass("module-info"));
+	}
+
+	@Test public void packageInfoIsKept() {
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_5, Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT | Opcodes.ACC_SYNTHETIC, "p/package-info", null, "java/lang/Object", null);
+		writer.visitEnd();
+		byte[] original = writer.toByteArray();
+		assertSame(original, dut.instrument(original));
+	}
 }
@@ -0,0 +1,129 @@
+package undercover.instrument;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import undercover.data.ClassMeta;
+import undercover.data.MetaData;
+import undercover.instrument.filter.GlobFilter;
+import undercover.support.FileUtils;
+import undercover.support.IOUtils;
+
+public class OfflineInstrumentTest {
+	private OfflineInstrument dut;
+	private File classesDir;
+	private File outputDir;
+
+	@Before public void beforeEach() throws IOException {
+		classesDir = new File(getClass().getResource("HelloWorld.class").getFile()).getParentFile();
+		outputDir = File.createTempFile("undercover", "");
+		outputDir.delete();
+		outputDir.mkdirs();
+		dut = new OfflineInstrument();
+		dut.setInstrumentPaths(Arrays.asList(classesDir));
+		dut.setOutputDirectory(outputDir);
+		dut.setFilter(new GlobFilter(new String[] { "undercover/instrument/HelloWorld*" }, new String[0]));
+	}
+
+	@After public void afterEach() {
+		FileUtils.deleteDirectory(outputDir);
+	}
+
+	@Test public void parallelInstrumentKeepsOrder() throws Exception {
+		MetaData sequential = fullcopy(1);
+		MetaData parallel = fullcopy(4);
+		assertEquals(classNames(sequential), classNames(parallel));
+		assertFalse(sequential.getAllClasses().isEmpty());
+		assertTrue(new File(outputDir, "classes/HelloWorld.class").exists());
+	}
+
+	@Test public void analyzeWritesNoClasses() throws Exception {
+		File metaDataFile = new File(outputDir, "analyzed.md");
+		dut.setMetaDataFile(metaDataFile);
+		dut.setThreads(2);
+		dut.analyze();
+		assertFalse(new File(outputDir, "classes").exists());
+		assertEquals(classNames(fullcopy(1)), classNames(MetaData.load(metaDataFile)));
+	}
+
+	@Test public void incrementalInstrumentSkipsUnchangedFiles() throws Exception {
+		File inputDir = new File(outputDir, "input");
+		inputDir.mkdirs();
+		FileUtils.copyFile(new File(classesDir, "HelloWorld.class"), new File(inputDir, "HelloWorld.class"));
+		FileUtils.copyFile(new File(classesDir, "HelloWorldInterface.class"), new File(inputDir, "HelloWorldInterface.class"));
+		dut.setInstrumentPaths(Arrays.asList(inputDir));
+		dut.setIncremental(true);
+		MetaData first = fullcopy(1);
+		File unchanged = new File(outputDir, "classes/HelloWorld.class");
+		unchanged.setLastModified(1000);
+
+		new File(inputDir, "HelloWorldInterface.class").delete();
+		MetaData second = fullcopy(1);
+		assertEquals(1000, unchanged.lastModified());
+		assertFalse(new File(outputDir, "classes/HelloWorldInterface.class").exists());
+		assertEquals(Arrays.asList("undercover/instrument/HelloWorld", "undercover/instrument/HelloWorldInterface"), classNames(first));
+		assertEquals(Arrays.asList("undercover/instrument/HelloWorld"), classNames(second));
+		assertEquals(first.getClass("undercover/instrument/HelloWorld"), second.getClass("undercover/instrument/HelloWorld"));
+	}
+
+	@Test public void instrumentArchive() throws Exception {
+		File archive = new File(outputDir, "input.jar");
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		Attributes digest = new Attributes();
+		digest.putValue("SHA1-Digest", "AAAA");
+		manifest.getEntries().put("undercover/instrument/HelloWorld.class", digest);
+		JarOutputStream output = new JarOutputStream(new FileOutputStream(archive), manifest);
+		output.putNextEntry(new ZipEntry("META-INF/SIGNER.SF"));
+		output.write("signature".getBytes());
+		output.putNextEntry(new ZipEntry("undercover/instrument/HelloWorld.class"));
+		output.write(IOUtils.toByteArray(getClass().getResourceAsStream("HelloWorld.class")));
+		output.putNextEntry(new ZipEntry("undercover/resource.txt"));
+		output.write("resource".getBytes());
+		output.close();
+		dut.setInstrumentPaths(Arrays.asList(archive));
+		MetaData metaData = fullcopy(1);
+
+		assertEquals(Arrays.asList("undercover/instrument/HelloWorld"), classNames(metaData));
+		JarFile actual = new JarFile(new File(outputDir, "lib/input.jar"));
+		try {
+			assertNull(actual.getEntry("META-INF/SIGNER.SF"));
+			assertNull(actual.getManifest().getAttributes("undercover/instrument/HelloWorld.class"));
+			assertEquals("resource", new String(IOUtils.toByteArray(actual.getInputStream(actual.getEntry("undercover/resource.txt")))));
+			assertNotNull(actual.getEntry("undercover/instrument/HelloWorld.class"));
+		} finally {
+			actual.close();
+		}
+	}
+
+	MetaData fullcopy(int threads) throws Exception {
+		File metaDataFile = new File(outputDir, "undercover.md");
+		dut.setMetaDataFile(metaDataFile);
+		dut.setThreads(threads);
+		dut.fullcopy();
+		return MetaData.load(metaDataFile);
+	}
+
+	List<String> classNames(MetaData metaData) {
+		List<String> result = new ArrayList<String>();
+		for (ClassMeta each : metaData.getAllClasses()) {
+			result.add(each.name);
+		}
+		return result;
+	}
+}
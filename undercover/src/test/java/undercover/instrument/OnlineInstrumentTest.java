@@ -0,0 +1,114 @@
+package undercover.instrument;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+
+import undercover.data.ClassMeta;
+import undercover.instrument.filter.Exclusion;
+import undercover.instrument.filter.GlobFilter;
+import undercover.runtime.Coverage;
+import undercover.runtime.Probe;
+import undercover.support.IOUtils;
+
+public class OnlineInstrumentTest {
+	private OnlineInstrument dut;
+	private byte[] original;
+
+	@Before public void beforeEach() throws IOException {
+		original = IOUtils.toByteArray(getClass().getResourceAsStream("HelloWorld.class"));
+	}
+
+	@Test public void instrumentAcceptedClass() throws Exception {
+		dut = new OnlineInstrument(OnlineInstrument.parseFilter("exclude=sample/**"));
+		byte[] actual = dut.transform(getClass().getClassLoader(), "test/HelloWorld", null, null, original);
+		assertNotNull(actual);
+		assertFalse(original.length == actual.length);
+	}
+
+	@Test public void metaDataIsNotKept() throws Exception {
+		dut = new OnlineInstrument(OnlineInstrument.parseFilter(null));
+		assertNotNull(dut.transform(getClass().getClassLoader(), "test/HelloWorld", null, null, original));
+		assertTrue(dut.instrument.getMetaData().getAllClasses().isEmpty());
+	}
+
+	@Test public void countersLineUpWithMetaDataOfSameExclusions() throws Exception {
+		String options = "excludeMethod=<init>";
+		byte[] sample = IOUtils.toByteArray(getClass().getResourceAsStream("ProbeSample.class"));
+		dut = new OnlineInstrument(OnlineInstrument.parseFilter(options));
+		OfflineInstrument offline = new OfflineInstrument();
+		offline.setFilter(OnlineInstrument.parseFilter(options));
+		for (Exclusion each : OnlineInstrument.parseExclusions(options)) {
+			dut.addExclusion(each);
+			offline.addExclusion(each);
+		}
+		byte[] instrumented = dut.transform(getClass().getClassLoader(), "test/ProbeSample", null, null, sample);
+		((Runnable) new ProbeModeTest.SampleLoader().define(instrumented).newInstance()).run();
+
+		ClassMeta classMeta = offline.newInstrument().analyze(new ClassReader(sample));
+		Coverage coverage = Probe.INSTANCE.getCoverageData().getCoverage(ProbeModeTest.CLASS_NAME);
+		assertEquals(1, classMeta.methods.size());
+		assertEquals("run", classMeta.methods.get(0).name);
+		assertEquals(1, coverage.getMethodCount());
+		assertEquals(classMeta.methods.get(0).blocks.size(), coverage.getBlockCount(0));
+		assertEquals(coverage.getBlockCount(0), coverage.countCoveredBlocks(0));
+	}
+
+	@Test public void skipFilteredClass() throws Exception {
+		dut = new OnlineInstrument(OnlineInstrument.parseFilter("include=sample/**,exclude=**/HelloWorld"));
+		assertNull(dut.transform(getClass().getClassLoader(), "sample/HelloWorld", null, null, original));
+	}
+
+	@Test public void skipBootstrapClass() throws Exception {
+		dut = new OnlineInstrument(new GlobFilter(new String[0], new String[0]));
+		assertNull(dut.transform(null, "sample/HelloWorld", null, null, original));
+	}
+
+	@Test public void reservedPackages() {
+		assertTrue(OnlineInstrument.isReserved("java/lang/String"));
+		assertTrue(OnlineInstrument.isReserved("undercover/runtime/Probe"));
+		assertFalse(OnlineInstrument.isReserved("undercover/testbed/Sample"));
+	}
+
+	@Test public void parseFilter() {
+		GlobFilter filter = OnlineInstrument.parseFilter("include=p/**, exclude=p/c");
+		assertTrue(filter.accept("p/d"));
+		assertFalse(filter.accept("p/c"));
+		assertFalse(filter.accept("q/d"));
+	}
+
+	@Test public void parseEmptyFilter() {
+		assertTrue(OnlineInstrument.parseFilter(null).accept("p/c"));
+	}
+
+	@Test public void parseCacheCounters() {
+		assertFalse(OnlineInstrument.parseCacheCounters("include=p/**"));
+		assertTrue(OnlineInstrument.parseCacheCounters("include=p/**,cache=true"));
+	}
+
+	@Test public void parseSkipTrivialMethods() {
+		assertFalse(OnlineInstrument.parseSkipTrivialMethods("include=p/**"));
+		assertTrue(OnlineInstrument.parseSkipTrivialMethods("include=p/**,skipTrivial=true"));
+	}
+
+	@Test public void parseProbeMode() {
+		assertEquals(ProbeMode.COUNT, OnlineInstrument.parseProbeMode("include=p/**"));
+		assertEquals(ProbeMode.HIT, OnlineInstrument.parseProbeMode("include=p/**,probe=hit"));
+		assertTrue(OnlineInstrument.parseFilter("probe=hit,exclude=p/c").accept("p/d"));
+	}
+
+	@Test public void parseExclusions() {
+		assertEquals("[access=private static, access=synthetic, annotations=[lombok.Generated], methods=[get*, toString()**]]",
+			OnlineInstrument.parseExclusions("excludeMethod=get*,excludeAccess=private static,excludeAnnotation=lombok.Generated,excludeAccess=synthetic,excludeMethod=toString()**").toString());
+		assertTrue(OnlineInstrument.parseExclusions("include=p/**").isEmpty());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void parseUnknownOption() {
+		OnlineInstrument.parseFilter("foo=bar");
+	}
+}
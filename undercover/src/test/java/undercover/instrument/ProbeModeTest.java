@@ -0,0 +1,257 @@
+package undercover.instrument;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+
+import undercover.runtime.Coverage;
+import undercover.runtime.Probe;
+import undercover.support.IOUtils;
+
+public class ProbeModeTest {
+	static final String CLASS_NAME = "undercover/instrument/ProbeSample";
+	// The loop condition of ProbeSample.run() is executed 11 times.
+
+	@Test public void parse() {
+		assertEquals(ProbeMode.SATURATE, ProbeMode.parse(" Saturate"));
+		assertEquals("exact", ProbeMode.EXACT.toString());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void parseUnknown() {
+		ProbeMode.parse("foo");
+	}
+
+	@Test public void hit() throws Exception {
+		Runnable sample = load(ProbeMode.HIT);
+		assertEquals(0, coverage().countCoveredBlocks(1));
+		sample.run();
+		sample.run();
+		assertEquals(1, max(coverage()));
+		assertFalse(coverage().counted);
+		assertTrue(coverage().countCoveredBlocks(1) > 0);
+	}
+
+	@Test public void count() throws Exception {
+		Runnable sample = load(ProbeMode.COUNT);
+		sample.run();
+		sample.run();
+		assertEquals(2 * 11, max(coverage()));
+	}
+
+	@Test public void flatCount() throws Exception {
+		Runnable sample = load(ProbeMode.COUNT, true);
+		sample.run();
+		sample.run();
+		assertTrue(coverage().isFlat());
+		assertEquals(2 * 11, max(coverage()));
+		assertEquals(1, coverage().countExecution(0, 0));
+	}
+
+	@Test public void flatSaturate() throws Exception {
+		Runnable sample = load(ProbeMode.SATURATE, true);
+		coverage().counters[coverage().offsets[1]] = Integer.MAX_VALUE;
+		sample.run();
+		assertEquals(Integer.MAX_VALUE, coverage().countExecution(1, 0));
+	}
+
+	@Test public void flatCountersAreIgnoredForExact() throws Exception {
+		load(ProbeMode.EXACT, true).run();
+		assertFalse(coverage().isFlat());
+	}
+
+	@Test public void saturate() throws Exception {
+		Runnable sample = load(ProbeMode.SATURATE);
+		sample.run();
+		int[] blocks = coverage().blocks[1];
+		for (int i = 0; i < blocks.length; i++) {
+			if (blocks[i] > 0) {
+				blocks[i] = Integer.MAX_VALUE - 1;
+			}
+		}
+		sample.run();
+		sample.run();
+		assertEquals(Integer.MAX_VALUE, max(coverage()));
+		for (int each : coverage().blocks[1]) {
+			assertTrue(each >= 0);
+		}
+	}
+
+	@Test public void exact() throws Exception {
+		final Runnable sample = load(ProbeMode.EXACT);
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						sample.run();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread each : threads) {
+			each.join();
+		}
+		assertEquals(4 * 1000 * 11, max(coverage()));
+	}
+
+	@Test public void cacheCount() throws Exception {
+		Runnable sample = load(ProbeMode.COUNT, false, true, sampleBytecode());
+		sample.run();
+		sample.run();
+		assertEquals(2 * 11, max(coverage()));
+	}
+
+	@Test public void cacheFlatSaturate() throws Exception {
+		Runnable sample = load(ProbeMode.SATURATE, true, true, sampleBytecode());
+		coverage().counters[coverage().offsets[1]] = Integer.MAX_VALUE;
+		sample.run();
+		assertEquals(Integer.MAX_VALUE, coverage().countExecution(1, 0));
+	}
+
+	@Test public void cacheHit() throws Exception {
+		Runnable sample = load(ProbeMode.HIT, false, true, sampleBytecode());
+		sample.run();
+		assertEquals(1, max(coverage()));
+		assertTrue(coverage().countCoveredBlocks(1) > 0);
+	}
+
+	@Test public void cacheExact() throws Exception {
+		Runnable sample = load(ProbeMode.EXACT, false, true, sampleBytecode());
+		sample.run();
+		sample.run();
+		assertEquals(2 * 11, max(coverage()));
+	}
+
+	@Test public void countWithFrames() throws Exception {
+		Runnable sample = load(ProbeMode.COUNT, false, false, withFrames(sampleBytecode()));
+		sample.run();
+		assertEquals(11, max(coverage()));
+	}
+
+	@Test public void cacheCountWithFrames() throws Exception {
+		Runnable sample = load(ProbeMode.COUNT, false, true, withFrames(sampleBytecode()));
+		sample.run();
+		assertEquals(11, max(coverage()));
+	}
+
+	@Test public void cacheHitWithFrames() throws Exception {
+		Runnable sample = load(ProbeMode.HIT, false, true, withFrames(sampleBytecode()));
+		sample.run();
+		assertEquals(1, max(coverage()));
+	}
+
+	@Test public void skipTrivialMethods() throws Exception {
+		Instrument instrument = new Instrument();
+		instrument.setSkipTrivialMethods(true);
+		Runnable sample = (Runnable) new SampleLoader().define(instrument.instrument(sampleBytecode())).newInstance();
+		sample.run();
+		assertTrue(instrument.getMetaData().getClass(CLASS_NAME).getMethod("<init>", "()V").trivial);
+		assertFalse(instrument.getMetaData().getClass(CLASS_NAME).getMethod("run", "()V").trivial);
+		sample.run();
+		assertEquals(1, coverage().countExecution(0, 0));
+		assertEquals(2 * 11, max(coverage()));
+	}
+
+	@Test public void skipTrivialMethodsWithHits() throws Exception {
+		Instrument instrument = new Instrument();
+		instrument.setProbeMode(ProbeMode.HIT);
+		instrument.setSkipTrivialMethods(true);
+		new SampleLoader().define(instrument.instrument(sampleBytecode())).newInstance();
+		assertEquals(1, coverage().countCoveredBlocks(0));
+	}
+
+	@Test public void skipTrivialMethodsWithExactCounters() throws Exception {
+		Instrument instrument = new Instrument();
+		instrument.setProbeMode(ProbeMode.EXACT);
+		instrument.setSkipTrivialMethods(true);
+		byte[] bytecode = instrument.instrument(sampleBytecode());
+		final Class<?> sample = new SampleLoader().define(bytecode);
+		sample.newInstance();
+		Thread other = new Thread() {
+			public void run() {
+				try {
+					sample.newInstance();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		other.start();
+		other.join();
+		assertEquals(1, coverage().countExecution(0, 0));
+		ClassNode classNode = new ClassNode();
+		new ClassReader(bytecode).accept(classNode, 0);
+		for (AbstractInsnNode each : classNode.methods.get(0).instructions.toArray()) {
+			assertFalse(each instanceof MethodInsnNode && ((MethodInsnNode) each).owner.equals("undercover/runtime/ThreadCounters"));
+		}
+	}
+
+	Runnable load(ProbeMode probeMode) throws IOException, Exception {
+		return load(probeMode, false);
+	}
+
+	Runnable load(ProbeMode probeMode, boolean flatCounters) throws IOException, Exception {
+		return load(probeMode, flatCounters, false, sampleBytecode());
+	}
+
+	Runnable load(ProbeMode probeMode, boolean flatCounters, boolean cacheCounters, byte[] bytecode) throws Exception {
+		Instrument instrument = new Instrument();
+		instrument.setProbeMode(probeMode);
+		instrument.setFlatCounters(flatCounters);
+		instrument.setCacheCounters(cacheCounters);
+		byte[] instrumented = instrument.instrument(bytecode);
+		return (Runnable) new SampleLoader().define(instrumented).newInstance();
+	}
+
+	byte[] sampleBytecode() throws IOException {
+		return IOUtils.toByteArray(getClass().getResourceAsStream("ProbeSample.class"));
+	}
+
+	/**
+	 * Java 7 class files are verified by stack map frames only.
+	 */
+	byte[] withFrames(byte[] bytecode) {
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+		new ClassReader(bytecode).accept(new ClassVisitor(Opcodes.ASM9, writer) {
+			public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+				super.visit(Opcodes.V1_7, access, name, signature, superName, interfaces);
+			}
+		}, 0);
+		return writer.toByteArray();
+	}
+
+	Coverage coverage() {
+		return Probe.INSTANCE.getCoverageData().getCoverage(CLASS_NAME);
+	}
+
+	int max(Coverage coverage) {
+		int result = 0;
+		for (int i = 0; i < coverage.getMethodCount(); i++) {
+			for (int j = 0; j < coverage.getBlockCount(i); j++) {
+				result = Math.max(result, coverage.countExecution(i, j));
+			}
+		}
+		return result;
+	}
+
+	static class SampleLoader extends ClassLoader {
+		SampleLoader() {
+			super(ProbeModeTest.class.getClassLoader());
+		}
+
+		Class<?> define(byte[] bytecode) {
+			return defineClass(CLASS_NAME.replace('/', '.'), bytecode, 0, bytecode.length);
+		}
+	}
+}
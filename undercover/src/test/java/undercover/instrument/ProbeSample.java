@@ -0,0 +1,13 @@
+package undercover.instrument;
+
+public class ProbeSample implements Runnable {
+	public int sum;
+	
+	public void run() {
+		for (int i = 0; i < 10; i++) {
+			if (i % 2 == 0) {
+				sum += i;
+			}
+		}
+	}
+}
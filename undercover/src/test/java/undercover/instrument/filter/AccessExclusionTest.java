@@ -0,0 +1,36 @@
+package undercover.instrument.filter;
+
+import static org.junit.Assert.*;
+import static org.objectweb.asm.Opcodes.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+public class AccessExclusionTest {
+	private AccessExclusion dut;
+	private ClassNode classNode;
+	
+	@Before public void beforeEach() {
+		dut = AccessExclusion.parse("private  static synthetic");
+		classNode = new ClassNode();
+	}
+	
+	@Test public void excludeLambda() {
+		assertTrue(dut.exclude(classNode, new MethodNode(ACC_PRIVATE + ACC_STATIC + ACC_SYNTHETIC, "lambda$main$0", "()V", null, null)));
+	}
+	
+	@Test public void allFlagsAreRequired() {
+		assertFalse(dut.exclude(classNode, new MethodNode(ACC_PRIVATE + ACC_STATIC, "m", "()V", null, null)));
+	}
+	
+	@Test public void string() {
+		assertEquals("access=private static synthetic", dut.toString());
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void unknownFlag() {
+		AccessExclusion.parse("private generated");
+	}
+}
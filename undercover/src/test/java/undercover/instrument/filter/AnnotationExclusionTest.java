@@ -0,0 +1,42 @@
+package undercover.instrument.filter;
+
+import static org.junit.Assert.*;
+import static org.objectweb.asm.Opcodes.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+public class AnnotationExclusionTest {
+	private AnnotationExclusion dut;
+	private ClassNode classNode;
+	
+	@Before public void beforeEach() {
+		dut = new AnnotationExclusion("lombok.Generated", "**/Excluded");
+		classNode = new ClassNode();
+		classNode.visit(V1_6, ACC_PUBLIC + ACC_SUPER, "p/C", null, "java/lang/Object", null);
+	}
+	
+	@Test public void notAnnotated() {
+		assertFalse(dut.exclude(classNode));
+		assertFalse(dut.exclude(classNode, new MethodNode(ACC_PUBLIC, "m", "()V", null, null)));
+	}
+	
+	@Test public void excludeClassOfInvisibleAnnotation() {
+		classNode.visitAnnotation("Llombok/Generated;", false);
+		assertTrue(dut.exclude(classNode));
+	}
+	
+	@Test public void excludeMethodOfVisibleAnnotation() {
+		MethodNode methodNode = new MethodNode(ACC_PUBLIC, "m", "()V", null, null);
+		methodNode.visitAnnotation("Lq/r/Excluded;", true);
+		assertTrue(dut.exclude(classNode, methodNode));
+	}
+	
+	@Test public void otherAnnotation() {
+		MethodNode methodNode = new MethodNode(ACC_PUBLIC, "m", "()V", null, null);
+		methodNode.visitAnnotation("Ljava/lang/Deprecated;", true);
+		assertFalse(dut.exclude(classNode, methodNode));
+	}
+}
@@ -0,0 +1,60 @@
+package undercover.instrument.filter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.Test;
+
+public class GlobMatcherTest {
+	@Test public void noPattern() {
+		GlobMatcher dut = matcher();
+		assertFalse(dut.match(""));
+		assertFalse(dut.match("p/c"));
+	}
+
+	@Test public void anyPattern() {
+		GlobMatcher dut = matcher("p/c", "p/d*", "q/**");
+		assertTrue(dut.match("p/c"));
+		assertTrue(dut.match("p/d"));
+		assertTrue(dut.match("p/d$1"));
+		assertTrue(dut.match("q/r/c"));
+		assertFalse(dut.match("p/c$1"));
+		assertFalse(dut.match("p/e"));
+		assertFalse(dut.match("p/d/c"));
+	}
+
+	@Test public void sharedPrefix() {
+		GlobMatcher dut = matcher("pkg/a/*", "pkg/b/*", "pkg/**/c");
+		assertTrue(dut.match("pkg/a/x"));
+		assertTrue(dut.match("pkg/b/y"));
+		assertTrue(dut.match("pkg/c"));
+		assertTrue(dut.match("pkg/x/y/c"));
+		assertFalse(dut.match("pkg/x/y"));
+		assertFalse(dut.match("pkg/a/x/y"));
+		assertFalse(dut.match("pkgx/c"));
+	}
+
+	@Test public void doubleStarsFollowedBySeparatorMatchesOnlyWholeDirectories() {
+		GlobMatcher dut = matcher("**/c");
+		assertTrue(dut.match("c"));
+		assertTrue(dut.match("p/q/c"));
+		assertFalse(dut.match("p/qc"));
+	}
+
+	@Test public void nonAsciiName() {
+		GlobMatcher dut = matcher("p/\u00e9*");
+		assertTrue(dut.match("p/\u00e9t\u00e9"));
+		assertTrue(dut.match("p/\u00e9t\u00e9"));
+		assertFalse(dut.match("p/e"));
+	}
+
+	private GlobMatcher matcher(String... expressions) {
+		Collection<GlobPattern> patterns = new ArrayList<GlobPattern>();
+		for (String each : expressions) {
+			patterns.add(new GlobPattern(each));
+		}
+		return new GlobMatcher(patterns);
+	}
+}
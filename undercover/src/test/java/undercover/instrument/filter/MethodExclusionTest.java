@@ -0,0 +1,35 @@
+package undercover.instrument.filter;
+
+import static org.junit.Assert.*;
+import static org.objectweb.asm.Opcodes.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+public class MethodExclusionTest {
+	private MethodExclusion dut;
+	private ClassNode classNode;
+	
+	@Before public void beforeEach() {
+		dut = new MethodExclusion("toString", "hashCode()I", "set*(**");
+		classNode = new ClassNode();
+	}
+	
+	@Test public void name() {
+		assertTrue(dut.exclude(classNode, method("toString", "()Ljava/lang/String;")));
+		assertFalse(dut.exclude(classNode, method("toStringBuilder", "()Ljava/lang/StringBuilder;")));
+	}
+	
+	@Test public void nameAndDescriptor() {
+		assertTrue(dut.exclude(classNode, method("hashCode", "()I")));
+		assertFalse(dut.exclude(classNode, method("hashCode", "()J")));
+		assertTrue(dut.exclude(classNode, method("setName", "(Ljava/lang/String;)V")));
+		assertFalse(dut.exclude(classNode, method("getName", "()Ljava/lang/String;")));
+	}
+	
+	private MethodNode method(String name, String desc) {
+		return new MethodNode(ACC_PUBLIC, name, desc, null, null);
+	}
+}
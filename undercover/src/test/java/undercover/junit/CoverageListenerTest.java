@@ -0,0 +1,71 @@
+package undercover.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+
+import undercover.runtime.Probe;
+import undercover.runtime.TestCoverage;
+import undercover.runtime.TestCoverageReader;
+import undercover.runtime.UndercoverSettings;
+
+public class CoverageListenerTest {
+	private CoverageListener dut;
+	private Probe probe;
+	private File directory;
+	private int[][] counters;
+
+	@Before public void beforeEach() throws IOException {
+		directory = File.createTempFile("undercover", "");
+		directory.delete();
+		probe = new Probe(new UndercoverSettings());
+		counters = new int[][] { { 0, 0 } };
+		probe.register("p/c", counters);
+		dut = new CoverageListener(probe, directory);
+	}
+
+	@After public void afterEach() {
+		File[] files = directory.listFiles();
+		for (File each : files == null ? new File[0] : files) {
+			each.delete();
+		}
+		directory.delete();
+	}
+
+	@Test public void testsAreRecorded() throws Exception {
+		counters[0][0] = 1;
+		Description a = Description.createTestDescription(CoverageListenerTest.class, "a");
+		dut.testStarted(a);
+		counters[0][1] = 1;
+		dut.testFinished(a);
+		Description b = Description.createTestDescription(CoverageListenerTest.class, "b");
+		dut.testStarted(b);
+		dut.testFinished(b);
+		dut.testRunFinished(new Result());
+
+		List<TestCoverage> tests = TestCoverageReader.load(directory);
+		assertEquals(2, tests.size());
+		assertEquals("undercover.junit.CoverageListenerTest#a", tests.get(0).testName);
+		assertEquals("{1}", tests.get(0).classes.get("p/c").toString());
+		assertTrue(tests.get(1).classes.isEmpty());
+		assertEquals(1, probe.snapshot(false).getCoverage("p/c").countExecution(0, 0));
+	}
+
+	@Test(expected = IllegalStateException.class) public void parallelTestsAreRefused() throws Exception {
+		dut.testStarted(Description.createTestDescription(CoverageListenerTest.class, "a"));
+		dut.testStarted(Description.createTestDescription(CoverageListenerTest.class, "b"));
+	}
+
+	@Test(expected = IllegalStateException.class) public void testsFinishedOutOfOrderAreRefused() throws Exception {
+		dut.testStarted(Description.createTestDescription(CoverageListenerTest.class, "a"));
+		dut.testFinished(Description.createTestDescription(CoverageListenerTest.class, "b"));
+	}
+}
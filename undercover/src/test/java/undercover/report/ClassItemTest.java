@@ -27,4 +27,12 @@ public class ClassItemTest {
 		assertNull(dut.getClassMetrics());
 		assertNull(dut.getPackageMetrics());
 	}
+
+	@Test public void getMethod() {
+		MethodItem first = new MethodItem("m()V", 1, 1, 0);
+		dut.addMethod(first);
+		dut.addMethod(new MethodItem("m()V", 1, 1, 1));
+		assertSame(first, dut.getMethod("m()V"));
+		assertNull(dut.getMethod("n()V"));
+	}
 }
@@ -65,7 +65,7 @@ public class ReportDataBuilderTest {
 		dut.sourceItem = mockery.mock(SourceItem.class);
 		final BlockMeta block = new BlockMeta(Arrays.asList(1, 2, 3));
 		mockery.checking(new Expectations() {{
-			one(dut.sourceItem).addBlock(block, 0);
+			one(dut.sourceItem).addBlock(block, 0, true);
 		}});
 		dut.classCoverage = null;
 		block.accept(dut);
@@ -75,9 +75,33 @@ public class ReportDataBuilderTest {
 		dut.sourceItem = mockery.mock(SourceItem.class);
 		final BlockMeta block = new BlockMeta(Arrays.asList(1, 2, 3));
 		mockery.checking(new Expectations() {{
-			one(dut.sourceItem).addBlock(block, 1);
+			one(dut.sourceItem).addBlock(block, 1, true);
 		}});
 		dut.classCoverage = new Coverage("", new int[][] { {1} });
 		block.accept(dut);
 	}
+
+	@Test public void visitBlockWithUncountedClassCoverage() {
+		dut.sourceItem = mockery.mock(SourceItem.class);
+		final BlockMeta block = new BlockMeta(Arrays.asList(1, 2, 3));
+		mockery.checking(new Expectations() {{
+			one(dut.sourceItem).addBlock(block, 1, false);
+		}});
+		dut.classCoverage = new Coverage("", new int[][] { {1} }, false);
+		block.accept(dut);
+	}
+
+	@Test public void visitTrivialMethod() {
+		dut.sourceItem = mockery.mock(SourceItem.class);
+		MethodMeta methodMeta = new MethodMeta("getName", "()Ljava/lang/String;", 1, Arrays.asList(new BlockMeta(Arrays.asList(1))), 0, true);
+		final BlockMeta block = methodMeta.blocks.get(0);
+		mockery.checking(new Expectations() {{
+			one(dut.sourceItem).addBlock(block, 1, false);
+		}});
+		dut.classCoverage = new Coverage("p/c", new int[][] { {1} });
+		dut.classItem = new ClassItem("p/c");
+		methodMeta.accept(dut);
+		assertTrue(dut.methodItem.getBlockMetrics().isExecutable());
+		assertTrue(dut.methodItem.getBlockMetrics().isExecuted());
+	}
 }
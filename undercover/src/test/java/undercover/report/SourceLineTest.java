@@ -37,4 +37,12 @@ public class SourceLineTest {
 		assertFalse(dut.isCompletelyCovered());
 		assertTrue(dut.isPartialyCovered());
 	}
+
+	@Test public void uncounted() {
+		dut.addBlock(3);
+		assertTrue(dut.touchCounted);
+		dut.addBlock(1, false);
+		assertFalse(dut.touchCounted);
+		assertTrue(dut.isCompletelyCovered());
+	}
 }
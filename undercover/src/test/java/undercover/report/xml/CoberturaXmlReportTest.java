@@ -15,6 +15,7 @@ import undercover.report.ReportData;
 import undercover.report.SourceFile;
 import undercover.report.SourceItem;
 import undercover.support.xml.Element;
+import undercover.support.xml.ElementBuilder;
 
 public class CoberturaXmlReportTest {
 	private CoberturaXmlReport dut;
@@ -23,16 +24,20 @@ public class CoberturaXmlReportTest {
 		dut = new CoberturaXmlReport(null);
 	}
 	
-	@Test public void buildCoverage() {
-		Element actual = dut.buildCoverage(new ReportData("Project name", Collections.<PackageItem>emptySet(), Collections.<ClassItem>emptySet(), Collections.<SourceItem>emptySet()));
+	@Test public void writeCoverage() {
+		ElementBuilder out = new ElementBuilder();
+		dut.writeCoverage(out, new ReportData("Project name", Collections.<PackageItem>emptySet(), Collections.<ClassItem>emptySet(), Collections.<SourceItem>emptySet()));
+		Element actual = out.getRoot();
 		assertEquals("coverage", actual.name);
 		assertEquals("1.0", actual.attr("line-rate"));
 		assertEquals("1.0", actual.attr("branch-rate"));
 	}
 	
-	@Test public void buildPackages() {
+	@Test public void writePackages() {
 		PackageItem item = new PackageItem("p");
-		Element actual = dut.buildPackages(Arrays.asList(item));
+		ElementBuilder out = new ElementBuilder();
+		dut.writePackages(out, Arrays.asList(item));
+		Element actual = out.getRoot();
 		assertEquals("packages", actual.name);
 		assertEquals(1, actual.children.size());
 		actual = (Element) actual.children.get(0);
@@ -44,10 +49,12 @@ public class CoberturaXmlReportTest {
 		assertEquals("classes", ((Element) actual.children.get(0)).name);
 	}
 
-	@Test public void buildClasses() {
+	@Test public void writeClasses() {
 		ClassItem item = new ClassItem("p/c");
 		item.setSource(new SourceItem(new SourceFile("p/c.java")));
-		Element actual = dut.buildClasses(Arrays.asList(item));
+		ElementBuilder out = new ElementBuilder();
+		dut.writeClasses(out, Arrays.asList(item));
+		Element actual = out.getRoot();
 		assertEquals("classes", actual.name);
 		assertEquals(1, actual.children.size());
 		actual = (Element) actual.children.get(0);
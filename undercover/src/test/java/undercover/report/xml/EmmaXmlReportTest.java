@@ -15,6 +15,7 @@ import undercover.report.SourceFile;
 import undercover.report.SourceItem;
 import undercover.support.Proportion;
 import undercover.support.xml.Element;
+import undercover.support.xml.ElementBuilder;
 
 public class EmmaXmlReportTest {
 	private EmmaXmlReport dut;
@@ -23,17 +24,21 @@ public class EmmaXmlReportTest {
 		dut = new EmmaXmlReport(null);
 	}
 
-	@Test public void buildReport() {
+	@Test public void writeReport() {
 		ReportData item = new ReportData("cool product", Collections.<PackageItem>emptyList(), Collections.<ClassItem>emptyList(), Collections.<SourceItem>emptyList());
-		Element actual = dut.buildReport(item);
+		ElementBuilder out = new ElementBuilder();
+		dut.writeReport(out, item);
+		Element actual = out.getRoot();
 		assertEquals("report", actual.name);
 		assertEquals("stats", ((Element) actual.children.get(0)).name);
 		assertEquals("data", ((Element) actual.children.get(1)).name);
 	}
 
-	@Test public void buildPackage() {
+	@Test public void writePackage() {
 		PackageItem item = new PackageItem("p");
-		Element actual = dut.buildPackage(item);
+		ElementBuilder out = new ElementBuilder();
+		dut.writePackage(out, item);
+		Element actual = out.getRoot();
 		assertEquals("package", actual.name);
 		assertEquals(item.getDisplayName(), actual.attr("name"));
 		assertEquals("coverage", ((Element) actual.children.get(0)).name);
@@ -41,9 +46,11 @@ public class EmmaXmlReportTest {
 		assertEquals("coverage", ((Element) actual.children.get(2)).name);
 	}
 
-	@Test public void buildSourceFile() {
+	@Test public void writeSourceFile() {
 		SourceItem item = new SourceItem(new SourceFile("p/c.java"));
-		Element actual = dut.buildSource(item);
+		ElementBuilder out = new ElementBuilder();
+		dut.writeSource(out, item);
+		Element actual = out.getRoot();
 		assertEquals("srcfile", actual.name);
 		assertEquals(item.getSimpleName(), actual.attr("name"));
 		assertEquals("coverage", ((Element) actual.children.get(0)).name);
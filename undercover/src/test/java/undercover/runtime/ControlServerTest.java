@@ -0,0 +1,115 @@
+package undercover.runtime;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import undercover.support.Logger;
+
+public class ControlServerTest {
+	private ControlServer dut;
+	private Probe probe;
+	private int[][] counters;
+
+	@Before public void beforeEach() throws IOException {
+		probe = new Probe(new UndercoverSettings(), false);
+		counters = new int[][] { { 1, 0 }, { 2 } };
+		probe.register("p/c", counters);
+		dut = new ControlServer(new ProbeControl(probe), 0);
+		dut.start();
+	}
+
+	@After public void afterEach() {
+		dut.close();
+	}
+
+	@Test public void dump() throws IOException {
+		CoverageData coverageData = send("dump");
+		assertEquals(2, coverageData.getCoverage("p/c").countExecution(1, 0));
+		assertEquals(2, counters[1][0]);
+	}
+
+	@Test public void dumpAndReset() throws IOException {
+		CoverageData coverageData = send("dumpAndReset");
+		assertEquals(2, coverageData.getCoverage("p/c").countExecution(1, 0));
+		assertArrayEquals(new int[][] { { 0, 0 }, { 0 } }, counters);
+	}
+
+	@Test public void reset() throws IOException {
+		Socket socket = connect("reset");
+		assertEquals(-1, socket.getInputStream().read());
+		socket.close();
+		assertArrayEquals(new int[][] { { 0, 0 }, { 0 } }, counters);
+	}
+
+	@Test public void failedCommandIsReported() throws IOException {
+		final List<String> errors = new ArrayList<String>();
+		dut.close();
+		dut = new ControlServer(new ProbeControl(probe) {
+			public void save() {
+				throw new RuntimeException("Unable to save");
+			}
+		}, 0);
+		dut.setLogger(new Logger() {
+			public void error(String message) {
+				errors.add(message);
+			}
+			public void info(String message) {
+			}
+			public void debug(String message) {
+			}
+		});
+		dut.start();
+		Socket socket = connect("save");
+		assertEquals(-1, socket.getInputStream().read());
+		socket.close();
+		assertEquals(2, send("dump").getCoverage("p/c").countExecution(1, 0));
+		assertEquals(1, errors.size());
+	}
+
+	@Test public void silentClientIsDisconnected() throws IOException {
+		dut.close();
+		dut = new ControlServer(new ProbeControl(probe), 0);
+		dut.soTimeout = 100;
+		dut.start();
+		Socket silent = new Socket(InetAddress.getByName(null), dut.getPort());
+		try {
+			assertEquals(2, send("dump").getCoverage("p/c").countExecution(1, 0));
+		} finally {
+			silent.close();
+		}
+	}
+
+	@Test public void readCommand() throws IOException {
+		assertEquals("dump", ControlServer.readCommand(new ByteArrayInputStream("dump\r\nignored".getBytes("US-ASCII"))));
+		assertEquals("reset", ControlServer.readCommand(new ByteArrayInputStream(" reset".getBytes("US-ASCII"))));
+	}
+
+	CoverageData send(String command) throws IOException {
+		Socket socket = connect(command);
+		try {
+			return new CoverageDataReader(Channels.newChannel(socket.getInputStream())).read();
+		} finally {
+			socket.close();
+		}
+	}
+
+	Socket connect(String command) throws IOException {
+		Socket socket = new Socket(InetAddress.getByName(null), dut.getPort());
+		OutputStream output = socket.getOutputStream();
+		output.write((command + "\n").getBytes("US-ASCII"));
+		output.flush();
+		return socket;
+	}
+}
@@ -2,12 +2,22 @@ package undercover.runtime;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.junit.Test;
 
 import undercover.runtime.CoverageData;
+import undercover.support.IOUtils;
 
 public class CoverageDataTest {
 	@Test public void saveAndLoad() throws IOException {
@@ -18,4 +28,204 @@ public class CoverageDataTest {
 		CoverageData actual = CoverageData.load(file);
 		assertNotNull(actual.getCoverage("p/c"));
 	}
+
+	@Test public void saveAndLoadCounts() throws IOException {
+		File file = File.createTempFile("undercover-", ".cd");
+		CoverageData expected = new CoverageData();
+		expected.register("p/c", new int[][] { { 0, 1, 300 }, {}, { Integer.MAX_VALUE, -1 } });
+		expected.register("p/d", new int[][] { { 5 } });
+		expected.save(file);
+		CoverageData actual = CoverageData.load(file);
+		assertArrayEquals(new int[][] { { 0, 1, 300 }, {}, { Integer.MAX_VALUE, -1 } }, actual.getCoverage("p/c").blocks);
+		assertArrayEquals(new int[][] { { 5 } }, actual.getCoverage("p/d").blocks);
+	}
+
+	@Test public void saveAndLoadLargerThanBuffer() throws IOException {
+		File file = File.createTempFile("undercover-", ".cd");
+		CoverageData expected = new CoverageData();
+		for (int i = 0; i < 10000; i++) {
+			expected.register("p/c" + i, new int[][] { { i, i * 1000 } });
+		}
+		expected.save(file);
+		CoverageData actual = CoverageData.load(file);
+		for (int i = 0; i < 10000; i++) {
+			assertArrayEquals(new int[][] { { i, i * 1000 } }, actual.getCoverage("p/c" + i).blocks);
+		}
+	}
+
+	@Test public void saveAndLoadBitset() throws IOException {
+		File file = File.createTempFile("undercover-", ".cd");
+		CoverageData expected = new CoverageData();
+		expected.register("p/c", new int[][] { { 0, 1, 300, 0, 0, 0, 0, 0, 7 } });
+		expected.save(file, true);
+		CoverageData actual = CoverageData.load(file);
+		assertArrayEquals(new int[][] { { 0, 1, 1, 0, 0, 0, 0, 0, 1 } }, actual.getCoverage("p/c").blocks);
+	}
+
+	@Test public void saveUncountedAsBitset() throws IOException {
+		File file = File.createTempFile("undercover-", ".cd");
+		CoverageData expected = new CoverageData();
+		expected.register("p/c", new int[][] { { 0, 1 } }, false);
+		expected.register("p/d", new int[][] { { 5 } });
+		expected.save(file);
+		CoverageData actual = CoverageData.load(file);
+		assertFalse(actual.getCoverage("p/c").counted);
+		assertArrayEquals(new int[][] { { 0, 1 } }, actual.getCoverage("p/c").blocks);
+		assertArrayEquals(new int[][] { { 1 } }, actual.getCoverage("p/d").blocks);
+	}
+
+	@Test public void saveAndLoadFlat() throws IOException {
+		File file = File.createTempFile("undercover-", ".cd");
+		CoverageData expected = new CoverageData();
+		expected.register("p/c", new int[] { 1, 2, 3 }, new int[] { 0, 2, 2, 3 });
+		expected.save(file);
+		Coverage actual = CoverageData.load(file).getCoverage("p/c");
+		assertArrayEquals(new int[][] { { 1, 2 }, {}, { 3 } }, actual.blocks);
+		assertTrue(actual.isCompatible(expected.getCoverage("p/c")));
+		assertEquals(2, expected.getCoverage("p/c").countCoveredBlocks(0));
+	}
+
+	@Test public void mergeFlat() {
+		CoverageData dut = new CoverageData();
+		dut.register("p/c", new int[] { 1, 2, 3 }, new int[] { 0, 2, 3 });
+		dut.merge(new Coverage("p/c", new int[][] { { 1, 1 }, { 1 } }));
+		assertArrayEquals(new int[][] { { 2, 3 }, { 4 } }, dut.getCoverage("p/c").blocks);
+		dut.merge(new Coverage("p/d", new int[] { 5 }, new int[] { 0, 1 }));
+		assertArrayEquals(new int[][] { { 5 } }, dut.getCoverage("p/d").blocks);
+	}
+
+	@Test(expected = IllegalArgumentException.class) public void mergeRejectsIncompatibleCoverage() {
+		CoverageData dut = new CoverageData();
+		dut.register("p/c", new int[][] { { 1, 2 } });
+		dut.merge(new Coverage("p/c", new int[][] { { 1 } }));
+	}
+
+	@Test public void mergeOrReplaceIncompatibleCoverage() {
+		CoverageData dut = new CoverageData();
+		dut.register("p/c", new int[][] { { 1, 2 } });
+		dut.mergeOrReplace(new Coverage("p/c", new int[][] { { 1 } }));
+		assertArrayEquals(new int[][] { { 1 } }, dut.getCoverage("p/c").blocks);
+		dut.mergeOrReplace(new Coverage("p/c", new int[][] { { 2 } }));
+		assertArrayEquals(new int[][] { { 3 } }, dut.getCoverage("p/c").blocks);
+	}
+
+	@Test public void mergeSaturates() {
+		CoverageData dut = new CoverageData();
+		dut.register("p/c", new int[][] { { Integer.MAX_VALUE - 1, 1 } });
+		dut.merge(new Coverage("p/c", new int[][] { { 2, 1 } }));
+		assertArrayEquals(new int[][] { { Integer.MAX_VALUE, 2 } }, dut.getCoverage("p/c").blocks);
+	}
+
+	@Test public void mergeUncounted() {
+		CoverageData dut = new CoverageData();
+		dut.register("p/c", new int[][] { { 0, 3 } });
+		dut.merge(new Coverage("p/c", new int[][] { { 1, 1 } }, false));
+		assertFalse(dut.getCoverage("p/c").counted);
+		assertArrayEquals(new int[][] { { 1, 1 } }, dut.getCoverage("p/c").blocks);
+	}
+
+	/**
+	 * <code>baseline.cd</code> is written by Java serialization of the classes before the binary format,
+	 * with <code>p/c</code> of <code>{ { 1, 2 }, { 3 } }</code> and <code>p/d</code> of <code>{ { 0, 5 } }</code>.
+	 */
+	@Test public void loadSerialized() throws Exception {
+		CoverageData actual = CoverageData.load(baseline());
+		assertArrayEquals(new int[][] { { 1, 2 }, { 3 } }, actual.getCoverage("p/c").blocks);
+		assertArrayEquals(new int[][] { { 0, 5 } }, actual.getCoverage("p/d").blocks);
+		assertFalse(actual.getCoverage("p/c").isFlat());
+		assertTrue(actual.getCoverage("p/c").counted);
+	}
+
+	@Test public void mergeSerialized() throws Exception {
+		File file = File.createTempFile("undercover-", ".cd");
+		FileOutputStream copy = new FileOutputStream(file);
+		copy.write(IOUtils.toByteArray(CoverageDataTest.class.getResourceAsStream("baseline.cd")));
+		copy.close();
+		CoverageData appended = new CoverageData();
+		appended.register("p/c", new int[][] { { 1, 1 }, { 1 } });
+		appended.append(file, false);
+		CoverageData actual = CoverageData.load(file);
+		assertTrue(actual.getCoverage("p/c").counted);
+		assertArrayEquals(new int[][] { { 2, 3 }, { 4 } }, actual.getCoverage("p/c").blocks);
+		assertArrayEquals(new int[][] { { 0, 5 } }, actual.getCoverage("p/d").blocks);
+	}
+
+	@Test public void serializeUncounted() throws Exception {
+		CoverageData expected = new CoverageData();
+		expected.register("p/c", new int[][] { { 1, 0 } }, false);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(expected);
+		output.close();
+		CoverageData actual = (CoverageData) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		assertFalse(actual.getCoverage("p/c").counted);
+		assertArrayEquals(new int[][] { { 1, 0 } }, actual.getCoverage("p/c").blocks);
+	}
+
+	static File baseline() throws URISyntaxException {
+		return new File(CoverageDataTest.class.getResource("baseline.cd").toURI());
+	}
+
+	@Test public void append() throws IOException {
+		File file = File.createTempFile("undercover-", ".cd");
+		CoverageData first = new CoverageData();
+		first.register("p/c", new int[][] { { 1, 0 } });
+		first.register("p/d", new int[][] { { 1 } });
+		first.append(file, false);
+		CoverageData second = new CoverageData();
+		second.register("p/c", new int[][] { { 2, 3 } });
+		second.register("p/d", new int[][] { { 1, 1 } });
+		second.append(file, false);
+		CoverageData actual = CoverageData.load(file);
+		assertArrayEquals(new int[][] { { 3, 3 } }, actual.getCoverage("p/c").blocks);
+		assertArrayEquals(new int[][] { { 1, 1 } }, actual.getCoverage("p/d").blocks);
+		assertArrayEquals(new int[][] { { 2, 3 } }, second.getCoverage("p/c").blocks);
+	}
+
+	@Test public void appendToSerialized() throws IOException {
+		File file = File.createTempFile("undercover-", ".cd");
+		CoverageData previous = new CoverageData();
+		previous.register("p/c", new int[][] { { 1, 2 } });
+		ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream(file));
+		output.writeObject(previous);
+		output.close();
+		CoverageData appended = new CoverageData();
+		appended.register("p/c", new int[][] { { 1, 0 } });
+		appended.append(file, true);
+		assertArrayEquals(new int[][] { { 1, 1 } }, CoverageData.load(file).getCoverage("p/c").blocks);
+	}
+
+	@Test public void appendConcurrently() throws Exception {
+		final File file = File.createTempFile("undercover-", ".cd");
+		Thread[] threads = new Thread[8];
+		final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					CoverageData coverageData = new CoverageData();
+					coverageData.register("p/c", new int[][] { { 1, 2 } });
+					try {
+						coverageData.append(file, false);
+					} catch (IOException e) {
+						errors.add(e);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread each : threads) {
+			each.join();
+		}
+		assertEquals(Collections.emptyList(), errors);
+		assertArrayEquals(new int[][] { { 8, 16 } }, CoverageData.load(file).getCoverage("p/c").blocks);
+	}
+
+	@Test(expected=IOException.class)
+	public void loadUnknownFormat() throws IOException {
+		File file = File.createTempFile("undercover-", ".cd");
+		FileOutputStream output = new FileOutputStream(file);
+		output.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		output.close();
+		CoverageData.load(file);
+	}
 }
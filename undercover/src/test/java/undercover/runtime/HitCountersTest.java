@@ -0,0 +1,16 @@
+package undercover.runtime;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class HitCountersTest {
+	@Test public void collect() {
+		boolean[] hits = new boolean[4];
+		HitCounters dut = new HitCounters(hits, new int[] { 1, 0, 3 });
+		hits[0] = true;
+		hits[2] = true;
+		dut.collect();
+		assertArrayEquals(new int[][] { { 1 }, {}, { 0, 1, 0 } }, dut.getTotal());
+	}
+}
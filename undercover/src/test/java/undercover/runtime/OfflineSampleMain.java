@@ -0,0 +1,33 @@
+package undercover.runtime;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+/**
+ * Runs a class instrumented offline, which never uses {@link Probe}, and prints whether controls are registered.
+ * If a snapshot directory is given, waits for a snapshot for up to 10 seconds.
+ * Halts without running exit hooks, as if the JVM were killed.
+ */
+public class OfflineSampleMain {
+	public static void main(String[] args) throws Exception {
+		((Runnable) Class.forName(args[0]).newInstance()).run();
+		System.out.println(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(ProbeControl.OBJECT_NAME)));
+		System.out.flush();
+		for (int i = 0; args.length > 1 && i < 100 && !hasSnapshot(new File(args[1])); i++) {
+			Thread.sleep(100);
+		}
+		Runtime.getRuntime().halt(0);
+	}
+
+	static boolean hasSnapshot(File directory) {
+		File[] files = directory.listFiles();
+		for (File each : files == null ? new File[0] : files) {
+			if (each.getName().endsWith(SnapshotWriter.SUFFIX)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
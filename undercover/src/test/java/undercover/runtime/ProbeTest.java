@@ -1,5 +1,7 @@
 package undercover.runtime;
 
+import static org.junit.Assert.*;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -17,4 +19,43 @@ public class ProbeTest {
 		dut.register("p/c", new int[3][4]);
 		dut.getCoverageData().getCoverage("p/c");
 	}
+
+	@Test public void snapshotIsCopied() {
+		int[][] counters = { { 1, 2 } };
+		dut.register("p/c", counters);
+		CoverageData snapshot = dut.snapshot(false);
+		counters[0][0] = 3;
+		assertEquals(1, snapshot.getCoverage("p/c").countExecution(0, 0));
+		assertEquals(3, dut.getCoverageData().getCoverage("p/c").countExecution(0, 0));
+	}
+	
+	@Test public void snapshotAndReset() {
+		int[] counters = { 1, 2, 3 };
+		dut.register("p/c", counters, new int[] { 0, 1, 3 });
+		boolean[] hits = { true, false };
+		dut.register("p/d", hits, new int[] { 2 });
+		CoverageData snapshot = dut.snapshot(true);
+		assertEquals(3, snapshot.getCoverage("p/c").countExecution(1, 1));
+		assertEquals(1, snapshot.getCoverage("p/d").countExecution(0, 0));
+		assertArrayEquals(new int[] { 0, 0, 0 }, counters);
+		assertFalse(hits[0]);
+		assertEquals(0, dut.getCoverageData().getCoverage("p/d").countExecution(0, 0));
+		counters[2] = 1;
+		assertEquals(1, dut.getCoverageData().getCoverage("p/c").countExecution(1, 1));
+	}
+
+	@Test public void collect() {
+		int[][] counters = { { 1, 2 } };
+		dut.register("p/c", counters);
+		assertEquals(2, dut.collect().getCoverage("p/c").countExecution(0, 1));
+		assertArrayEquals(new int[] { 0, 0 }, counters[0]);
+		counters[0][0] = 3;
+		CoverageData delta = dut.collect();
+		assertEquals(3, delta.getCoverage("p/c").countExecution(0, 0));
+		assertEquals(0, delta.getCoverage("p/c").countExecution(0, 1));
+		counters[0][1] = 1;
+		CoverageData snapshot = dut.snapshot(false);
+		assertEquals(4, snapshot.getCoverage("p/c").countExecution(0, 0));
+		assertEquals(3, snapshot.getCoverage("p/c").countExecution(0, 1));
+	}
 }
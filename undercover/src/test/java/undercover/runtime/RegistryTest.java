@@ -0,0 +1,124 @@
+package undercover.runtime;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import undercover.instrument.Instrument;
+import undercover.support.IOUtils;
+
+public class RegistryTest {
+	@Before public void beforeEach() {
+		Registry.drain();
+	}
+
+	@Test public void drainInRegistrationOrder() {
+		int[][] first = new int[1][1];
+		Registry.register("p/a", first);
+		Registry.register("p/b", new boolean[2], new int[] { 2 });
+		Registry.register("p/a", new int[2], new int[] { 0, 2 });
+		List<Registry.Registration> registrations = Registry.drain();
+		assertEquals(3, registrations.size());
+		assertSame(first, registrations.get(0).counters);
+		assertEquals("p/b", registrations.get(1).className);
+		assertArrayEquals(new int[] { 0, 2 }, registrations.get(2).shape);
+		assertTrue(Registry.drain().isEmpty());
+	}
+
+	@Test public void registerConcurrently() throws InterruptedException {
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			final int thread = i;
+			threads[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						Registry.register("p/c" + thread + "_" + j, new int[0][]);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread each : threads) {
+			each.join();
+		}
+		Set<String> classNames = new HashSet<String>();
+		for (Registry.Registration each : Registry.drain()) {
+			classNames.add(each.className);
+		}
+		assertEquals(4 * 1000, classNames.size());
+	}
+
+	@Test public void probeTakesRegisteredCounters() {
+		Probe probe = new Probe(new UndercoverSettings(), true);
+		Registry.register("p/c", new int[][] { { 1 } });
+		Registry.register("p/d", new boolean[] { true, false }, new int[] { 1, 1 });
+		assertArrayEquals(new int[][] { { 1 } }, probe.getCoverageData().getCoverage("p/c").blocks);
+		assertArrayEquals(new int[][] { { 1 }, { 0 } }, probe.getCoverageData().getCoverage("p/d").blocks);
+		assertFalse(probe.getCoverageData().getCoverage("p/d").counted);
+	}
+
+	@Test public void controlsStartWithFirstRegistration() throws Exception {
+		Process process = fork(instrumentSample(), "-Dundercover.control.jmx=true");
+		assertEquals("true", new BufferedReader(new InputStreamReader(process.getInputStream())).readLine());
+		assertEquals(0, process.waitFor());
+	}
+
+	@Test public void snapshotsStartWithFirstRegistration() throws Exception {
+		File directory = File.createTempFile("snapshots", "");
+		directory.delete();
+		Process process = fork(instrumentSample(), "-Dundercover.snapshot.interval=1", "-Dundercover.snapshot.directory=" + directory.getPath(), directory.getPath());
+		assertEquals(0, process.waitFor());
+		Coverage coverage = SnapshotWriter.load(directory).getCoverage("undercover/instrument/ProbeSample");
+		assertNotNull(coverage);
+		assertTrue(coverage.countCoveredBlocks(1) > 0);
+	}
+
+	/**
+	 * @return directory of the sample class instrumented offline.
+	 */
+	static File instrumentSample() throws IOException {
+		File directory = File.createTempFile("classes", "");
+		directory.delete();
+		File file = new File(directory, "undercover/instrument/ProbeSample.class");
+		file.getParentFile().mkdirs();
+		byte[] bytecode = new Instrument().instrument(IOUtils.toByteArray(RegistryTest.class.getResourceAsStream("/undercover/instrument/ProbeSample.class")));
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(bytecode);
+		} finally {
+			output.close();
+		}
+		return directory;
+	}
+
+	/**
+	 * Runs {@link OfflineSampleMain} in a new JVM, with the instrumented sample ahead of the test classes.
+	 * 
+	 * @param arguments system properties, followed by arguments of {@link OfflineSampleMain}.
+	 */
+	static Process fork(File classes, String... arguments) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		List<String> mainArguments = new ArrayList<String>();
+		for (String each : arguments) {
+			(each.startsWith("-D") ? command : mainArguments).add(each);
+		}
+		command.add("-cp");
+		command.add(classes.getPath() + File.pathSeparator + System.getProperty("java.class.path"));
+		command.add(OfflineSampleMain.class.getName());
+		command.add("undercover.instrument.ProbeSample");
+		command.addAll(mainArguments);
+		return new ProcessBuilder(command).start();
+	}
+}
@@ -0,0 +1,88 @@
+package undercover.runtime;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotWriterTest {
+	private SnapshotWriter dut;
+	private Probe probe;
+	private File directory;
+	private int[][] a;
+	private int[][] b;
+
+	@Before public void beforeEach() throws IOException {
+		directory = File.createTempFile("snapshots", "");
+		directory.delete();
+		probe = new Probe(new UndercoverSettings(), false);
+		a = new int[][] { { 0, 0 } };
+		b = new int[][] { { 0 } };
+		probe.register("p/a", a);
+		probe.register("p/b", b);
+		dut = new SnapshotWriter(probe, directory, 1000, 2);
+	}
+
+	@After public void afterEach() {
+		File[] files = directory.listFiles();
+		for (File each : files == null ? new File[0] : files) {
+			each.delete();
+		}
+		directory.delete();
+	}
+
+	@Test public void onlyChangedClasses() throws IOException {
+		assertEquals(2, CoverageData.load(dut.snapshot()).getCoverages().size());
+		assertNull(dut.snapshot());
+		a[0][1] = 1;
+		CoverageData snapshot = CoverageData.load(dut.snapshot());
+		assertEquals(1, snapshot.getCoverages().size());
+		assertEquals(1, snapshot.getCoverage("p/a").countExecution(0, 1));
+	}
+
+	@Test public void changesAreComparedExactly() throws IOException {
+		a[0][1] = 31;
+		dut.snapshot();
+		a[0][0] = 1;
+		a[0][1] = 0;
+		CoverageData snapshot = CoverageData.load(dut.snapshot());
+		assertEquals(1, snapshot.getCoverages().size());
+		assertEquals(1, snapshot.getCoverage("p/a").countExecution(0, 0));
+	}
+
+	@Test public void carryOverEvictedClasses() throws IOException {
+		File first = dut.snapshot();
+		a[0][0] = 1;
+		dut.snapshot();
+		a[0][0] = 2;
+		CoverageData third = CoverageData.load(dut.snapshot());
+		assertFalse(first.exists());
+		assertEquals(2, directory.listFiles().length);
+		assertNotNull(third.getCoverage("p/b"));
+		assertEquals(2, SnapshotWriter.load(directory).getCoverage("p/a").countExecution(0, 0));
+	}
+
+	@Test public void reset() throws IOException {
+		dut.snapshot();
+		probe.reset();
+		assertEquals(2, CoverageData.load(dut.snapshot()).getCoverages().size());
+	}
+
+	@Test public void loadLatestOfEachRun() throws IOException {
+		a[0][0] = 1;
+		dut.snapshot();
+		a[0][0] = 3;
+		dut.snapshot();
+		Probe other = new Probe(new UndercoverSettings(), false);
+		other.register("p/a", new int[][] { { 5, 1 } });
+		new SnapshotWriter(other, directory, 1000, 2).snapshot();
+		CoverageData result = SnapshotWriter.load(directory);
+		assertEquals(8, result.getCoverage("p/a").countExecution(0, 0));
+		assertEquals(1, result.getCoverage("p/a").countExecution(0, 1));
+		assertEquals(0, result.getCoverage("p/b").countExecution(0, 0));
+	}
+}
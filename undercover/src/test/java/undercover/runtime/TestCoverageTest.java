@@ -0,0 +1,69 @@
+package undercover.runtime;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCoverageTest {
+	private CoverageData coverageData;
+
+	@Before public void beforeEach() {
+		coverageData = new CoverageData();
+		coverageData.register("p/c", new int[][] { { 0, 1 }, { 0 }, { 2, 0, 1 } });
+		coverageData.register("p/d", new int[][] { { 0 } });
+	}
+
+	@Test public void of() {
+		TestCoverage dut = TestCoverage.of("t", coverageData);
+		assertEquals("t", dut.testName);
+		assertEquals(Arrays.asList("p/c"), Arrays.asList(dut.classes.keySet().toArray()));
+		assertEquals(bits(1, 3, 5), dut.classes.get("p/c"));
+	}
+
+	@Test public void writeAndRead() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		TestCoverageWriter writer = new TestCoverageWriter(Channels.newChannel(bytes));
+		writer.write(TestCoverage.of("a", coverageData));
+		coverageData.register("p/d", new int[][] { { 1 } });
+		TestCoverage b = TestCoverage.of("b", coverageData);
+		b.classes.get("p/c").set(20);
+		writer.write(b);
+
+		List<TestCoverage> tests = new TestCoverageReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))).read();
+		assertEquals(2, tests.size());
+		assertEquals("a", tests.get(0).testName);
+		assertEquals(bits(1, 3, 5), tests.get(0).classes.get("p/c"));
+		assertEquals("b", tests.get(1).testName);
+		assertEquals(bits(1, 3, 5, 20), tests.get(1).classes.get("p/c"));
+		assertEquals(bits(0), tests.get(1).classes.get("p/d"));
+	}
+
+	@Test public void partialTestIsIgnored() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		TestCoverageWriter writer = new TestCoverageWriter(Channels.newChannel(bytes));
+		writer.write(TestCoverage.of("a", coverageData));
+		int length = bytes.size();
+		writer.write(TestCoverage.of("b", coverageData));
+
+		byte[] truncated = Arrays.copyOf(bytes.toByteArray(), length + 3);
+		List<TestCoverage> tests = new TestCoverageReader(Channels.newChannel(new ByteArrayInputStream(truncated))).read();
+		assertEquals(1, tests.size());
+	}
+
+	static BitSet bits(int... indexes) {
+		BitSet result = new BitSet();
+		for (int each : indexes) {
+			result.set(each);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,67 @@
+package undercover.runtime;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ThreadCountersTest {
+	private ThreadCounters dut;
+
+	@Before public void beforeEach() {
+		dut = new ThreadCounters(new int[][] { { 0, 0 }, { 0 } });
+	}
+
+	@Test public void collect() throws InterruptedException {
+		dut.get()[0][1] = 2;
+		Thread other = new Thread() {
+			public void run() {
+				dut.get()[0][1] = 3;
+				dut.get()[1][0] = Integer.MAX_VALUE;
+			}
+		};
+		other.start();
+		other.join();
+		dut.collect();
+		assertArrayEquals(new int[][] { { 0, 5 }, { Integer.MAX_VALUE } }, dut.getTotal());
+		dut.get()[1][0] = 1;
+		dut.collect();
+		assertArrayEquals(new int[][] { { 0, 5 }, { Integer.MAX_VALUE } }, dut.getTotal());
+	}
+
+	@Test public void collectKeepsHitsOfTotal() {
+		dut.getTotal()[1][0] = 1;
+		dut.get()[0][0] = 2;
+		dut.collect();
+		assertArrayEquals(new int[][] { { 2, 0 }, { 1 } }, dut.getTotal());
+	}
+
+	@Test public void reset() {
+		dut.get()[0][1] = 2;
+		dut.collect();
+		dut.reset();
+		assertArrayEquals(new int[][] { { 0, 0 }, { 0 } }, dut.getTotal());
+		dut.get()[0][0] = 1;
+		dut.collect();
+		assertArrayEquals(new int[][] { { 1, 0 }, { 0 } }, dut.getTotal());
+	}
+
+	@Test public void terminatedThreadsAreRetired() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			Thread other = new Thread() {
+				public void run() {
+					dut.get()[0][0] += 2;
+				}
+			};
+			other.start();
+			other.join();
+		}
+		dut.get()[0][1] = 1;
+		assertEquals(1, dut.getThreadCount());
+		dut.collect();
+		assertArrayEquals(new int[][] { { 6, 1 }, { 0 } }, dut.getTotal());
+		dut.reset();
+		dut.collect();
+		assertArrayEquals(new int[][] { { 0, 0 }, { 0 } }, dut.getTotal());
+	}
+}
@@ -21,6 +21,50 @@ public class UndercoverSettingsTest {
 		assertTrue(dut.isCoverageSaveOnExit());
 	}
 	
+	@Test public void coverageBitset() {
+		assertFalse(dut.isCoverageBitset());
+		dut.setCoverageBitset(true);
+		assertTrue(dut.isCoverageBitset());
+	}
+	
+	@Test public void coverageAppend() {
+		assertFalse(dut.isCoverageAppend());
+		dut.setCoverageAppend(true);
+		assertTrue(dut.isCoverageAppend());
+	}
+	
+	@Test public void controlJmx() {
+		assertFalse(dut.isControlJmx());
+		dut.setControlJmx(true);
+		assertTrue(dut.isControlJmx());
+	}
+	
+	@Test public void controlPort() {
+		assertEquals(0, dut.getControlPort());
+		dut.setControlPort(9731);
+		assertEquals(9731, dut.getControlPort());
+	}
+	
+	@Test public void snapshot() {
+		assertEquals(0, dut.getSnapshotInterval());
+		assertEquals(10, dut.getSnapshotRetention());
+		dut.setCoverageFile(new File("/tmp/undercover.cd"));
+		assertEquals(new File("/tmp/undercover-snapshots").getAbsoluteFile(), dut.getSnapshotDirectory().getAbsoluteFile());
+		dut.setSnapshotInterval(60);
+		dut.setSnapshotRetention(3);
+		dut.setSnapshotDirectory(new File("/snapshots"));
+		assertEquals(60, dut.getSnapshotInterval());
+		assertEquals(3, dut.getSnapshotRetention());
+		assertEquals(new File("/snapshots").getAbsoluteFile(), dut.getSnapshotDirectory().getAbsoluteFile());
+	}
+	
+	@Test public void testCoverageDirectory() {
+		dut.setCoverageFile(new File("/tmp/undercover.cd"));
+		assertEquals(new File("/tmp/undercover-tests").getAbsoluteFile(), dut.getTestCoverageDirectory().getAbsoluteFile());
+		dut.setTestCoverageDirectory(new File("/tests"));
+		assertEquals(new File("/tests").getAbsoluteFile(), dut.getTestCoverageDirectory().getAbsoluteFile());
+	}
+	
 	@Test public void coverageFile() {
 		assertNull(dut.getCoverageFile());
 		File file = new File("/undercover.cd");
@@ -0,0 +1,35 @@
+package undercover.support;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class IntSetTest {
+	private IntSet dut;
+
+	@Before public void beforeEach() {
+		dut = new IntSet();
+	}
+
+	@Test public void keepsSortedAndUnique() {
+		assertTrue(dut.add(12));
+		assertTrue(dut.add(10));
+		assertTrue(dut.add(14));
+		assertFalse(dut.add(12));
+		assertTrue(dut.add(11));
+		assertArrayEquals(new int[] { 10, 11, 12, 14 }, dut.toIntArray());
+		assertTrue(dut.contains(14));
+		assertFalse(dut.contains(13));
+	}
+
+	@Test public void equalsToSetOfIntegers() {
+		dut = new IntSet(3, 1, 2);
+		assertEquals(new HashSet<Integer>(Arrays.asList(1, 2, 3)), dut);
+		assertEquals(dut, new HashSet<Integer>(Arrays.asList(1, 2, 3)));
+		assertEquals(Arrays.asList(1, 2, 3), Arrays.asList(dut.toArray()));
+	}
+}
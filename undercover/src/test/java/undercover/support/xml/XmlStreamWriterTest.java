@@ -0,0 +1,48 @@
+package undercover.support.xml;
+
+import static org.junit.Assert.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class XmlStreamWriterTest {
+	private StringWriter buffer;
+	private XmlStreamWriter dut;
+
+	@Before public void beforeEach() {
+		buffer = new StringWriter();
+		dut = new XmlStreamWriter(new PrintWriter(buffer));
+	}
+
+	@Test public void sameAsTree() {
+		Element tree = new Element("table").attr("class", "t").append(
+				new Element("thead").append("head"),
+				new Element("tbody").append(
+						new Element("tr").append(new Element("td").append("1 < 2")),
+						new Element("tr").append(new Element("td").append("3"))));
+		StringWriter expected = new StringWriter();
+		tree.accept(new XmlWriter(new PrintWriter(expected)));
+
+		dut.start(new Element("table").attr("class", "t").append(new Element("thead").append("head")));
+		dut.start(new Element("tbody"));
+		dut.write(new Element("tr").append(new Element("td").append("1 < 2")));
+		dut.write(new Element("tr").append(new Element("td").append("3")));
+		dut.end().end();
+		assertEquals(expected.toString(), buffer.toString());
+	}
+
+	@Test public void build() {
+		ElementBuilder builder = new ElementBuilder();
+		builder.write(new XmlDeclaration("1.0", "UTF-8"));
+		builder.start(new Element("a").append(new Element("b")));
+		builder.write(new Element("c"));
+		builder.end();
+		Element actual = builder.getRoot();
+		assertEquals("a", actual.name);
+		assertEquals(2, actual.children.size());
+		assertEquals("c", ((Element) actual.children.get(1)).name);
+	}
+}